@@ -0,0 +1,235 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Throughput of {@link JfxMouseAndKeyHandler#handle} for synthetic events, for
+ * varying numbers of bindings spread over a varying number of chained
+ * contexts ({@link InputTriggerMap}/{@link BehaviourMap} parents).
+ * <p>
+ * Run with
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec
+ * </pre>
+ *
+ * which runs {@link #main(String...)}, reporting throughput and allocation
+ * rate (GC profiler).
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class JfxMouseAndKeyHandlerBenchmark
+{
+	@Param( { "10", "100", "1000" } )
+	public int bindings;
+
+	@Param( { "1", "8" } )
+	public int contexts;
+
+	private JfxMouseAndKeyHandler handler;
+
+	private long invocations;
+
+	private MouseEvent moved;
+
+	private MouseEvent pressed;
+
+	private MouseEvent dragged;
+
+	private MouseEvent released;
+
+	private MouseEvent clicked;
+
+	private KeyEvent keyPressed;
+
+	private KeyEvent keyReleased;
+
+	private ScrollEvent scroll;
+
+	@Setup
+	public void setup()
+	{
+		final InputTriggerMap[] inputMaps = new InputTriggerMap[ contexts ];
+		final BehaviourMap[] behaviourMaps = new BehaviourMap[ contexts ];
+		for ( int i = 0; i < contexts; ++i )
+		{
+			inputMaps[ i ] = new InputTriggerMap();
+			behaviourMaps[ i ] = new BehaviourMap();
+			if ( i > 0 )
+			{
+				inputMaps[ i ].setParent( inputMaps[ i - 1 ] );
+				behaviourMaps[ i ].setParent( behaviourMaps[ i - 1 ] );
+			}
+		}
+
+		final ClickBehaviour click = ( x, y ) -> ++invocations;
+		final DragBehaviour drag = new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++invocations;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{
+				++invocations;
+			}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				++invocations;
+			}
+		};
+		final ScrollBehaviour scrollBehaviour = ( wheelRotation, isHorizontal, x, y ) -> ++invocations;
+
+		final List< InputTrigger > triggers = SyntheticTriggers.triggers( bindings );
+		for ( int i = 0; i < bindings; ++i )
+		{
+			final int c = i % contexts;
+			final String name = "key-click-" + i;
+			behaviourMaps[ c ].put( name, click );
+			inputMaps[ c ].put( triggers.get( i ), name );
+		}
+		behaviourMaps[ 0 ].put( "drag", drag );
+		inputMaps[ 0 ].put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMaps[ 0 ].put( "click", click );
+		inputMaps[ 0 ].put( InputTrigger.getFromString( "button3" ), "click" );
+		behaviourMaps[ 0 ].put( "scroll", scrollBehaviour );
+		inputMaps[ 0 ].put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMaps[ contexts - 1 ] );
+		handler.setBehaviourMap( behaviourMaps[ contexts - 1 ] );
+
+		moved = SyntheticEvents.moved( 100, 100 );
+		pressed = SyntheticEvents.pressed( MouseButton.PRIMARY, 100, 100, NONE );
+		dragged = SyntheticEvents.dragged( MouseButton.PRIMARY, 110, 105, NONE );
+		released = SyntheticEvents.released( MouseButton.PRIMARY, 110, 105, NONE );
+		clicked = SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 100, 100, NONE );
+		keyPressed = SyntheticEvents.keyPressed( KeyCode.A, NONE );
+		keyReleased = SyntheticEvents.keyReleased( KeyCode.A, NONE );
+		scroll = SyntheticEvents.scroll( 100, 100, 0, -40, false, NONE );
+
+		// build dispatch tables before measuring
+		handler.handle( moved );
+	}
+
+	@Benchmark
+	public void mouseMoved()
+	{
+		handler.handle( moved );
+	}
+
+	/**
+	 * Press, drag, and release {@code button1}. Three events per invocation.
+	 */
+	@Benchmark
+	public void buttonDrag()
+	{
+		handler.handle( pressed );
+		handler.handle( dragged );
+		handler.handle( released );
+	}
+
+	@Benchmark
+	public void mouseDragged()
+	{
+		handler.handle( dragged );
+	}
+
+	@Benchmark
+	public void mouseClicked()
+	{
+		handler.handle( clicked );
+	}
+
+	/**
+	 * Press and release key {@code A}. Two events per invocation.
+	 */
+	@Benchmark
+	public void keyClick()
+	{
+		handler.handle( keyPressed );
+		handler.handle( keyReleased );
+	}
+
+	@Benchmark
+	public void scrolled()
+	{
+		handler.handle( scroll );
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( JfxMouseAndKeyHandlerBenchmark.class.getSimpleName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
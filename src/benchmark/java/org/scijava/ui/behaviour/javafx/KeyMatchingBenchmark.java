@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * Matching pressed keys against triggers, and transferring pressed-key state,
+ * with Trove {@link TIntSet}s ({@link InputTrigger#matches(int, TIntSet)})
+ * versus {@link KeyBits} ({@link Binding#matches(int, KeyBits)}).
+ * <p>
+ * Run with
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.class=org.scijava.ui.behaviour.javafx.KeyMatchingBenchmark
+ * </pre>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class KeyMatchingBenchmark
+{
+	@Param( { "10", "100", "1000" } )
+	public int bindings;
+
+	private InputTrigger[] triggers;
+
+	private Binding< ClickBehaviour >[] compiled;
+
+	private Binding< DragBehaviour > drag;
+
+	private final int mask = InputTrigger.CTRL_DOWN_MASK;
+
+	private final TIntSet pressedKeySet = new TIntHashSet( 5, 0.5f, -1 );
+
+	private final TIntSet targetKeySet = new TIntHashSet( 5, 0.5f, -1 );
+
+	private final KeyBits pressedKeys = new KeyBits();
+
+	private final KeyBits targetKeys = new KeyBits();
+
+	@SuppressWarnings( "unchecked" )
+	@Setup
+	public void setup()
+	{
+		final ClickBehaviour click = ( x, y ) -> {};
+		final List< InputTrigger > list = SyntheticTriggers.triggers( bindings );
+		triggers = list.toArray( new InputTrigger[ 0 ] );
+		compiled = new Binding[ triggers.length ];
+		for ( int i = 0; i < triggers.length; ++i )
+			compiled[ i ] = new Binding<>( triggers[ i ], click );
+		drag = new Binding<>( InputTrigger.getFromString( "ctrl A" ), null );
+
+		pressedKeySet.add( KeyEvent.VK_A );
+		pressedKeySet.add( KeyEvent.VK_SPACE );
+		pressedKeys.addAll( pressedKeySet );
+	}
+
+	/**
+	 * Match all triggers using {@link InputTrigger#matches(int, TIntSet)}.
+	 */
+	@Benchmark
+	public int matchTrove()
+	{
+		int matches = 0;
+		for ( final InputTrigger trigger : triggers )
+			if ( trigger.matches( mask, pressedKeySet ) )
+				++matches;
+		return matches;
+	}
+
+	/**
+	 * Match all triggers using {@link Binding#matches(int, KeyBits)}.
+	 */
+	@Benchmark
+	public int matchKeyBits()
+	{
+		int matches = 0;
+		for ( final Binding< ClickBehaviour > binding : compiled )
+			if ( binding.matches( mask, pressedKeys ) )
+				++matches;
+		return matches;
+	}
+
+	@Benchmark
+	public boolean matchesSubsetTrove()
+	{
+		return drag.buttons().matchesSubset( mask, pressedKeySet );
+	}
+
+	@Benchmark
+	public boolean matchesSubsetKeyBits()
+	{
+		return drag.matchesSubset( mask, pressedKeys );
+	}
+
+	/**
+	 * Copy pressed keys to another set (as when a key press is routed to
+	 * another handler).
+	 */
+	@Benchmark
+	public TIntSet transferTrove()
+	{
+		targetKeySet.clear();
+		targetKeySet.addAll( pressedKeySet );
+		return targetKeySet;
+	}
+
+	@Benchmark
+	public KeyBits transferKeyBits()
+	{
+		targetKeys.set( pressedKeys );
+		return targetKeys;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( KeyMatchingBenchmark.class.getSimpleName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * Looking up matching bindings by scanning all triggers (as
+ * {@link JfxMouseAndKeyHandler} used to do) versus {@link TriggerIndex}, for
+ * increasing numbers of bindings. {@link #indexedFirstLookup()} measures the
+ * first lookup of a key set and mask in a freshly built index.
+ * <p>
+ * Run with
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.class=org.scijava.ui.behaviour.javafx.TriggerIndexBenchmark
+ * </pre>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class TriggerIndexBenchmark
+{
+	@Param( { "10", "100", "1000" } )
+	public int bindings;
+
+	private InputTrigger[] triggers;
+
+	private TriggerIndex< ClickBehaviour > index;
+
+	private final int mask = InputTrigger.CTRL_DOWN_MASK;
+
+	private final TIntSet pressedKeySet = new TIntHashSet();
+
+	private final KeyBits pressedKeys = new KeyBits();
+
+	private ClickBehaviour click;
+
+	@Setup
+	public void setup()
+	{
+		click = ( x, y ) -> {};
+		final List< InputTrigger > list = SyntheticTriggers.triggers( bindings );
+		triggers = list.toArray( new InputTrigger[ 0 ] );
+		index = newIndex();
+		pressedKeySet.add( KeyEvent.VK_A );
+		pressedKeys.addAll( pressedKeySet );
+	}
+
+	private TriggerIndex< ClickBehaviour > newIndex()
+	{
+		final TriggerIndex< ClickBehaviour > index = new TriggerIndex<>();
+		for ( final InputTrigger trigger : triggers )
+			index.add( trigger, click );
+		return index;
+	}
+
+	@Benchmark
+	public int linearScan()
+	{
+		int matches = 0;
+		for ( final InputTrigger trigger : triggers )
+			if ( trigger.matches( mask, pressedKeySet ) )
+				++matches;
+		return matches;
+	}
+
+	@Benchmark
+	public int indexed()
+	{
+		return index.get( mask, mask, pressedKeys ).length;
+	}
+
+	/**
+	 * Build an index and look up one key set and mask. (Building dominates;
+	 * compare with {@link #build()}.)
+	 */
+	@Benchmark
+	public int indexedFirstLookup()
+	{
+		return newIndex().get( mask, mask, pressedKeys ).length;
+	}
+
+	@Benchmark
+	public TriggerIndex< ClickBehaviour > build()
+	{
+		return newIndex();
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( TriggerIndexBenchmark.class.getSimpleName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import org.scijava.ui.behaviour.DragBehaviour;
+
+/**
+ * Ordered set of currently active {@link DragBehaviour} {@link Binding}s.
+ * <p>
+ * Adding, removing, and membership tests do not allocate (once the
+ * underlying storage has grown to the maximum number of simultaneously active
+ * drags). Bindings are compared by identity.
+ * <p>
+ * For each drag, the position that was last delivered to it is stored, see
+ * {@link #lastX(int)}, {@link #lastY(int)}.
+ */
+final class ActiveDrags
+{
+	private final ArrayList< Binding< DragBehaviour > > drags = new ArrayList<>();
+
+	private final Set< Binding< DragBehaviour > > lookup = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+	private double[] lastX = new double[ 4 ];
+
+	private double[] lastY = new double[ 4 ];
+
+	int size()
+	{
+		return drags.size();
+	}
+
+	boolean isEmpty()
+	{
+		return drags.isEmpty();
+	}
+
+	Binding< DragBehaviour > get( final int i )
+	{
+		return drags.get( i );
+	}
+
+	boolean contains( final Binding< DragBehaviour > drag )
+	{
+		return lookup.contains( drag );
+	}
+
+	double lastX( final int i )
+	{
+		return lastX[ i ];
+	}
+
+	double lastY( final int i )
+	{
+		return lastY[ i ];
+	}
+
+	void setLast( final int i, final double x, final double y )
+	{
+		lastX[ i ] = x;
+		lastY[ i ] = y;
+	}
+
+	/**
+	 * Add {@code drag}, which was initialized at position ({@code x},
+	 * {@code y}).
+	 */
+	void add( final Binding< DragBehaviour > drag, final double x, final double y )
+	{
+		if ( lookup.add( drag ) )
+		{
+			final int i = drags.size();
+			drags.add( drag );
+			if ( i == lastX.length )
+			{
+				lastX = Arrays.copyOf( lastX, 2 * i );
+				lastY = Arrays.copyOf( lastY, 2 * i );
+			}
+			setLast( i, x, y );
+		}
+	}
+
+	void remove( final int i )
+	{
+		lookup.remove( drags.remove( i ) );
+		final int n = drags.size() - i;
+		System.arraycopy( lastX, i + 1, lastX, i, n );
+		System.arraycopy( lastY, i + 1, lastY, i, n );
+	}
+}
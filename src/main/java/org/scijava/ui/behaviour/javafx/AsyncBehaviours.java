@@ -0,0 +1,195 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Wrappers that run {@link Behaviour}s off the JavaFX application thread.
+ * <p>
+ * {@link JfxMouseAndKeyHandler} calls behaviours synchronously on the JavaFX
+ * application thread. To keep the UI responsive while a slow behaviour runs,
+ * register the wrapped behaviour instead, e.g.
+ *
+ * <pre>
+ * behaviourMap.put( "segment", AsyncBehaviours.click( segmentBehaviour ) );
+ * </pre>
+ *
+ * The wrapper returns immediately and hands the invocation to an
+ * {@link Executor}. Invocations of each wrapped behaviour are executed one at
+ * a time and in order, so a {@link DragBehaviour} always sees
+ * {@code init()}, {@code drag()}, {@code end()} in sequence. If a
+ * {@code drag()} is still queued when the next one arrives, only the newest
+ * position is delivered. Queued {@code scroll()}s along the same axis are
+ * merged by summing their amounts. (See {@link SerialInvocationQueue}.)
+ * <p>
+ * The wrappers are {@link PreciseClickBehaviour}s,
+ * {@link PreciseDragBehaviour}s, and {@link PreciseScrollBehaviour}s, so that
+ * wrapped precise behaviours receive sub-pixel coordinates. Behaviours that
+ * implement more than one behaviour interface (for example, a
+ * {@link DragBehaviour} that is also a {@link ScrollBehaviour}) cannot be
+ * wrapped, because the wrapper would drop all but one of their roles.
+ * <p>
+ * Wrapped behaviours must not touch the scene graph directly (use
+ * {@code Platform.runLater()} for that).
+ */
+public final class AsyncBehaviours
+{
+	private AsyncBehaviours()
+	{}
+
+	private static final class DefaultExecutorHolder
+	{
+		static final ExecutorService executor = createDefaultExecutor();
+	}
+
+	/**
+	 * Get the {@link Executor} used by the wrappers if none is specified. This
+	 * uses a virtual thread per task if available (Java 21+), otherwise a
+	 * cached pool of daemon threads.
+	 */
+	public static Executor defaultExecutor()
+	{
+		return DefaultExecutorHolder.executor;
+	}
+
+	public static ClickBehaviour click( final ClickBehaviour behaviour )
+	{
+		return click( behaviour, defaultExecutor() );
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if {@code behaviour} implements another behaviour
+	 *             interface besides {@link ClickBehaviour}.
+	 */
+	public static ClickBehaviour click( final ClickBehaviour behaviour, final Executor executor )
+	{
+		checkSingleRole( behaviour );
+		final SerialInvocationQueue queue = new SerialInvocationQueue( behaviour, executor );
+		return ( PreciseClickBehaviour ) queue::click;
+	}
+
+	public static DragBehaviour drag( final DragBehaviour behaviour )
+	{
+		return drag( behaviour, defaultExecutor() );
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if {@code behaviour} implements another behaviour
+	 *             interface besides {@link DragBehaviour}.
+	 */
+	public static DragBehaviour drag( final DragBehaviour behaviour, final Executor executor )
+	{
+		checkSingleRole( behaviour );
+		final SerialInvocationQueue queue = new SerialInvocationQueue( behaviour, executor );
+		return new PreciseDragBehaviour()
+		{
+			@Override
+			public void init( final double x, final double y )
+			{
+				queue.init( x, y );
+			}
+
+			@Override
+			public void drag( final double x, final double y )
+			{
+				queue.drag( x, y );
+			}
+
+			@Override
+			public void end( final double x, final double y )
+			{
+				queue.end( x, y );
+			}
+		};
+	}
+
+	public static ScrollBehaviour scroll( final ScrollBehaviour behaviour )
+	{
+		return scroll( behaviour, defaultExecutor() );
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if {@code behaviour} implements another behaviour
+	 *             interface besides {@link ScrollBehaviour}.
+	 */
+	public static ScrollBehaviour scroll( final ScrollBehaviour behaviour, final Executor executor )
+	{
+		checkSingleRole( behaviour );
+		final SerialInvocationQueue queue = new SerialInvocationQueue( behaviour, executor );
+		return ( PreciseScrollBehaviour ) queue::scroll;
+	}
+
+	/**
+	 * Behaviour interfaces that {@link JfxMouseAndKeyHandler} dispatches to.
+	 */
+	private static final Class< ? >[] ROLES = {
+			ClickBehaviour.class,
+			DragBehaviour.class,
+			ScrollBehaviour.class,
+			ZoomBehaviour.class,
+			RotateBehaviour.class,
+			SwipeBehaviour.class };
+
+	private static void checkSingleRole( final Behaviour behaviour )
+	{
+		int roles = 0;
+		for ( final Class< ? > role : ROLES )
+			if ( role.isInstance( behaviour ) )
+				++roles;
+		if ( roles > 1 )
+			throw new IllegalArgumentException( "cannot wrap a behaviour with more than one role: " + behaviour );
+	}
+
+	private static ExecutorService createDefaultExecutor()
+	{
+		try
+		{
+			// Java 21+
+			return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+		}
+		catch ( final ReflectiveOperationException e )
+		{
+			return Executors.newCachedThreadPool( runnable -> {
+				final Thread thread = new Thread( runnable, "AsyncBehaviours" );
+				thread.setDaemon( true );
+				return thread;
+			} );
+		}
+	}
+}
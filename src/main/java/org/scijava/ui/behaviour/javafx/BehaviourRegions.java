@@ -0,0 +1,407 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Behaviours that apply only within regions of a component, for example over
+ * overlays, handles, or ROIs.
+ * <p>
+ * Each {@link Region} has bounds, an optional {@link RegionShape} for exact
+ * hit testing, and its own bindings of button or scroll triggers to
+ * behaviours. Regions are kept in a uniform grid, so that finding the regions
+ * under the pointer costs about the same regardless of how many regions
+ * there are. A {@link JfxMouseAndKeyHandler} that uses
+ * {@code BehaviourRegions} (see
+ * {@link JfxMouseAndKeyHandler#setRegions(BehaviourRegions)}) looks up the
+ * topmost region under the pointer with a matching binding once per mouse
+ * press, click, and scroll. If there is one, its bindings are triggered
+ * instead of the handler's ordinary bindings.
+ * <p>
+ * Regions that were added later are on top. Coordinates are in the
+ * coordinate system of the events (i.e., of the scene or node the handler is
+ * installed on).
+ * <p>
+ * Usage, for a draggable handle:
+ *
+ * <pre>
+ * final BehaviourRegions regions = new BehaviourRegions();
+ * handler.setRegions( regions );
+ * final BehaviourRegions.Region handle = regions.add( 10, 10, 20, 20 );
+ * handle.bind( "button1", moveHandleBehaviour );
+ * ...
+ * handle.setBounds( 30, 10, 40, 20 );
+ * ...
+ * handle.remove();
+ * </pre>
+ * <p>
+ * This class is not thread-safe. It should be used on the JavaFX application
+ * thread.
+ */
+public final class BehaviourRegions
+{
+	/**
+	 * Exact shape of a {@link Region}, within its bounds.
+	 */
+	@FunctionalInterface
+	public interface RegionShape
+	{
+		boolean contains( double x, double y );
+	}
+
+	static final int DRAG = 0;
+
+	static final int CLICK = 1;
+
+	static final int SCROLL = 2;
+
+	/**
+	 * Regions that cover more than this many grid cells are not entered into
+	 * the grid, but are checked for every query.
+	 */
+	private static final int MAX_CELLS = 256;
+
+	private final double cellSize;
+
+	/**
+	 * Regions overlapping each grid cell, by {@link #key(int, int)}.
+	 */
+	private final TLongObjectHashMap< ArrayList< Region > > grid = new TLongObjectHashMap<>();
+
+	private final ArrayList< Region > large = new ArrayList<>();
+
+	private int size = 0;
+
+	/**
+	 * Stacking order of the next region.
+	 */
+	private long nextZ = 0;
+
+	/**
+	 * Create regions with a grid cell size of 64.
+	 */
+	public BehaviourRegions()
+	{
+		this( 64 );
+	}
+
+	/**
+	 * @param cellSize
+	 *            size of the grid cells. Should be about the size of a typical
+	 *            region.
+	 */
+	public BehaviourRegions( final double cellSize )
+	{
+		if ( !( cellSize > 0 ) )
+			throw new IllegalArgumentException( "cell size must be > 0" );
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Add a rectangular region, on top of all existing regions.
+	 */
+	public Region add( final double minX, final double minY, final double maxX, final double maxY )
+	{
+		return add( minX, minY, maxX, maxY, null );
+	}
+
+	/**
+	 * Add a region with the given bounds and shape, on top of all existing
+	 * regions.
+	 *
+	 * @param shape
+	 *            exact shape, or {@code null} for the whole bounds
+	 */
+	public Region add( final double minX, final double minY, final double maxX, final double maxY, final RegionShape shape )
+	{
+		final Region region = new Region( nextZ++, shape );
+		region.setBounds( minX, minY, maxX, maxY );
+		return region;
+	}
+
+	/**
+	 * Get the number of regions.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * A region with its own bindings.
+	 */
+	public final class Region
+	{
+		private final long z;
+
+		private final RegionShape shape;
+
+		private double minX;
+
+		private double minY;
+
+		private double maxX;
+
+		private double maxY;
+
+		private boolean added = false;
+
+		private boolean isLarge;
+
+		/**
+		 * Bindings of this region, by {@link #DRAG}, {@link #CLICK}, and
+		 * {@link #SCROLL}.
+		 */
+		@SuppressWarnings( "unchecked" )
+		private final Binding< ? >[][] bindings = new Binding[][] { new Binding[ 0 ], new Binding[ 0 ], new Binding[ 0 ] };
+
+		private Region( final long z, final RegionShape shape )
+		{
+			this.z = z;
+			this.shape = shape;
+		}
+
+		/**
+		 * Bind {@code behaviour} to {@code trigger} within this region.
+		 *
+		 * @param trigger
+		 *            a button or scroll trigger, for example
+		 *            {@code "button1"} or {@code "ctrl scroll"}.
+		 * @return this region
+		 * @throws IllegalArgumentException
+		 *             if the trigger is key-triggered
+		 */
+		public Region bind( final String trigger, final Behaviour behaviour )
+		{
+			return bind( InputTrigger.getFromString( trigger ), behaviour );
+		}
+
+		/**
+		 * Bind {@code behaviour} to {@code trigger} within this region.
+		 *
+		 * @param trigger
+		 *            a button or scroll trigger
+		 * @return this region
+		 * @throws IllegalArgumentException
+		 *             if the trigger is key-triggered
+		 */
+		public Region bind( final InputTrigger trigger, final Behaviour behaviour )
+		{
+			if ( trigger.isKeyTriggered() )
+				throw new IllegalArgumentException( "region bindings must be button or scroll triggers: " + trigger );
+			final Binding< Behaviour > binding = new Binding<>( trigger, behaviour );
+			if ( behaviour instanceof DragBehaviour )
+				append( DRAG, binding );
+			if ( behaviour instanceof ClickBehaviour )
+				append( CLICK, binding );
+			if ( behaviour instanceof ScrollBehaviour )
+				append( SCROLL, binding );
+			return this;
+		}
+
+		private void append( final int kind, final Binding< ? > binding )
+		{
+			final Binding< ? >[] b = Arrays.copyOf( bindings[ kind ], bindings[ kind ].length + 1 );
+			b[ b.length - 1 ] = binding;
+			bindings[ kind ] = b;
+		}
+
+		/**
+		 * Get the bindings of the given kind ({@link #DRAG}, {@link #CLICK},
+		 * {@link #SCROLL}). The returned array must not be modified.
+		 */
+		@SuppressWarnings( "unchecked" )
+		< T extends Behaviour > Binding< T >[] bindings( final int kind )
+		{
+			return ( Binding< T >[] ) bindings[ kind ];
+		}
+
+		/**
+		 * Move or resize this region. (If it has been removed, it is added
+		 * again, at its original stacking position.)
+		 */
+		public void setBounds( final double minX, final double minY, final double maxX, final double maxY )
+		{
+			if ( added )
+				unregister();
+			this.minX = Math.min( minX, maxX );
+			this.minY = Math.min( minY, maxY );
+			this.maxX = Math.max( minX, maxX );
+			this.maxY = Math.max( minY, maxY );
+			register();
+		}
+
+		/**
+		 * Remove this region. Does nothing if it has already been removed.
+		 */
+		public void remove()
+		{
+			if ( added )
+				unregister();
+		}
+
+		boolean contains( final double x, final double y )
+		{
+			return x >= minX && x <= maxX && y >= minY && y <= maxY && ( shape == null || shape.contains( x, y ) );
+		}
+
+		private void register()
+		{
+			final int x0 = cell( minX );
+			final int x1 = cell( maxX );
+			final int y0 = cell( minY );
+			final int y1 = cell( maxY );
+			/*
+			 * Each side has up to 2^32 cells, so the product could overflow
+			 * even a long. It is only computed when both sides are small.
+			 */
+			final long width = ( long ) x1 - x0 + 1;
+			final long height = ( long ) y1 - y0 + 1;
+			isLarge = width > MAX_CELLS || height > MAX_CELLS || width * height > MAX_CELLS;
+			if ( isLarge )
+				large.add( this );
+			else
+			{
+				for ( int cy = y0; cy <= y1; ++cy )
+				{
+					for ( int cx = x0; cx <= x1; ++cx )
+					{
+						final long key = key( cx, cy );
+						ArrayList< Region > list = grid.get( key );
+						if ( list == null )
+						{
+							list = new ArrayList<>( 4 );
+							grid.put( key, list );
+						}
+						list.add( this );
+					}
+				}
+			}
+			if ( !added )
+				++size;
+			added = true;
+		}
+
+		private void unregister()
+		{
+			if ( isLarge )
+				removeFrom( large, this );
+			else
+			{
+				final int x0 = cell( minX );
+				final int x1 = cell( maxX );
+				final int y0 = cell( minY );
+				final int y1 = cell( maxY );
+				for ( int cy = y0; cy <= y1; ++cy )
+				{
+					for ( int cx = x0; cx <= x1; ++cx )
+					{
+						final long key = key( cx, cy );
+						final ArrayList< Region > list = grid.get( key );
+						removeFrom( list, this );
+						if ( list.isEmpty() )
+							grid.remove( key );
+					}
+				}
+			}
+			--size;
+			added = false;
+		}
+	}
+
+	/**
+	 * Find the topmost region that contains ({@code x}, {@code y}) and has a
+	 * binding of the given kind that matches {@code mask} or
+	 * {@code alternativeMask}, and {@code pressedKeys}.
+	 *
+	 * @return the region, or {@code null} if there is none
+	 */
+	Region hit( final double x, final double y, final int kind, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		Region top = topmost( grid.get( key( cell( x ), cell( y ) ) ), null, x, y, kind, mask, alternativeMask, pressedKeys );
+		top = topmost( large, top, x, y, kind, mask, alternativeMask, pressedKeys );
+		return top;
+	}
+
+	private static Region topmost( final ArrayList< Region > regions, Region top, final double x, final double y, final int kind, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		if ( regions == null )
+			return top;
+		for ( int i = 0; i < regions.size(); ++i )
+		{
+			final Region region = regions.get( i );
+			if ( ( top == null || region.z > top.z ) && region.contains( x, y ) && matches( region.bindings[ kind ], mask, alternativeMask, pressedKeys ) )
+				top = region;
+		}
+		return top;
+	}
+
+	static boolean matches( final Binding< ? > binding, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		return binding.matches( mask, pressedKeys ) || ( alternativeMask != mask && binding.matches( alternativeMask, pressedKeys ) );
+	}
+
+	private static boolean matches( final Binding< ? >[] bindings, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		for ( final Binding< ? > binding : bindings )
+			if ( matches( binding, mask, alternativeMask, pressedKeys ) )
+				return true;
+		return false;
+	}
+
+	private int cell( final double coordinate )
+	{
+		return ( int ) Math.floor( coordinate / cellSize );
+	}
+
+	private static long key( final int cx, final int cy )
+	{
+		return ( ( long ) cx << 32 ) | ( cy & 0xffffffffL );
+	}
+
+	/**
+	 * Remove {@code region} from {@code list}, by swapping with the last
+	 * element. (The order of regions in the grid does not matter.)
+	 */
+	private static void removeFrom( final ArrayList< Region > list, final Region region )
+	{
+		final int i = list.indexOf( region );
+		final int last = list.size() - 1;
+		list.set( i, list.get( last ) );
+		list.remove( last );
+	}
+}
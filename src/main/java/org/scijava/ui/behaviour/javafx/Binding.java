@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * A {@link Behaviour} together with the {@link InputTrigger} it is bound to.
+ * <p>
+ * The trigger is compiled into a modifier mask, an ignore mask, and a
+ * {@link KeyBits} key set (see {@link CompiledTrigger}), so that
+ * {@link #matches(int, KeyBits)} and {@link #matchesSubset(int, KeyBits)} are
+ * a few integer operations.
+ *
+ * @param <T>
+ *            behaviour type
+ */
+final class Binding< T extends Behaviour >
+{
+	private final InputTrigger buttons;
+
+	private final T behaviour;
+
+	/**
+	 * The name of the behaviour in the {@link org.scijava.ui.behaviour.BehaviourMap},
+	 * or {@code null}.
+	 */
+	private final String name;
+
+	/**
+	 * Modifier mask of the trigger.
+	 */
+	private final int mask;
+
+	/**
+	 * Modifiers that the trigger ignores.
+	 */
+	private final int ignoreMask;
+
+	/**
+	 * Keys of the trigger, or {@code null} if the trigger could not be
+	 * compiled. In that case, the {@link InputTrigger}'s own methods are used
+	 * for matching.
+	 */
+	private final KeyBits keys;
+
+	Binding( final InputTrigger buttons, final T behaviour )
+	{
+		this( buttons, behaviour, null );
+	}
+
+	Binding( final InputTrigger buttons, final T behaviour, final String name )
+	{
+		this.buttons = buttons;
+		this.behaviour = behaviour;
+		this.name = name;
+		final CompiledTrigger compiled = CompiledTrigger.of( buttons );
+		this.mask = compiled.mask;
+		this.ignoreMask = compiled.ignoreMask;
+		this.keys = compiled.keys;
+	}
+
+	public InputTrigger buttons()
+	{
+		return buttons;
+	}
+
+	public T behaviour()
+	{
+		return behaviour;
+	}
+
+	public String name()
+	{
+		return name;
+	}
+
+	/**
+	 * Get the compiled keys of the trigger, or {@code null} if the trigger
+	 * could not be compiled. Must not be modified.
+	 */
+	KeyBits keys()
+	{
+		return keys;
+	}
+
+	/**
+	 * Same as {@code buttons().matches(mask, pressedKeys)}.
+	 */
+	boolean matches( final int mask, final KeyBits pressedKeys )
+	{
+		if ( keys == null )
+			return buttons.matches( mask, pressedKeys.asSet() );
+		return ( mask & ~ignoreMask ) == this.mask && keys.equals( pressedKeys );
+	}
+
+	/**
+	 * Same as {@code buttons().matchesSubset(mask, pressedKeys)}.
+	 */
+	boolean matchesSubset( final int mask, final KeyBits pressedKeys )
+	{
+		if ( keys == null )
+			return buttons.matchesSubset( mask, pressedKeys.asSet() );
+		return ( this.mask & ~( mask & ~ignoreMask ) ) == 0 && pressedKeys.containsAll( keys );
+	}
+}
@@ -0,0 +1,304 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Snapshot of the bindings of an {@link InputTriggerMap} and
+ * {@link BehaviourMap}, resolved into {@link TriggerIndex dispatch tables},
+ * together with the trie of the {@link KeySequences} registered alongside
+ * them.
+ * <p>
+ * A snapshot records the versions ({@code modCount()}) of the maps and key
+ * sequences it was compiled from, and is replaced as a whole when they
+ * change.
+ * {@link #compile} reuses as much of the previous snapshot as possible: the
+ * trigger-to-behaviour-name mapping is only re-read if the
+ * {@link InputTriggerMap} changed, behaviour names are re-resolved against the
+ * {@link BehaviourMap}, {@link Binding}s whose trigger and behaviour did not
+ * change are kept (so active drags are recognized across recompilations), and
+ * dispatch tables whose bindings did not change are kept, including the
+ * lookups they have cached. In the dispatch tables that are rebuilt, only the
+ * buckets of key sets whose bindings changed lose their cached lookups.
+ * Compiling is still O(n) in the number of bindings, because all of them are
+ * walked and resolved again.
+ */
+final class CompiledBindings
+{
+	/**
+	 * Snapshot without bindings, not compiled from any maps.
+	 */
+	static final CompiledBindings EMPTY = new CompiledBindings();
+
+	private final InputTriggerMap inputMap;
+
+	private final BehaviourMap behaviourMap;
+
+	private final int inputMapVersion;
+
+	private final int behaviourMapVersion;
+
+	private final int keySequencesVersion;
+
+	/**
+	 * Behaviour names by trigger, as returned by
+	 * {@link InputTriggerMap#getAllBindings()}.
+	 */
+	private final Map< InputTrigger, Set< String > > triggers;
+
+	/**
+	 * All bindings by trigger, to find reusable bindings when compiling the
+	 * next snapshot.
+	 */
+	private final Map< InputTrigger, List< Binding< ? > > > bindings;
+
+	final TriggerIndex< DragBehaviour > buttonDrags;
+
+	final TriggerIndex< DragBehaviour > keyDrags;
+
+	final TriggerIndex< ClickBehaviour > buttonClicks;
+
+	final TriggerIndex< ClickBehaviour > keyClicks;
+
+	final TriggerIndex< ScrollBehaviour > scrolls;
+
+	final TriggerIndex< ZoomBehaviour > zooms;
+
+	final TriggerIndex< RotateBehaviour > rotates;
+
+	final TriggerIndex< SwipeBehaviour > swipes;
+
+	/**
+	 * Root of the key sequence trie.
+	 */
+	final KeySequences.Node keySequences;
+
+	private CompiledBindings()
+	{
+		inputMap = null;
+		behaviourMap = null;
+		inputMapVersion = 0;
+		behaviourMapVersion = 0;
+		keySequencesVersion = 0;
+		triggers = Collections.emptyMap();
+		bindings = Collections.emptyMap();
+		buttonDrags = new TriggerIndex<>();
+		keyDrags = new TriggerIndex<>();
+		buttonClicks = new TriggerIndex<>();
+		keyClicks = new TriggerIndex<>();
+		scrolls = new TriggerIndex<>();
+		zooms = new TriggerIndex<>();
+		rotates = new TriggerIndex<>();
+		swipes = new TriggerIndex<>();
+		keySequences = KeySequences.Node.EMPTY;
+	}
+
+	private CompiledBindings(
+			final InputTriggerMap inputMap,
+			final BehaviourMap behaviourMap,
+			final int inputMapVersion,
+			final int behaviourMapVersion,
+			final int keySequencesVersion,
+			final Map< InputTrigger, Set< String > > triggers,
+			final Map< InputTrigger, List< Binding< ? > > > bindings,
+			final TriggerIndex< DragBehaviour > buttonDrags,
+			final TriggerIndex< DragBehaviour > keyDrags,
+			final TriggerIndex< ClickBehaviour > buttonClicks,
+			final TriggerIndex< ClickBehaviour > keyClicks,
+			final TriggerIndex< ScrollBehaviour > scrolls,
+			final TriggerIndex< ZoomBehaviour > zooms,
+			final TriggerIndex< RotateBehaviour > rotates,
+			final TriggerIndex< SwipeBehaviour > swipes,
+			final KeySequences.Node keySequences )
+	{
+		this.inputMap = inputMap;
+		this.behaviourMap = behaviourMap;
+		this.inputMapVersion = inputMapVersion;
+		this.behaviourMapVersion = behaviourMapVersion;
+		this.keySequencesVersion = keySequencesVersion;
+		this.triggers = triggers;
+		this.bindings = bindings;
+		this.buttonDrags = buttonDrags;
+		this.keyDrags = keyDrags;
+		this.buttonClicks = buttonClicks;
+		this.keyClicks = keyClicks;
+		this.scrolls = scrolls;
+		this.zooms = zooms;
+		this.rotates = rotates;
+		this.swipes = swipes;
+		this.keySequences = keySequences;
+	}
+
+	/**
+	 * Check whether this snapshot reflects the current state of the given
+	 * maps and key sequences.
+	 */
+	boolean isCompiledFrom( final InputTriggerMap inputMap, final BehaviourMap behaviourMap, final KeySequences keySequences )
+	{
+		if ( inputMap != this.inputMap || behaviourMap != this.behaviourMap )
+			return false;
+		if ( inputMap == null || behaviourMap == null )
+			return true;
+		return inputMap.modCount() == inputMapVersion
+				&& behaviourMap.modCount() == behaviourMapVersion
+				&& keySequences.modCount() == keySequencesVersion;
+	}
+
+	/**
+	 * Compile the current bindings of {@code inputMap} and
+	 * {@code behaviourMap}, and {@code keySequences}, reusing unchanged parts
+	 * of {@code previous}.
+	 */
+	static CompiledBindings compile( final CompiledBindings previous, final InputTriggerMap inputMap, final BehaviourMap behaviourMap, final KeySequences keySequences )
+	{
+		if ( inputMap == null || behaviourMap == null )
+			return EMPTY;
+
+		/*
+		 * Read versions before contents: if a map is modified concurrently,
+		 * the snapshot is older than the version it records, and will be
+		 * recompiled on the next check.
+		 */
+		final int inputMapVersion = inputMap.modCount();
+		final int behaviourMapVersion = behaviourMap.modCount();
+		final int keySequencesVersion = keySequences.modCount();
+
+		final Map< InputTrigger, Set< String > > triggers =
+				inputMap == previous.inputMap && inputMapVersion == previous.inputMapVersion
+						? previous.triggers
+						: inputMap.getAllBindings();
+
+		final Map< InputTrigger, List< Binding< ? > > > bindings = new HashMap<>();
+		final List< Binding< DragBehaviour > > buttonDrags = new ArrayList<>();
+		final List< Binding< DragBehaviour > > keyDrags = new ArrayList<>();
+		final List< Binding< ClickBehaviour > > buttonClicks = new ArrayList<>();
+		final List< Binding< ClickBehaviour > > keyClicks = new ArrayList<>();
+		final List< Binding< ScrollBehaviour > > scrolls = new ArrayList<>();
+		final List< Binding< ZoomBehaviour > > zooms = new ArrayList<>();
+		final List< Binding< RotateBehaviour > > rotates = new ArrayList<>();
+		final List< Binding< SwipeBehaviour > > swipes = new ArrayList<>();
+		for ( final Map.Entry< InputTrigger, Set< String > > entry : triggers.entrySet() )
+		{
+			final InputTrigger buttons = entry.getKey();
+			for ( final String name : entry.getValue() )
+			{
+				final Behaviour behaviour = behaviourMap.get( name );
+				if ( behaviour == null )
+					continue;
+
+				final Binding< Behaviour > binding = previous.binding( buttons, behaviour, name );
+				bindings.computeIfAbsent( buttons, k -> new ArrayList<>() ).add( binding );
+				if ( behaviour instanceof DragBehaviour )
+				{
+					if ( buttons.isKeyTriggered() )
+						keyDrags.add( cast( binding ) );
+					else
+						buttonDrags.add( cast( binding ) );
+				}
+				if ( behaviour instanceof ClickBehaviour )
+				{
+					if ( buttons.isKeyTriggered() )
+						keyClicks.add( cast( binding ) );
+					else
+						buttonClicks.add( cast( binding ) );
+				}
+				if ( behaviour instanceof ScrollBehaviour )
+					scrolls.add( cast( binding ) );
+				if ( behaviour instanceof ZoomBehaviour )
+					zooms.add( cast( binding ) );
+				if ( behaviour instanceof RotateBehaviour )
+					rotates.add( cast( binding ) );
+				if ( behaviour instanceof SwipeBehaviour )
+					swipes.add( cast( binding ) );
+			}
+		}
+
+		return new CompiledBindings(
+				inputMap,
+				behaviourMap,
+				inputMapVersion,
+				behaviourMapVersion,
+				keySequencesVersion,
+				triggers,
+				bindings,
+				index( previous.buttonDrags, buttonDrags ),
+				index( previous.keyDrags, keyDrags ),
+				index( previous.buttonClicks, buttonClicks ),
+				index( previous.keyClicks, keyClicks ),
+				index( previous.scrolls, scrolls ),
+				index( previous.zooms, zooms ),
+				index( previous.rotates, rotates ),
+				index( previous.swipes, swipes ),
+				behaviourMap == previous.behaviourMap && behaviourMapVersion == previous.behaviourMapVersion && keySequencesVersion == previous.keySequencesVersion
+						? previous.keySequences
+						: keySequences.compile( behaviourMap ) );
+	}
+
+	/**
+	 * Get the binding of {@code behaviour} (named {@code name}) to
+	 * {@code buttons} in this snapshot, or a new one if there is none.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private Binding< Behaviour > binding( final InputTrigger buttons, final Behaviour behaviour, final String name )
+	{
+		final List< Binding< ? > > candidates = bindings.get( buttons );
+		if ( candidates != null )
+			for ( final Binding< ? > binding : candidates )
+				if ( binding.behaviour() == behaviour && name.equals( binding.name() ) )
+					return ( Binding< Behaviour > ) binding;
+		return new Binding<>( buttons, behaviour, name );
+	}
+
+	/**
+	 * {@code binding.behaviour()} has been checked to be a {@code T}.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static < T extends Behaviour > Binding< T > cast( final Binding< Behaviour > binding )
+	{
+		return ( Binding< T > ) ( Binding< ? > ) binding;
+	}
+
+	private static < T extends Behaviour > TriggerIndex< T > index( final TriggerIndex< T > previous, final List< Binding< T > > bindings )
+	{
+		return previous.hasBindings( bindings ) ? previous : new TriggerIndex<>( previous, bindings );
+	}
+}
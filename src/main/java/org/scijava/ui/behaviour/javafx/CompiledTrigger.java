@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * An {@link InputTrigger} compiled into a modifier mask, an ignore mask, and
+ * a {@link KeyBits} key set, for {@link Binding}.
+ * <p>
+ * Compiled triggers are remembered (by trigger), so that each trigger is
+ * compiled only once, regardless of how many bindings, handlers, and
+ * recompilations use it. Triggers are weakly referenced, so that the triggers
+ * of discarded keymaps are not kept alive. {@link KeymapCache} registers
+ * precompiled triggers, so that they are not compiled at all.
+ */
+final class CompiledTrigger
+{
+	/**
+	 * Compiled triggers by trigger. Guarded by itself.
+	 */
+	private static final Map< InputTrigger, CompiledTrigger > cache = new WeakHashMap<>();
+
+	/**
+	 * Number of triggers compiled so far (for tests).
+	 */
+	private static final AtomicInteger compilations = new AtomicInteger();
+
+	/**
+	 * Modifier mask of the trigger.
+	 */
+	final int mask;
+
+	/**
+	 * Modifiers that the trigger ignores.
+	 */
+	final int ignoreMask;
+
+	/**
+	 * Keys of the trigger, or {@code null} if the trigger could not be
+	 * compiled. In that case, the {@link InputTrigger}'s own methods must be
+	 * used for matching.
+	 */
+	final KeyBits keys;
+
+	CompiledTrigger( final int mask, final int ignoreMask, final KeyBits keys )
+	{
+		this.mask = mask;
+		this.ignoreMask = ignoreMask;
+		this.keys = keys;
+	}
+
+	/**
+	 * Get the compiled form of {@code trigger}, compiling it if necessary.
+	 */
+	static CompiledTrigger of( final InputTrigger trigger )
+	{
+		synchronized ( cache )
+		{
+			final CompiledTrigger compiled = cache.get( trigger );
+			if ( compiled != null )
+				return compiled;
+		}
+		final CompiledTrigger compiled = compile( trigger );
+		synchronized ( cache )
+		{
+			final CompiledTrigger previous = cache.putIfAbsent( trigger, compiled );
+			return previous != null ? previous : compiled;
+		}
+	}
+
+	/**
+	 * Register a precompiled form of {@code trigger}, for example from a
+	 * {@link KeymapCache} file. It is not checked against the trigger: the
+	 * caller is responsible for it being what {@link #of} would compile (in
+	 * the case of {@link KeymapCache}, by checking once per file that it was
+	 * written with the same version of {@link InputTrigger}).
+	 */
+	static void register( final InputTrigger trigger, final CompiledTrigger compiled )
+	{
+		synchronized ( cache )
+		{
+			cache.putIfAbsent( trigger, compiled );
+		}
+	}
+
+	/**
+	 * Get the number of triggers compiled so far (for tests).
+	 */
+	static int compilations()
+	{
+		return compilations.get();
+	}
+
+	/**
+	 * Forget all compiled and registered triggers (for tests).
+	 */
+	static void forgetAll()
+	{
+		synchronized ( cache )
+		{
+			cache.clear();
+		}
+	}
+
+	private static CompiledTrigger compile( final InputTrigger trigger )
+	{
+		compilations.incrementAndGet();
+		final int ignoreMask = probeIgnoreMask( trigger );
+		return new CompiledTrigger( trigger.getMask(), ignoreMask, compileKeys( trigger ) );
+	}
+
+	/*
+	 * InputTrigger does not expose which modifiers it ignores (for example,
+	 * "ctrl A | all"), so the ignore mask is found by probing matches() with
+	 * each additional mask bit. The compiled form is only used if it
+	 * reproduces matches() for the trigger itself, and for one key more and
+	 * one key less. Otherwise (or if a key has no KeyBits bit), the
+	 * InputTrigger's own methods are used.
+	 */
+
+	private static int probeIgnoreMask( final InputTrigger buttons )
+	{
+		final int mask = buttons.getMask();
+		final TIntSet keys = buttons.getPressedKeys();
+		int ignoreMask = 0;
+		for ( int i = 0; i < 32; ++i )
+		{
+			final int bit = 1 << i;
+			if ( ( mask & bit ) == 0 && buttons.matches( mask | bit, keys ) )
+				ignoreMask |= bit;
+		}
+		return ignoreMask;
+	}
+
+	private static KeyBits compileKeys( final InputTrigger buttons )
+	{
+		final int mask = buttons.getMask();
+		final TIntSet keys = buttons.getPressedKeys();
+		if ( !buttons.matches( mask, keys ) || !buttons.matchesSubset( mask, keys ) )
+			return null;
+
+		final KeyBits bits = new KeyBits();
+		for ( final int key : keys.toArray() )
+		{
+			final int bit = JfxKeyCodes.awtToBit( key );
+			if ( bit == KeyBits.OTHER )
+				return null;
+			bits.add( bit );
+		}
+
+		final TIntSet more = new TIntHashSet( keys );
+		int extra = 0;
+		while ( !more.add( JfxKeyCodes.bitToAwt( extra ) ) )
+			++extra;
+		if ( buttons.matches( mask, more ) )
+			return null;
+
+		if ( !keys.isEmpty() )
+		{
+			final TIntSet less = new TIntHashSet( keys );
+			less.remove( keys.iterator().next() );
+			if ( buttons.matches( mask, less ) )
+				return null;
+		}
+
+		return bits;
+	}
+}
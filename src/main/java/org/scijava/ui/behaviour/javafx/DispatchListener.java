@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import javafx.event.EventType;
+import org.scijava.ui.behaviour.Behaviour;
+
+/**
+ * Receives timing information from a {@link JfxMouseAndKeyHandler}.
+ * <p>
+ * Listener methods are called on the thread that dispatches events (usually
+ * the JavaFX application thread), synchronously, for every event and every
+ * behaviour invocation. Implementations must therefore be cheap.
+ *
+ * @see JfxMouseAndKeyHandler#setDispatchListener(DispatchListener)
+ * @see DispatchMetrics
+ */
+public interface DispatchListener
+{
+	/**
+	 * Called after an input event has been handled.
+	 *
+	 * @param type
+	 *            type of the event
+	 * @param updateNanos
+	 *            time spent updating the internal maps (see
+	 *            {@link org.scijava.ui.behaviour.AbstractMouseAndKeyHandler#update()})
+	 * @param matchNanos
+	 *            time spent looking up the behaviours that match the event
+	 * @param dispatchNanos
+	 *            total time spent handling the event after the update,
+	 *            including matching and behaviour invocations
+	 */
+	void eventDispatched( EventType< ? > type, long updateNanos, long matchNanos, long dispatchNanos );
+
+	/**
+	 * Called after a behaviour has been invoked ({@code click()},
+	 * {@code init()}, {@code drag()}, {@code end()}, or {@code scroll()}).
+	 *
+	 * @param name
+	 *            the name of the behaviour in the
+	 *            {@link org.scijava.ui.behaviour.BehaviourMap}, or
+	 *            {@code null} if it was not bound by name (for example, in
+	 *            {@link BehaviourRegions}).
+	 * @param behaviour
+	 *            the behaviour that was invoked. Listeners should not keep
+	 *            references to behaviours, because that would keep behaviours
+	 *            alive that have been removed from the bindings.
+	 * @param nanos
+	 *            time spent in the behaviour
+	 */
+	void behaviourInvoked( String name, Behaviour behaviour, long nanos );
+}
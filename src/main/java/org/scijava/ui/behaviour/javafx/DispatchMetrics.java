@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.event.EventType;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.util.AbstractNamedBehaviour;
+
+/**
+ * A {@link DispatchListener} that collects event counts and latency
+ * histograms, and can expose them as a JMX MBean.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * final DispatchMetrics metrics = new DispatchMetrics();
+ * handler.setDispatchListener( metrics );
+ * metrics.register( "viewer" ); // optional, to inspect with jconsole etc.
+ * </pre>
+ *
+ * Recording does not allocate once every event type and behaviour has been
+ * seen. The statistics can be read (and reset) from any thread.
+ */
+public class DispatchMetrics implements DispatchListener, DispatchMetricsMXBean
+{
+	private final ConcurrentHashMap< EventType< ? >, LongAdder > eventCounts = new ConcurrentHashMap<>();
+
+	private final LatencyHistogram updateLatency = new LatencyHistogram();
+
+	private final LatencyHistogram matchLatency = new LatencyHistogram();
+
+	private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+	/**
+	 * Reported for behaviours that are neither bound by name nor
+	 * {@link AbstractNamedBehaviour}s.
+	 */
+	static final String UNNAMED = "(unnamed)";
+
+	/**
+	 * Latency histograms by behaviour name. Keyed by name rather than by
+	 * behaviour, so that behaviours removed from the bindings are not kept
+	 * alive.
+	 */
+	private final ConcurrentHashMap< String, LatencyHistogram > behaviourLatencies = new ConcurrentHashMap<>();
+
+	private ObjectName objectName;
+
+	@Override
+	public void eventDispatched( final EventType< ? > type, final long updateNanos, final long matchNanos, final long dispatchNanos )
+	{
+		LongAdder count = eventCounts.get( type );
+		if ( count == null )
+			count = eventCounts.computeIfAbsent( type, t -> new LongAdder() );
+		count.increment();
+		updateLatency.record( updateNanos );
+		matchLatency.record( matchNanos );
+		dispatchLatency.record( dispatchNanos );
+	}
+
+	@Override
+	public void behaviourInvoked( final String name, final Behaviour behaviour, final long nanos )
+	{
+		final String key = name != null
+				? name
+				: behaviour instanceof AbstractNamedBehaviour
+						? ( ( AbstractNamedBehaviour ) behaviour ).name()
+						: UNNAMED;
+		LatencyHistogram latency = behaviourLatencies.get( key );
+		if ( latency == null )
+			latency = behaviourLatencies.computeIfAbsent( key, k -> new LatencyHistogram() );
+		latency.record( nanos );
+	}
+
+	@Override
+	public Map< String, Long > getEventCounts()
+	{
+		final Map< String, Long > counts = new TreeMap<>();
+		eventCounts.forEach( ( type, count ) -> counts.merge( type.getName(), count.sum(), Long::sum ) );
+		return counts;
+	}
+
+	@Override
+	public LatencySummary getUpdateLatency()
+	{
+		return updateLatency.summary( "update" );
+	}
+
+	@Override
+	public LatencySummary getMatchLatency()
+	{
+		return matchLatency.summary( "match" );
+	}
+
+	@Override
+	public LatencySummary getDispatchLatency()
+	{
+		return dispatchLatency.summary( "dispatch" );
+	}
+
+	@Override
+	public List< LatencySummary > getBehaviourLatencies()
+	{
+		final List< LatencySummary > summaries = new ArrayList<>();
+		behaviourLatencies.forEach( ( name, latency ) -> summaries.add( latency.summary( name ) ) );
+		summaries.sort( Comparator.comparingLong( LatencySummary::getP99Nanos ).reversed() );
+		return summaries;
+	}
+
+	@Override
+	public void reset()
+	{
+		eventCounts.clear();
+		behaviourLatencies.clear();
+		updateLatency.reset();
+		matchLatency.reset();
+		dispatchLatency.reset();
+	}
+
+	/**
+	 * Register this as an MBean with the platform MBean server, under
+	 * {@code org.scijava.ui.behaviour.javafx:type=DispatchMetrics,name=<name>}.
+	 * If already registered, the previous registration is removed first.
+	 *
+	 * @param name
+	 *            distinguishes the metrics of different handlers.
+	 */
+	public synchronized void register( final String name ) throws JMException
+	{
+		unregister();
+		final ObjectName on = new ObjectName( "org.scijava.ui.behaviour.javafx:type=DispatchMetrics,name=" + ObjectName.quote( name ) );
+		ManagementFactory.getPlatformMBeanServer().registerMBean( this, on );
+		objectName = on;
+	}
+
+	/**
+	 * Remove the registration made by {@link #register(String)}, if any.
+	 */
+	public synchronized void unregister() throws JMException
+	{
+		if ( objectName != null )
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if ( server.isRegistered( objectName ) )
+				server.unregisterMBean( objectName );
+			objectName = null;
+		}
+	}
+}
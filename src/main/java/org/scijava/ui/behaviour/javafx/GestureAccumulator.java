@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+/**
+ * Zoom and rotation gesture samples for one modifier mask, merged until the
+ * next pulse: zoom factors are multiplied, and rotation angles are added.
+ */
+final class GestureAccumulator
+{
+	final int mask;
+
+	double zoomFactor = 1;
+
+	boolean zoomPending;
+
+	double angle;
+
+	boolean rotatePending;
+
+	double x;
+
+	double y;
+
+	GestureAccumulator( final int mask )
+	{
+		this.mask = mask;
+	}
+
+	void zoom( final double factor, final double x, final double y )
+	{
+		zoomFactor *= factor;
+		zoomPending = true;
+		this.x = x;
+		this.y = y;
+	}
+
+	void rotate( final double angle, final double x, final double y )
+	{
+		this.angle += angle;
+		rotatePending = true;
+		this.x = x;
+		this.y = y;
+	}
+
+	void clear()
+	{
+		zoomFactor = 1;
+		zoomPending = false;
+		angle = 0;
+		rotatePending = false;
+	}
+}
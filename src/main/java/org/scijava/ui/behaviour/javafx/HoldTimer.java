@@ -0,0 +1,246 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+
+/**
+ * Timer for hold triggers, shared by all {@link JfxMouseAndKeyHandler}s.
+ * <p>
+ * Deadlines are kept in a hashed timer wheel. Arming and cancelling a
+ * {@link Deadline} is O(1) and does not allocate: deadlines are intrusive
+ * list nodes that are reused by their owners. Expired deadlines are
+ * collected once per frame, by a single {@link PulseTimer} that runs only
+ * while any deadline is armed. Consequently, deadlines fire with frame
+ * resolution.
+ * <p>
+ * All methods must be called on the JavaFX application thread.
+ */
+class HoldTimer
+{
+	/**
+	 * Number of slots in the wheel. Must be a power of two.
+	 */
+	private static final int SLOTS = 64;
+
+	/**
+	 * Duration of a wheel tick, in nanoseconds (about 8 ms). Deadlines further
+	 * away than one wheel revolution (about 0.5 s) stay in their slot for
+	 * several revolutions.
+	 */
+	private static final int TICK_SHIFT = 23;
+
+	private static HoldTimer shared;
+
+	/**
+	 * Get the timer that is shared by all handlers.
+	 */
+	static HoldTimer shared()
+	{
+		if ( shared == null )
+			shared = new HoldTimer();
+		return shared;
+	}
+
+	/**
+	 * Sentinel list heads, one per slot.
+	 */
+	private final Deadline[] wheel = new Deadline[ SLOTS ];
+
+	/**
+	 * Number of armed deadlines.
+	 */
+	private int size;
+
+	/**
+	 * The last tick that was processed by {@link #advance(long)}.
+	 */
+	private long lastTick;
+
+	private PulseTimer pulse = null;
+
+	private boolean pulseRunning = false;
+
+	HoldTimer()
+	{
+		for ( int i = 0; i < SLOTS; ++i )
+		{
+			final Deadline head = new Deadline()
+			{
+				@Override
+				void expired()
+				{}
+			};
+			head.prev = head;
+			head.next = head;
+			wheel[ i ] = head;
+		}
+		lastTick = nanoTime() >> TICK_SHIFT;
+	}
+
+	/**
+	 * A deadline that can be armed with a {@link HoldTimer}. A deadline is
+	 * armed at most once at a time.
+	 */
+	static abstract class Deadline
+	{
+		private Deadline prev;
+
+		private Deadline next;
+
+		private long time;
+
+		/**
+		 * Called (on the JavaFX application thread) when the deadline has
+		 * passed. The deadline is no longer armed at this point, and may be
+		 * re-armed.
+		 */
+		abstract void expired();
+
+		boolean isArmed()
+		{
+			return next != null;
+		}
+	}
+
+	/**
+	 * Arm {@code deadline} to expire {@code delayNanos} from now. If it is
+	 * already armed, it is re-armed.
+	 */
+	void arm( final Deadline deadline, final long delayNanos )
+	{
+		if ( deadline.isArmed() )
+			unlink( deadline );
+
+		final long now = nanoTime();
+		if ( size == 0 )
+			lastTick = now >> TICK_SHIFT;
+		deadline.time = now + delayNanos;
+
+		/*
+		 * Insert into the slot of the first tick that starts at or after the
+		 * deadline, so that the deadline has passed when the slot is
+		 * processed. Never insert into a slot that has already been processed.
+		 */
+		final long tick = Math.max( ( deadline.time + ( 1L << TICK_SHIFT ) - 1 ) >> TICK_SHIFT, lastTick + 1 );
+		final Deadline head = wheel[ ( int ) tick & ( SLOTS - 1 ) ];
+		deadline.prev = head.prev;
+		deadline.next = head;
+		head.prev.next = deadline;
+		head.prev = deadline;
+		++size;
+
+		if ( pulse == null )
+			pulse = newPulseTimer();
+		if ( !pulseRunning )
+		{
+			pulseRunning = true;
+			pulse.start();
+		}
+	}
+
+	/**
+	 * Cancel {@code deadline}, if it is armed.
+	 */
+	void cancel( final Deadline deadline )
+	{
+		if ( deadline.isArmed() )
+			unlink( deadline );
+	}
+
+	private void unlink( final Deadline deadline )
+	{
+		deadline.prev.next = deadline.next;
+		deadline.next.prev = deadline.prev;
+		deadline.prev = null;
+		deadline.next = null;
+		--size;
+	}
+
+	/**
+	 * Fire all deadlines that expired before {@code now}, and stop the pulse
+	 * if no deadlines are left.
+	 */
+	void advance( final long now )
+	{
+		final long tick = now >> TICK_SHIFT;
+		// after a long pause, visit every slot once
+		final long from = Math.max( lastTick + 1, tick - SLOTS + 1 );
+		// deadlines armed by expired() go to later slots
+		lastTick = tick;
+		for ( long t = from; t <= tick && size > 0; ++t )
+		{
+			final Deadline head = wheel[ ( int ) t & ( SLOTS - 1 ) ];
+			Deadline d = head.next;
+			while ( d != head )
+			{
+				if ( d.time - now <= 0 )
+				{
+					unlink( d );
+					d.expired();
+					// expired() may have cancelled other deadlines: start over
+					d = head.next;
+				}
+				else
+					d = d.next;
+			}
+		}
+
+		if ( size == 0 && pulseRunning )
+		{
+			pulseRunning = false;
+			pulse.stop();
+		}
+	}
+
+	/**
+	 * Number of armed deadlines.
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * The current time, in nanoseconds. (Tests override this.)
+	 */
+	long nanoTime()
+	{
+		return System.nanoTime();
+	}
+
+	/**
+	 * Create the timer that calls {@link #advance(long)} once per frame.
+	 * (Tests without a running JavaFX toolkit override this, and call
+	 * {@link #advance(long)} directly.)
+	 */
+	PulseTimer newPulseTimer()
+	{
+		return PulseTimer.animationTimer( () -> advance( nanoTime() ) );
+	}
+}
@@ -0,0 +1,140 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import javafx.event.EventType;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Layout of the binary input logs written by {@link InputRecorder} and read by
+ * {@link InputReplayer}.
+ * <p>
+ * A log starts with a {@value #HEADER_SIZE}-byte header ({@link #MAGIC},
+ * {@link #VERSION}, {@link #RECORD_SIZE}, reserved) followed by fixed-size
+ * records in big-endian byte order (the
+ * {@code ByteBuffer} default), with the following fields:
+ *
+ * <pre>
+ * offset  size  field
+ *  0      1     event type (index into TYPES, 0 marks the end of the log)
+ *  1      1     mouse button (MouseButton ordinal)
+ *  2      1     click count, or touch count of a swipe (saturated at 127)
+ *  3      1     flags (FLAG_*)
+ *  4      4     mask, as computed by JfxMouseAndKeyHandler
+ *  8      4     key code (AWT, see JfxKeyCodes)
+ * 12      4     x (float)
+ * 16      4     y (float)
+ * 20      4     scroll delta x, zoom factor, or rotation angle (float)
+ * 24      4     scroll delta y, total zoom factor, or total rotation angle (float)
+ * 28      4     reserved
+ * 32      8     timestamp (System.nanoTime())
+ * </pre>
+ *
+ * The direction of a swipe is its event type. Version 2 added the gesture
+ * event types. Their codes follow those of version 1, so version 1 logs are
+ * read as well.
+ */
+final class InputLogFormat
+{
+	static final int MAGIC = 0x4A465849; // "JFXI"
+
+	static final int VERSION = 2;
+
+	static final int HEADER_SIZE = 16;
+
+	static final int RECORD_SIZE = 40;
+
+	static final int FLAG_SHIFT = 1;
+
+	static final int FLAG_CTRL = 1 << 1;
+
+	static final int FLAG_ALT = 1 << 2;
+
+	static final int FLAG_META = 1 << 3;
+
+	static final int FLAG_PRIMARY = 1 << 4;
+
+	static final int FLAG_MIDDLE = 1 << 5;
+
+	static final int FLAG_SECONDARY = 1 << 6;
+
+	/**
+	 * Set for inertia scroll, zoom, and rotate events.
+	 */
+	static final int FLAG_INERTIA = 1 << 7;
+
+	/**
+	 * Recorded event types. The index of a type is its code in the log; code
+	 * 0 is not used.
+	 */
+	static final EventType< ? >[] TYPES = {
+			null,
+			MouseEvent.MOUSE_PRESSED,
+			MouseEvent.MOUSE_RELEASED,
+			MouseEvent.MOUSE_CLICKED,
+			MouseEvent.MOUSE_MOVED,
+			MouseEvent.MOUSE_DRAGGED,
+			MouseEvent.MOUSE_ENTERED,
+			MouseEvent.MOUSE_EXITED,
+			KeyEvent.KEY_PRESSED,
+			KeyEvent.KEY_RELEASED,
+			ScrollEvent.SCROLL,
+			// version 2
+			ZoomEvent.ZOOM_STARTED,
+			ZoomEvent.ZOOM,
+			ZoomEvent.ZOOM_FINISHED,
+			RotateEvent.ROTATION_STARTED,
+			RotateEvent.ROTATE,
+			RotateEvent.ROTATION_FINISHED,
+			SwipeEvent.SWIPE_LEFT,
+			SwipeEvent.SWIPE_RIGHT,
+			SwipeEvent.SWIPE_UP,
+			SwipeEvent.SWIPE_DOWN
+	};
+
+	/**
+	 * Get the code of {@code type}, or 0 if events of this type are not
+	 * recorded.
+	 */
+	static int code( final EventType< ? > type )
+	{
+		for ( int i = 1; i < TYPES.length; ++i )
+			if ( TYPES[ i ] == type )
+				return i;
+		return 0;
+	}
+
+	private InputLogFormat()
+	{}
+}
@@ -0,0 +1,274 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_ALT;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_CTRL;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_INERTIA;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_META;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_MIDDLE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_PRIMARY;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_SECONDARY;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_SHIFT;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.HEADER_SIZE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.MAGIC;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.RECORD_SIZE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.VERSION;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javafx.event.Event;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Writes the input events handled by a {@link JfxMouseAndKeyHandler} to a
+ * compact binary log, which can be played back with {@link InputReplayer}.
+ * <p>
+ * The log is a memory-mapped, append-only file of fixed-size records (see
+ * {@link InputLogFormat}). Recording an event writes 40 bytes into the mapped
+ * region and does not allocate, except when the next region of the file has
+ * to be mapped (every {@value #CHUNK_SIZE} bytes). Because records go
+ * straight to the page cache, the log survives a crash of the application.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * final InputRecorder recorder = new InputRecorder( path );
+ * handler.setInputRecorder( recorder );
+ * ...
+ * handler.setInputRecorder( null );
+ * recorder.close();
+ * </pre>
+ *
+ * An {@code InputRecorder} is not thread-safe. It is meant to be called from
+ * the thread that dispatches events.
+ */
+public class InputRecorder implements Closeable
+{
+	static final int CHUNK_SIZE = 1 << 22;
+
+	private final FileChannel channel;
+
+	/**
+	 * Start of the currently mapped region in the file.
+	 */
+	private long mapStart;
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Create a new log at {@code file}, replacing any existing file.
+	 */
+	public InputRecorder( final Path file ) throws IOException
+	{
+		channel = FileChannel.open( file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE );
+		mapStart = 0;
+		buffer = channel.map( FileChannel.MapMode.READ_WRITE, mapStart, CHUNK_SIZE );
+		buffer.putInt( MAGIC );
+		buffer.putInt( VERSION );
+		buffer.putInt( RECORD_SIZE );
+		buffer.putInt( 0 );
+		assert buffer.position() == HEADER_SIZE;
+	}
+
+	/**
+	 * Append {@code event} to the log. Events of types that
+	 * {@link JfxMouseAndKeyHandler} does not handle are ignored.
+	 *
+	 * @param event
+	 *            the event
+	 * @param mask
+	 *            the modifier mask that the handler computed for the event
+	 */
+	public void record( final Event event, final int mask )
+	{
+		final int type = InputLogFormat.code( event.getEventType() );
+		if ( type == 0 )
+			return;
+		if ( buffer == null )
+			throw new IllegalStateException( "recorder is closed" );
+		if ( buffer.remaining() < RECORD_SIZE )
+			nextChunk();
+
+		int button = 0;
+		int clickCount = 0;
+		int flags = 0;
+		int keyCode = 0;
+		double x = 0;
+		double y = 0;
+		double dX = 0;
+		double dY = 0;
+		if ( event instanceof MouseEvent )
+		{
+			final MouseEvent e = ( MouseEvent ) event;
+			button = e.getButton().ordinal();
+			clickCount = Math.min( e.getClickCount(), 127 );
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			if ( e.isPrimaryButtonDown() )
+				flags |= FLAG_PRIMARY;
+			if ( e.isMiddleButtonDown() )
+				flags |= FLAG_MIDDLE;
+			if ( e.isSecondaryButtonDown() )
+				flags |= FLAG_SECONDARY;
+			x = e.getX();
+			y = e.getY();
+		}
+		else if ( event instanceof KeyEvent )
+		{
+			final KeyEvent e = ( KeyEvent ) event;
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			keyCode = JfxKeyCodes.toAwt( e.getCode() );
+		}
+		else if ( event instanceof ScrollEvent )
+		{
+			final ScrollEvent e = ( ScrollEvent ) event;
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			if ( e.isInertia() )
+				flags |= FLAG_INERTIA;
+			x = e.getX();
+			y = e.getY();
+			dX = e.getDeltaX();
+			dY = e.getDeltaY();
+		}
+		else if ( event instanceof ZoomEvent )
+		{
+			final ZoomEvent e = ( ZoomEvent ) event;
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			if ( e.isInertia() )
+				flags |= FLAG_INERTIA;
+			x = e.getX();
+			y = e.getY();
+			dX = e.getZoomFactor();
+			dY = e.getTotalZoomFactor();
+		}
+		else if ( event instanceof RotateEvent )
+		{
+			final RotateEvent e = ( RotateEvent ) event;
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			if ( e.isInertia() )
+				flags |= FLAG_INERTIA;
+			x = e.getX();
+			y = e.getY();
+			dX = e.getAngle();
+			dY = e.getTotalAngle();
+		}
+		else if ( event instanceof SwipeEvent )
+		{
+			final SwipeEvent e = ( SwipeEvent ) event;
+			flags = flags( e.isShiftDown(), e.isControlDown(), e.isAltDown(), e.isMetaDown() );
+			clickCount = Math.min( e.getTouchCount(), 127 );
+			x = e.getX();
+			y = e.getY();
+		}
+
+		final MappedByteBuffer b = buffer;
+		b.put( ( byte ) type );
+		b.put( ( byte ) button );
+		b.put( ( byte ) clickCount );
+		b.put( ( byte ) flags );
+		b.putInt( mask );
+		b.putInt( keyCode );
+		b.putFloat( ( float ) x );
+		b.putFloat( ( float ) y );
+		b.putFloat( ( float ) dX );
+		b.putFloat( ( float ) dY );
+		b.putInt( 0 );
+		b.putLong( System.nanoTime() );
+	}
+
+	private static int flags( final boolean shift, final boolean ctrl, final boolean alt, final boolean meta )
+	{
+		int flags = 0;
+		if ( shift )
+			flags |= FLAG_SHIFT;
+		if ( ctrl )
+			flags |= FLAG_CTRL;
+		if ( alt )
+			flags |= FLAG_ALT;
+		if ( meta )
+			flags |= FLAG_META;
+		return flags;
+	}
+
+	private void nextChunk()
+	{
+		mapStart += buffer.position();
+		try
+		{
+			buffer = channel.map( FileChannel.MapMode.READ_WRITE, mapStart, CHUNK_SIZE );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Flush the log and close the file. The file is truncated to the recorded
+	 * events.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if ( buffer == null )
+			return;
+		buffer.force();
+		final long end = mapStart + buffer.position();
+		buffer = null;
+		try
+		{
+			/*
+			 * This may fail on platforms that do not allow truncating mapped
+			 * files (Windows). The log is still valid in this case, because
+			 * InputReplayer stops at the first all-zero record.
+			 */
+			channel.truncate( end );
+		}
+		catch ( final IOException e )
+		{}
+		finally
+		{
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_ALT;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_CTRL;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_INERTIA;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_META;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_MIDDLE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_PRIMARY;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_SECONDARY;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.FLAG_SHIFT;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.HEADER_SIZE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.MAGIC;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.RECORD_SIZE;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.TYPES;
+import static org.scijava.ui.behaviour.javafx.InputLogFormat.VERSION;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Plays back a log written by {@link InputRecorder}.
+ * <p>
+ * The log is decoded into JavaFX events once, when the replayer is created, so
+ * that replaying does not measure decoding. Events can be replayed as fast as
+ * possible (for load tests) or with the recorded timing (to reproduce an
+ * interaction), and {@link #events()} can be used as input for benchmarks.
+ * <p>
+ * Replaying calls {@link JfxMouseAndKeyHandler#handle} on the calling thread,
+ * unless an {@link Executor} is given to
+ * {@link #replay(JfxMouseAndKeyHandler, double, Executor)}.
+ */
+public class InputReplayer
+{
+	private final List< Event > events;
+
+	private final TLongArrayList timestamps;
+
+	private final TIntArrayList masks;
+
+	/**
+	 * Read the log at {@code file}.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not an input log.
+	 */
+	public InputReplayer( final Path file ) throws IOException
+	{
+		events = new ArrayList<>();
+		timestamps = new TLongArrayList();
+		masks = new TIntArrayList();
+
+		try (final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+		{
+			final long size = channel.size();
+			if ( size < HEADER_SIZE )
+				throw new IOException( "not an input log: " + file );
+			final MappedByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE );
+			if ( header.getInt() != MAGIC )
+				throw new IOException( "not an input log: " + file );
+			final int version = header.getInt();
+			if ( version < 1 || version > VERSION || header.getInt() != RECORD_SIZE )
+				throw new IOException( "unsupported input log version " + version + ": " + file );
+
+			final long numRecords = ( size - HEADER_SIZE ) / RECORD_SIZE;
+			final long maxRecordsPerChunk = Integer.MAX_VALUE / RECORD_SIZE;
+			for ( long first = 0; first < numRecords; first += maxRecordsPerChunk )
+			{
+				final long n = Math.min( maxRecordsPerChunk, numRecords - first );
+				final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, n * RECORD_SIZE );
+				for ( long i = 0; i < n; ++i )
+					if ( !read( buffer ) )
+						return;
+			}
+		}
+	}
+
+	/**
+	 * Decode one record.
+	 *
+	 * @return {@code false} if the end of the log was reached.
+	 */
+	private boolean read( final MappedByteBuffer b )
+	{
+		final int type = b.get();
+		if ( type <= 0 || type >= TYPES.length )
+			return false;
+		final int button = b.get();
+		final int clickCount = b.get();
+		final int flags = b.get() & 0xff;
+		final int mask = b.getInt();
+		final int keyCode = b.getInt();
+		final double x = b.getFloat();
+		final double y = b.getFloat();
+		final double dX = b.getFloat();
+		final double dY = b.getFloat();
+		b.getInt();
+		final long timestamp = b.getLong();
+
+		final boolean shift = ( flags & FLAG_SHIFT ) != 0;
+		final boolean ctrl = ( flags & FLAG_CTRL ) != 0;
+		final boolean alt = ( flags & FLAG_ALT ) != 0;
+		final boolean meta = ( flags & FLAG_META ) != 0;
+
+		final boolean inertia = ( flags & FLAG_INERTIA ) != 0;
+
+		final Event event;
+		final EventType< ? > eventType = TYPES[ type ];
+		if ( eventType.getSuperType() == ZoomEvent.ANY )
+		{
+			@SuppressWarnings( "unchecked" )
+			final EventType< ZoomEvent > zoomType = ( EventType< ZoomEvent > ) eventType;
+			event = new ZoomEvent( zoomType, x, y, x, y,
+					shift, ctrl, alt, meta,
+					false, inertia, dX, dY, null );
+		}
+		else if ( eventType.getSuperType() == RotateEvent.ANY )
+		{
+			@SuppressWarnings( "unchecked" )
+			final EventType< RotateEvent > rotateType = ( EventType< RotateEvent > ) eventType;
+			event = new RotateEvent( rotateType, x, y, x, y,
+					shift, ctrl, alt, meta,
+					false, inertia, dX, dY, null );
+		}
+		else if ( eventType.getSuperType() == SwipeEvent.ANY )
+		{
+			@SuppressWarnings( "unchecked" )
+			final EventType< SwipeEvent > swipeType = ( EventType< SwipeEvent > ) eventType;
+			event = new SwipeEvent( swipeType, x, y, x, y,
+					shift, ctrl, alt, meta,
+					false, clickCount, null );
+		}
+		else if ( eventType == ScrollEvent.SCROLL )
+		{
+			event = new ScrollEvent( ScrollEvent.SCROLL, x, y, x, y,
+					shift, ctrl, alt, meta,
+					false, inertia, dX, dY, dX, dY,
+					ScrollEvent.HorizontalTextScrollUnits.NONE, 0,
+					ScrollEvent.VerticalTextScrollUnits.NONE, 0,
+					0, null );
+		}
+		else if ( eventType.getSuperType() == KeyEvent.ANY )
+		{
+			@SuppressWarnings( "unchecked" )
+			final EventType< KeyEvent > keyType = ( EventType< KeyEvent > ) eventType;
+			final KeyCode code = JfxKeyCodes.fromAwt( keyCode );
+			event = new KeyEvent( keyType, KeyEvent.CHAR_UNDEFINED, code.getName(), code, shift, ctrl, alt, meta );
+		}
+		else
+		{
+			@SuppressWarnings( "unchecked" )
+			final EventType< MouseEvent > mouseType = ( EventType< MouseEvent > ) eventType;
+			final MouseButton[] buttons = MouseButton.values();
+			event = new MouseEvent( mouseType, x, y, x, y,
+					button >= 0 && button < buttons.length ? buttons[ button ] : MouseButton.NONE,
+					clickCount,
+					shift, ctrl, alt, meta,
+					( flags & FLAG_PRIMARY ) != 0,
+					( flags & FLAG_MIDDLE ) != 0,
+					( flags & FLAG_SECONDARY ) != 0,
+					false, false, clickCount > 0, null );
+		}
+
+		events.add( event );
+		timestamps.add( timestamp );
+		masks.add( mask );
+		return true;
+	}
+
+	/**
+	 * Get the recorded events, in order.
+	 */
+	public List< Event > events()
+	{
+		return Collections.unmodifiableList( events );
+	}
+
+	/**
+	 * Get the number of recorded events.
+	 */
+	public int size()
+	{
+		return events.size();
+	}
+
+	/**
+	 * Get the {@link System#nanoTime()} at which event {@code i} was
+	 * recorded.
+	 */
+	public long timestamp( final int i )
+	{
+		return timestamps.get( i );
+	}
+
+	/**
+	 * Get the modifier mask that the recording handler computed for event
+	 * {@code i}.
+	 */
+	public int mask( final int i )
+	{
+		return masks.get( i );
+	}
+
+	/**
+	 * Feed all events to {@code handler}, as fast as possible.
+	 * <p>
+	 * Multi-clicks are detected using the recorded timestamps, so they are the
+	 * same as in the recording.
+	 */
+	public void replay( final JfxMouseAndKeyHandler handler )
+	{
+		try
+		{
+			for ( int i = 0; i < events.size(); ++i )
+			{
+				handler.replayTime = timestamps.get( i );
+				handler.handle( events.get( i ) );
+			}
+		}
+		finally
+		{
+			handler.replayTime = JfxMouseAndKeyHandler.NO_TIME;
+		}
+	}
+
+	/**
+	 * Feed all events to {@code handler}, with the recorded timing, on the
+	 * calling thread. As in {@link #replay(JfxMouseAndKeyHandler)},
+	 * multi-clicks are detected using the recorded timestamps.
+	 * <p>
+	 * This method blocks the calling thread between events, so it must not be
+	 * called on the JavaFX application thread. Because the handler is called
+	 * on the calling thread, this is only suitable for handlers that are not
+	 * installed on a live scene, and whose behaviours do not touch the scene
+	 * graph (for example, in tests). To replay into a live scene, use
+	 * {@link #replay(JfxMouseAndKeyHandler, double, Executor)} with
+	 * {@code Platform::runLater}.
+	 *
+	 * @param speed
+	 *            playback speed relative to the recording; for example, 2 plays
+	 *            back twice as fast.
+	 */
+	public void replay( final JfxMouseAndKeyHandler handler, final double speed )
+	{
+		replay( handler, speed, Runnable::run );
+	}
+
+	/**
+	 * Feed all events to {@code handler}, with the recorded timing. Each
+	 * event is posted to {@code dispatcher} when it is due, for example
+	 * {@code Platform::runLater} to handle events on the JavaFX application
+	 * thread. The dispatcher must run the posted tasks in order.
+	 * <p>
+	 * This method waits between events on the calling thread, so it must not
+	 * be called on the dispatching thread (unless {@code dispatcher} runs tasks
+	 * directly, as {@link #replay(JfxMouseAndKeyHandler, double)} does). It
+	 * returns when the last event has been posted.
+	 *
+	 * @param speed
+	 *            playback speed relative to the recording; for example, 2 plays
+	 *            back twice as fast.
+	 * @param dispatcher
+	 *            runs the tasks that hand the events to {@code handler}.
+	 */
+	public void replay( final JfxMouseAndKeyHandler handler, final double speed, final Executor dispatcher )
+	{
+		if ( !( speed > 0 ) )
+			throw new IllegalArgumentException( "speed must be > 0" );
+		if ( events.isEmpty() )
+			return;
+		final long recordStart = timestamps.get( 0 );
+		final long replayStart = System.nanoTime();
+		for ( int i = 0; i < events.size(); ++i )
+		{
+			final long due = replayStart + ( long ) ( ( timestamps.get( i ) - recordStart ) / speed );
+			for ( long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime() )
+				LockSupport.parkNanos( wait );
+			final long timestamp = timestamps.get( i );
+			final Event event = events.get( i );
+			dispatcher.execute( () -> {
+				handler.replayTime = timestamp;
+				try
+				{
+					handler.handle( event );
+				}
+				finally
+				{
+					handler.replayTime = JfxMouseAndKeyHandler.NO_TIME;
+				}
+			} );
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Translation between JavaFX {@link KeyCode}s and AWT key codes (the
+ * {@code java.awt.event.KeyEvent.VK_*} constants that
+ * {@link org.scijava.ui.behaviour.InputTrigger} uses for pressed keys).
+ * <p>
+ * Both directions are table lookups. The tables are built once, when this
+ * class is loaded.
+ * <p>
+ * In addition, every AWT key code that a {@link KeyCode} translates to is
+ * assigned a dense bit index for {@link KeyBits}.
+ */
+public final class JfxKeyCodes
+{
+	/**
+	 * AWT key codes, indexed by {@link KeyCode#ordinal()}.
+	 */
+	private static final int[] awtKeyCodes;
+
+	/**
+	 * {@link KeyCode}s by AWT key code.
+	 */
+	private static final TIntObjectMap< KeyCode > keyCodes;
+
+	/**
+	 * {@link KeyBits} bit indices, indexed by {@link KeyCode#ordinal()}.
+	 */
+	private static final int[] bits;
+
+	/**
+	 * {@link KeyBits} bit indices by AWT key code.
+	 */
+	private static final TIntIntMap bitsByAwt;
+
+	/**
+	 * AWT key codes, indexed by {@link KeyBits} bit index.
+	 */
+	private static final int[] awtByBit;
+
+	static
+	{
+		/*
+		 * The key code accessor is called impl_getCode() on Java 8 and
+		 * getCode() on Java 9+. It is public in both cases, so we can look it
+		 * up without setAccessible(), and it is invoked only here to fill the
+		 * tables.
+		 */
+		Method getCode;
+		try
+		{
+			getCode = KeyCode.class.getMethod( "getCode" ); // Java 9+
+		}
+		catch ( final NoSuchMethodException e )
+		{
+			try
+			{
+				getCode = KeyCode.class.getMethod( "impl_getCode" ); // Java 8
+			}
+			catch ( final NoSuchMethodException ex )
+			{
+				throw new ExceptionInInitializerError( ex );
+			}
+		}
+
+		final KeyCode[] values = KeyCode.values();
+		awtKeyCodes = new int[ values.length ];
+		keyCodes = new TIntObjectHashMap<>( 2 * values.length );
+		try
+		{
+			for ( final KeyCode keyCode : values )
+			{
+				final int code = ( Integer ) getCode.invoke( keyCode );
+				awtKeyCodes[ keyCode.ordinal() ] = code;
+				if ( !keyCodes.containsKey( code ) )
+					keyCodes.put( code, keyCode );
+			}
+		}
+		catch ( final ReflectiveOperationException e )
+		{
+			throw new ExceptionInInitializerError( e );
+		}
+
+		/*
+		 * Assign bits in order of AWT key code. Should there ever be more
+		 * distinct codes than bits, the remaining codes share KeyBits.OTHER.
+		 */
+		final int[] codes = keyCodes.keys();
+		Arrays.sort( codes );
+		final int n = Math.min( codes.length, KeyBits.OTHER );
+		awtByBit = Arrays.copyOf( codes, n );
+		bitsByAwt = new TIntIntHashMap( 2 * n, 0.5f, -1, KeyBits.OTHER );
+		for ( int bit = 0; bit < n; ++bit )
+			bitsByAwt.put( codes[ bit ], bit );
+		bits = new int[ values.length ];
+		for ( final KeyCode keyCode : values )
+			bits[ keyCode.ordinal() ] = bitsByAwt.get( awtKeyCodes[ keyCode.ordinal() ] );
+	}
+
+	private JfxKeyCodes()
+	{}
+
+	/**
+	 * Get the AWT key code corresponding to a JavaFX {@link KeyCode}.
+	 *
+	 * @param keyCode
+	 *            JavaFX key code
+	 * @return AWT key code ({@code java.awt.event.KeyEvent.VK_*})
+	 */
+	public static int toAwt( final KeyCode keyCode )
+	{
+		return awtKeyCodes[ keyCode.ordinal() ];
+	}
+
+	/**
+	 * Get the JavaFX {@link KeyCode} corresponding to an AWT key code.
+	 *
+	 * @param awtKeyCode
+	 *            AWT key code ({@code java.awt.event.KeyEvent.VK_*})
+	 * @return JavaFX key code, or {@link KeyCode#UNDEFINED} if there is no
+	 *         corresponding {@link KeyCode}.
+	 */
+	public static KeyCode fromAwt( final int awtKeyCode )
+	{
+		final KeyCode keyCode = keyCodes.get( awtKeyCode );
+		return keyCode == null ? KeyCode.UNDEFINED : keyCode;
+	}
+
+	/**
+	 * Get the {@link KeyBits} bit index of a JavaFX {@link KeyCode}.
+	 */
+	static int toBit( final KeyCode keyCode )
+	{
+		return bits[ keyCode.ordinal() ];
+	}
+
+	/**
+	 * Get the {@link KeyBits} bit index of an AWT key code.
+	 *
+	 * @return bit index, or {@link KeyBits#OTHER} if the key code does not
+	 *         correspond to a {@link KeyCode}.
+	 */
+	static int awtToBit( final int awtKeyCode )
+	{
+		return bitsByAwt.get( awtKeyCode );
+	}
+
+	/**
+	 * Get the AWT key code for a {@link KeyBits} bit index (other than
+	 * {@link KeyBits#OTHER}).
+	 */
+	static int bitToAwt( final int bit )
+	{
+		return awtByBit[ bit ];
+	}
+}
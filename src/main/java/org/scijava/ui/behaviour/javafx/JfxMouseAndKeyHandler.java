@@ -28,24 +28,35 @@
  */
 package org.scijava.ui.behaviour.javafx;
 
-import gnu.trove.map.hash.TIntLongHashMap;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.input.GestureEvent;
 import javafx.scene.input.InputEvent;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
 import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
 import org.scijava.ui.behaviour.AbstractMouseAndKeyHandler;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.BehaviourMap;
 import org.scijava.ui.behaviour.ClickBehaviour;
 import org.scijava.ui.behaviour.DragBehaviour;
 import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
 import org.scijava.ui.behaviour.KeyPressedManager;
 import org.scijava.ui.behaviour.KeyPressedManager.KeyPressedReceiver;
 import org.scijava.ui.behaviour.ScrollBehaviour;
@@ -57,12 +68,68 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 	 * Which keys are currently pressed. This does not include modifier keys
 	 * Control, Shift, Alt, AltGr, Meta, Win.
 	 */
-	private final TIntSet pressedKeys = new TIntHashSet( 5, 0.5f, -1 );
+	private final KeyBits pressedKeys = new KeyBits();
 
 	/**
-	 * When keys where pressed
+	 * The {@link #pressedKeys} as AWT key codes, filled in only to be passed
+	 * to the {@link #keypressManager}.
 	 */
-	private final TIntLongHashMap keyPressTimes = new TIntLongHashMap( 100, 0.5f, -1, -1 );
+	private final TIntSet pressedKeySet = newPressedKeySet();
+
+	/**
+	 * Scratch set for key presses routed from a {@link KeyPressedReceiver}
+	 * that is not a {@link JfxMouseAndKeyHandler}.
+	 */
+	private final KeyBits routedKeys = new KeyBits();
+
+	/**
+	 * Recent key and mouse button presses, for multi-click detection.
+	 */
+	private final MultiClickCounter clickCounter = new MultiClickCounter();
+
+	/**
+	 * Maximum time between the presses of a multi-click.
+	 */
+	private long multiClickIntervalNanos = TimeUnit.MILLISECONDS.toNanos( DOUBLE_CLICK_INTERVAL );
+
+	/**
+	 * Click count of the last mouse button press (1 for a single click, 2 for
+	 * a double-click, etc.).
+	 */
+	private int buttonClickCount = 0;
+
+	/**
+	 * Mouse button presses that are further apart than this (in pixels, in
+	 * either direction) do not form a multi-click.
+	 */
+	private static final double MULTI_CLICK_TOLERANCE = 5;
+
+	/**
+	 * Coordinates of the last mouse button press.
+	 */
+	private double lastPressX = Double.NaN;
+
+	private double lastPressY = Double.NaN;
+
+	/**
+	 * Click count of the last key press, or 0 if it was an auto-repeat.
+	 */
+	private int keyClickCount = 0;
+
+	/**
+	 * Required click counts by behaviour name, see
+	 * {@link #setClickCount(String, int)}.
+	 */
+	private final HashMap< String, Integer > clickCounts = new HashMap<>();
+
+	static final long NO_TIME = Long.MIN_VALUE;
+
+	/**
+	 * If not {@link #NO_TIME}, the time to use for the event that is
+	 * currently being handled, instead of {@link System#nanoTime()}. Set by
+	 * {@link InputReplayer} to the recorded time.
+	 */
+	long replayTime = NO_TIME;
 
 	/**
 	 * Whether the WINDOWS key is currently pressed.
@@ -70,134 +137,2033 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 	private boolean winPressed = false;
 
 	/**
-	 * Whether the ALT_GRAPH key is currently pressed.
+	 * Whether the ALT_GRAPH key is currently pressed.
+	 */
+	private boolean altGraphPressed = false;
+
+	/**
+	 * The current mouse coordinates, updated through {@link #mouseMoved(MouseEvent)}.
+	 */
+	private double mouseX;
+
+	/**
+	 * The current mouse coordinates, updated through {@link #mouseMoved(MouseEvent)}.
+	 */
+	private double mouseY;
+
+	/**
+	 * Active {@link DragBehaviour}s initiated by mouse button press.
+	 */
+	private final ActiveDrags activeButtonDrags = new ActiveDrags();
+
+	/**
+	 * Active {@link DragBehaviour}s initiated by key press.
+	 */
+	private final ActiveDrags activeKeyDrags = new ActiveDrags();
+
+	/**
+	 * Button-triggered {@link DragBehaviour}s that matched a mouse press, but
+	 * have not been initialized yet, because the pointer has not moved beyond
+	 * the drag threshold. The position of the press is stored as their last
+	 * position.
+	 */
+	private final ActiveDrags pendingButtonDrags = new ActiveDrags();
+
+	/**
+	 * See {@link #setDragThreshold(double)}.
+	 */
+	private double dragThreshold = 0;
+
+	/**
+	 * See {@link #setDragDelay(long)}.
+	 */
+	private long dragDelayNanos = 0;
+
+	/**
+	 * When the mouse button that started the {@link #pendingButtonDrags} was
+	 * pressed.
+	 */
+	private long dragPressTime;
+
+	/**
+	 * Whether {@code drag()} calls are coalesced to at most one per frame.
+	 */
+	private boolean coalesceDrags = false;
+
+	/**
+	 * Whether the mouse was dragged since {@link #activeButtonDrags} were last
+	 * notified (only used if {@link #coalesceDrags} is set).
+	 */
+	private boolean buttonDragPending = false;
+
+	/**
+	 * Whether the mouse was moved since {@link #activeKeyDrags} were last
+	 * notified (only used if {@link #coalesceDrags} is set).
+	 */
+	private boolean keyDragPending = false;
+
+	/**
+	 * Whether {@code drag()} calls are skipped if the position has not changed
+	 * since the last call.
+	 */
+	private boolean skipDuplicateDrags = false;
+
+	/**
+	 * How to handle inertia {@link ScrollEvent}s, i.e., scroll events that are
+	 * generated by the system after the user lifted their fingers from a
+	 * touchpad.
+	 */
+	public enum InertiaPolicy
+	{
+		/**
+		 * Inertia scroll events are handled like any other scroll event.
+		 */
+		DELIVER,
+
+		/**
+		 * Only every n-th inertia scroll event is delivered, carrying the sum
+		 * of the deltas of the preceding n events.
+		 *
+		 * @see #setScrollInertiaDecimation(int)
+		 */
+		DECIMATE,
+
+		/**
+		 * Inertia scroll events are ignored.
+		 */
+		DROP
+	}
+
+	/**
+	 * Whether scroll deltas are summed up and delivered once per frame.
+	 */
+	private boolean accumulateScroll = false;
+
+	private InertiaPolicy inertiaPolicy = InertiaPolicy.DELIVER;
+
+	private int inertiaDecimation = 4;
+
+	/**
+	 * Scroll deltas summed up per modifier mask.
+	 */
+	private final ArrayList< ScrollAccumulator > scrollAccumulators = new ArrayList<>();
+
+	/**
+	 * Whether any of the {@link #scrollAccumulators} has a pending scroll.
+	 */
+	private boolean scrollPending = false;
+
+	/**
+	 * How to handle key auto-repeat, i.e., repeated {@code KEY_PRESSED} events
+	 * for a key that is held down.
+	 * <p>
+	 * Repeats are detected as presses of a key that is already pressed. They
+	 * never re-initialize active key-triggered {@link DragBehaviour}s, and are
+	 * never double-clicks. The policy determines how key-triggered
+	 * {@link ClickBehaviour}s react to them.
+	 */
+	public enum KeyRepeatPolicy
+	{
+		/**
+		 * Each repeat clicks.
+		 */
+		DELIVER,
+
+		/**
+		 * Repeats are ignored. Only the initial press clicks.
+		 */
+		IGNORE,
+
+		/**
+		 * Repeats click at most once per frame.
+		 */
+		ONCE_PER_FRAME,
+
+		/**
+		 * Repeats click at most once per repeat interval.
+		 *
+		 * @see #setKeyRepeatInterval(long)
+		 */
+		FIXED_RATE
+	}
+
+	private KeyRepeatPolicy defaultKeyRepeatPolicy = KeyRepeatPolicy.DELIVER;
+
+	/**
+	 * {@link KeyRepeatPolicy} by behaviour name, overriding
+	 * {@link #defaultKeyRepeatPolicy}.
+	 */
+	private final HashMap< String, KeyRepeatPolicy > keyRepeatPolicies = new HashMap<>();
+
+	private long keyRepeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+	/**
+	 * Whether the key press that is currently being handled is an
+	 * auto-repeat.
+	 */
+	private boolean keyRepeat = false;
+
+	private final KeyRepeats keyRepeats = new KeyRepeats();
+
+	/**
+	 * Hold durations (in nanoseconds) by behaviour name, see
+	 * {@link #setHoldDuration(String, long)}.
+	 */
+	private final HashMap< String, Long > holdDurations = new HashMap<>();
+
+	/**
+	 * Reusable {@link Hold} deadlines, by binding.
+	 */
+	private final IdentityHashMap< Binding< ClickBehaviour >, Hold > holds = new IdentityHashMap<>();
+
+	/**
+	 * Holds that are armed by the currently pressed keys.
+	 */
+	private final ArrayList< Hold > armedKeyHolds = new ArrayList<>();
+
+	/**
+	 * Holds that are armed by the currently pressed mouse buttons.
+	 */
+	private final ArrayList< Hold > armedButtonHolds = new ArrayList<>();
+
+	/**
+	 * Timer for {@link Hold}s. Initialized to {@link HoldTimer#shared()} when
+	 * the first hold is armed.
+	 */
+	private HoldTimer holdTimer = null;
+
+	/**
+	 * The trie that {@link #sequenceCursor} points into. Multi-stroke key
+	 * sequences (see {@link #addKeySequence(String, String)}) are compiled
+	 * with the other bindings, so this is the trie of some
+	 * {@link CompiledBindings} snapshot.
+	 */
+	private KeySequences.Node sequenceRoot = KeySequences.Node.EMPTY;
+
+	/**
+	 * The prefix of a key sequence that has been typed so far. (The root of
+	 * the trie if none.)
+	 */
+	private KeySequences.Node sequenceCursor = KeySequences.Node.EMPTY;
+
+	/**
+	 * When the last step of the current prefix was typed.
+	 */
+	private long sequenceTime;
+
+	/**
+	 * The key whose last press was taken by a key sequence (as a step, the
+	 * last step, or an abort), until it is released. Its auto-repeats are
+	 * swallowed, so that holding the last step of a sequence does not
+	 * trigger ordinary key bindings. {@code null} if none.
+	 */
+	private KeyCode sequenceKey = null;
+
+	private long keySequenceTimeoutNanos = TimeUnit.SECONDS.toNanos( 2 );
+
+	/**
+	 * Region-scoped behaviours, or {@code null}.
+	 */
+	private BehaviourRegions regions = null;
+
+	/**
+	 * Whether events that trigger a behaviour are consumed, unless overridden
+	 * in {@link #consumePolicies}.
+	 */
+	private boolean consumeEvents = false;
+
+	/**
+	 * Whether events that trigger a behaviour are consumed, by behaviour name.
+	 */
+	private final HashMap< String, Boolean > consumePolicies = new HashMap<>();
+
+	/**
+	 * Whether the event that is currently being dispatched should be
+	 * consumed.
+	 */
+	private boolean consume = false;
+
+	/**
+	 * Whether zoom and rotation gestures are merged and delivered once per
+	 * frame.
+	 */
+	private boolean coalesceGestures = true;
+
+	/**
+	 * Zoom factors and rotation angles merged per modifier mask.
+	 */
+	private final ArrayList< GestureAccumulator > gestureAccumulators = new ArrayList<>();
+
+	/**
+	 * Whether any of the {@link #gestureAccumulators} has a pending zoom or
+	 * rotation.
+	 */
+	private boolean gesturePending = false;
+
+	/**
+	 * Whether a zoom gesture is in progress (between
+	 * {@link ZoomEvent#ZOOM_STARTED} and {@link ZoomEvent#ZOOM_FINISHED}).
+	 */
+	private boolean zooming = false;
+
+	/**
+	 * Whether a rotation gesture is in progress (between
+	 * {@link RotateEvent#ROTATION_STARTED} and
+	 * {@link RotateEvent#ROTATION_FINISHED}).
+	 */
+	private boolean rotating = false;
+
+	/**
+	 * Delivers pending coalesced drags, accumulated scrolls, and merged
+	 * gestures once per frame. Created when first needed, and running only
+	 * while there is something to deliver.
+	 */
+	private PulseTimer pulse = null;
+
+	private boolean pulseRunning = false;
+
+	/**
+	 * Receives timing information, or {@code null} if dispatch is not
+	 * instrumented.
+	 */
+	private DispatchListener dispatchListener = null;
+
+	/**
+	 * Time spent matching behaviours for the current event. Only maintained if
+	 * {@link #dispatchListener} is set.
+	 */
+	private long matchNanos;
+
+	/**
+	 * Records handled events, or {@code null}.
+	 */
+	private InputRecorder inputRecorder = null;
+
+	/**
+	 * The maps this handler dispatches to, and their compiled bindings. May
+	 * be shared with other handlers, see {@link #setBindings(SharedBindings)}.
+	 */
+	private SharedBindings bindings = new SharedBindings( null, null );
+
+	/**
+	 * The compiled bindings used for the event that is currently being
+	 * handled. This is {@link SharedBindings#current()}, read once per event.
+	 */
+	private CompiledBindings current = CompiledBindings.EMPTY;
+
+	/**
+	 * The bindings that the currently registered filters were chosen for (see
+	 * {@link #updateFilters(CompiledBindings)}), or {@code null}.
+	 */
+	private CompiledBindings filtered = null;
+
+	/**
+	 * Registered with {@link #bindings} while this handler is installed, to
+	 * update the filters when the bindings are recompiled.
+	 */
+	private final Runnable bindingsCompiled = this::bindingsCompiled;
+
+	/**
+	 * The {@link Scene} or {@link Node} this handler is installed on (see
+	 * {@link #install(Scene)}, {@link #install(Node)}), or {@code null}.
+	 */
+	private Object installedOn = null;
+
+	/**
+	 * Event types for which filters are registered whenever this handler is
+	 * installed. Besides being needed to keep track of pressed keys and
+	 * buttons, these also serve to notice binding changes (which may require
+	 * filters for additional event types).
+	 */
+	private static final EventType< ? >[] PERMANENT_FILTERS = {
+			MouseEvent.MOUSE_PRESSED,
+			MouseEvent.MOUSE_RELEASED,
+			MouseEvent.MOUSE_ENTERED,
+			MouseEvent.MOUSE_EXITED,
+			KeyEvent.KEY_PRESSED,
+			KeyEvent.KEY_RELEASED };
+
+	/*
+	 * Whether filters for the frequent event types are currently registered.
+	 */
+
+	private boolean filterMouseMoved = false;
+
+	private boolean filterMouseDragged = false;
+
+	private boolean filterMouseClicked = false;
+
+	private boolean filterScroll = false;
+
+	private boolean filterZoom = false;
+
+	private boolean filterRotate = false;
+
+	private boolean filterSwipe = false;
+
+	/**
+	 * Set the {@link InputTriggerMap}. If this handler shares its bindings
+	 * with other handlers (see {@link #setBindings(SharedBindings)}), the map
+	 * is replaced for all of them (see
+	 * {@link SharedBindings#setInputMap(InputTriggerMap)}). Active drags
+	 * continue if the new map binds them in the same way.
+	 */
+	@Override
+	public void setInputMap( final InputTriggerMap inputMap )
+	{
+		super.setInputMap( inputMap );
+		bindings.setInputMap( inputMap );
+	}
+
+	/**
+	 * Set the {@link BehaviourMap}. If this handler shares its bindings with
+	 * other handlers (see {@link #setBindings(SharedBindings)}), the map is
+	 * replaced for all of them (see
+	 * {@link SharedBindings#setBehaviourMap(BehaviourMap)}). Active drags
+	 * continue if the new map binds them in the same way.
+	 */
+	@Override
+	public void setBehaviourMap( final BehaviourMap behaviourMap )
+	{
+		super.setBehaviourMap( behaviourMap );
+		bindings.setBehaviourMap( behaviourMap );
+	}
+
+	/**
+	 * Use the maps and compiled bindings of {@code bindings}, which may be
+	 * shared with other handlers. Bindings are then compiled once for all
+	 * these handlers, instead of once per handler.
+	 */
+	public void setBindings( final SharedBindings bindings )
+	{
+		if ( bindings.getInputMap() != null )
+			super.setInputMap( bindings.getInputMap() );
+		if ( bindings.getBehaviourMap() != null )
+			super.setBehaviourMap( bindings.getBehaviourMap() );
+		if ( installedOn != null )
+		{
+			this.bindings.removeCompiledListener( bindingsCompiled );
+			bindings.addCompiledListener( bindingsCompiled );
+		}
+		this.bindings = bindings;
+		bindings.refresh();
+		bindingsCompiled();
+	}
+
+	public SharedBindings getBindings()
+	{
+		return bindings;
+	}
+
+	/**
+	 * Make sure that the bindings used for the current event are up to date
+	 * with the {@link InputTriggerMap} and {@link BehaviourMap}.
+	 * <p>
+	 * This compares the versions ({@code modCount()}) of the maps with those
+	 * of the compiled bindings, and recompiles if necessary (see
+	 * {@link SharedBindings#refresh()}). It is called for events that start a
+	 * gesture (mouse and key presses, scrolls, and the start of touch
+	 * gestures). Other events, in particular mouse moves and drags, only read
+	 * the compiled bindings.
+	 * <p>
+	 * Note that the internal behaviour lists of
+	 * {@link AbstractMouseAndKeyHandler} ({@code buttonDrags} etc.) are not
+	 * used and not maintained by this class.
+	 */
+	@Override
+	protected void update()
+	{
+		final CompiledBindings c = bindings.get();
+		current = c;
+		if ( c != filtered )
+			updateFilters( c );
+	}
+
+	/**
+	 * Bring the compiled bindings up to date with the {@link InputTriggerMap}
+	 * and {@link BehaviourMap}, if they have been modified.
+	 *
+	 * @see SharedBindings#refresh()
+	 */
+	public void refresh()
+	{
+		bindings.refresh();
+		bindingsCompiled();
+	}
+
+	/**
+	 * Called by {@link #bindings} when it has compiled new bindings, on the
+	 * compiling thread. Updates the filters on the JavaFX application thread.
+	 */
+	private void bindingsCompiled()
+	{
+		if ( installedOn == null )
+			return;
+		if ( Platform.isFxApplicationThread() )
+			syncFilters();
+		else
+			Platform.runLater( this::syncFilters );
+	}
+
+	/**
+	 * Update the filters if the most recently compiled bindings are not those
+	 * they were chosen for. Must be called on the JavaFX application thread.
+	 */
+	private void syncFilters()
+	{
+		final CompiledBindings c = bindings.current();
+		if ( c != filtered )
+			updateFilters( c );
+	}
+
+	/**
+	 * Install this handler as an event filter on {@code scene}.
+	 * <p>
+	 * In contrast to {@code scene.addEventFilter(Event.ANY, handler)}, this
+	 * registers filters only for the event types that the current bindings
+	 * need. Filters are added and removed when the bindings change. For
+	 * example, {@code MOUSE_MOVED} is only filtered if there are key-triggered
+	 * behaviours (which need the mouse position), and {@code SCROLL} only if
+	 * there are scroll behaviours.
+	 * <p>
+	 * Must be called on the JavaFX application thread.
+	 *
+	 * @param scene
+	 *            the scene to install on.
+	 * @throws IllegalStateException
+	 *             if this handler is already installed.
+	 */
+	public void install( final Scene scene )
+	{
+		installOn( scene );
+	}
+
+	/**
+	 * Install this handler as an event filter on {@code node}.
+	 *
+	 * @param node
+	 *            the node to install on.
+	 * @throws IllegalStateException
+	 *             if this handler is already installed.
+	 * @see #install(Scene)
+	 */
+	public void install( final Node node )
+	{
+		installOn( node );
+	}
+
+	/**
+	 * Remove all event filters registered by {@link #install(Scene)} or
+	 * {@link #install(Node)}. Does nothing if this handler is not installed.
+	 */
+	public void uninstall()
+	{
+		if ( installedOn == null )
+			return;
+
+		for ( final EventType< ? > type : PERMANENT_FILTERS )
+			removeFilter( type );
+		filterMouseMoved = setFilter( MouseEvent.MOUSE_MOVED, filterMouseMoved, false );
+		filterMouseDragged = setFilter( MouseEvent.MOUSE_DRAGGED, filterMouseDragged, false );
+		filterMouseClicked = setFilter( MouseEvent.MOUSE_CLICKED, filterMouseClicked, false );
+		filterScroll = setFilter( ScrollEvent.SCROLL, filterScroll, false );
+		filterZoom = setFilter( ZoomEvent.ANY, filterZoom, false );
+		filterRotate = setFilter( RotateEvent.ANY, filterRotate, false );
+		filterSwipe = setFilter( SwipeEvent.ANY, filterSwipe, false );
+		bindings.removeCompiledListener( bindingsCompiled );
+		installedOn = null;
+		filtered = null;
+		cancelHolds( armedKeyHolds );
+		cancelHolds( armedButtonHolds );
+		zooming = false;
+		rotating = false;
+	}
+
+	private void installOn( final Object target )
+	{
+		if ( installedOn != null )
+			throw new IllegalStateException( "JfxMouseAndKeyHandler is already installed" );
+
+		installedOn = target;
+		bindings.addCompiledListener( bindingsCompiled );
+		for ( final EventType< ? > type : PERMANENT_FILTERS )
+			addFilter( type );
+		update();
+		updateFilters( current );
+	}
+
+	/**
+	 * Register or unregister filters for frequent event types, depending on
+	 * whether the bindings {@code c} need them. This is called whenever a new
+	 * snapshot is compiled (see {@link #bindingsCompiled()}), and whenever an
+	 * event is handled with a snapshot that the filters were not chosen for.
+	 */
+	private void updateFilters( final CompiledBindings c )
+	{
+		if ( installedOn == null )
+			return;
+
+		filtered = c;
+		final boolean keyBindings = !c.keyDrags.isEmpty() || !c.keyClicks.isEmpty();
+		filterMouseMoved = setFilter( MouseEvent.MOUSE_MOVED, filterMouseMoved, keyBindings );
+		final boolean regionBindings = regions != null;
+		filterMouseDragged = setFilter( MouseEvent.MOUSE_DRAGGED, filterMouseDragged, keyBindings || regionBindings || !c.buttonDrags.isEmpty() );
+		filterMouseClicked = setFilter( MouseEvent.MOUSE_CLICKED, filterMouseClicked, regionBindings || !c.buttonClicks.isEmpty() );
+		filterScroll = setFilter( ScrollEvent.SCROLL, filterScroll, regionBindings || !c.scrolls.isEmpty() );
+		filterZoom = setFilter( ZoomEvent.ANY, filterZoom, !c.zooms.isEmpty() );
+		filterRotate = setFilter( RotateEvent.ANY, filterRotate, !c.rotates.isEmpty() );
+		filterSwipe = setFilter( SwipeEvent.ANY, filterSwipe, !c.swipes.isEmpty() );
+
+		// without the filters, the end of a gesture would not be seen
+		zooming &= filterZoom;
+		rotating &= filterRotate;
+	}
+
+	private boolean setFilter( final EventType< ? > type, final boolean registered, final boolean required )
+	{
+		if ( required && !registered )
+			addFilter( type );
+		else if ( !required && registered )
+			removeFilter( type );
+		return required;
+	}
+
+	private < T extends Event > void addFilter( final EventType< T > type )
+	{
+		if ( installedOn instanceof Scene )
+			( ( Scene ) installedOn ).addEventFilter( type, this );
+		else
+			( ( Node ) installedOn ).addEventFilter( type, this );
+	}
+
+	private < T extends Event > void removeFilter( final EventType< T > type )
+	{
+		if ( installedOn instanceof Scene )
+			( ( Scene ) installedOn ).removeEventFilter( type, this );
+		else
+			( ( Node ) installedOn ).removeEventFilter( type, this );
+	}
+
+	@Override
+	public void handle( final Event event )
+	{
+		if ( event instanceof InputEvent )
+		{
+			final EventType< ? extends Event > type = event.getEventType();
+			if ( type == MouseEvent.MOUSE_PRESSED )
+				countButtonPress( ( MouseEvent ) event );
+
+			final InputRecorder recorder = inputRecorder;
+			if ( recorder != null )
+				recorder.record( event, getMask( event ) );
+
+			/*
+			 * Whether the maps have been modified is only checked when a
+			 * gesture starts, so that mouse moves and drags, which make up
+			 * most of the event stream, do not pay for it, and so that a
+			 * gesture is handled with the same bindings throughout.
+			 */
+			final boolean check = startsGesture( type );
+
+			final DispatchListener listener = dispatchListener;
+			if ( listener == null )
+			{
+				useBindings( check );
+				dispatch( event );
+			}
+			else
+			{
+				final long t0 = System.nanoTime();
+				useBindings( check );
+				final long t1 = System.nanoTime();
+				matchNanos = 0;
+				dispatch( event );
+				final long t2 = System.nanoTime();
+				listener.eventDispatched( type, t1 - t0, matchNanos, t2 - t1 );
+			}
+		}
+	}
+
+	private static boolean startsGesture( final EventType< ? extends Event > type )
+	{
+		return type == MouseEvent.MOUSE_PRESSED
+				|| type == KeyEvent.KEY_PRESSED
+				|| type == ScrollEvent.SCROLL
+				|| type == ZoomEvent.ZOOM_STARTED
+				|| type == RotateEvent.ROTATION_STARTED
+				|| type.getSuperType() == SwipeEvent.ANY;
+	}
+
+	/**
+	 * Use the compiled bindings for the current event: up-to-date bindings
+	 * if {@code check} (see {@link #update()}), or else the most recently
+	 * compiled bindings, without checking the maps for modifications.
+	 */
+	private void useBindings( final boolean check )
+	{
+		if ( check )
+			update();
+		else
+		{
+			final CompiledBindings c = bindings.current();
+			current = c;
+			if ( c != filtered )
+				updateFilters( c );
+		}
+	}
+
+	private void dispatch( final Event event )
+	{
+		consume = false;
+		dispatchByType( event );
+		if ( consume )
+			event.consume();
+	}
+
+	private void dispatchByType( final Event event )
+	{
+		if ( event instanceof MouseEvent )
+		{
+			final EventType< ? extends Event > type = event.getEventType();
+			if ( type == MouseEvent.MOUSE_PRESSED )
+				mousePressed( ( MouseEvent ) event );
+			if ( type == MouseEvent.MOUSE_DRAGGED )
+				mouseDragged( ( MouseEvent ) event );
+			else if ( type == MouseEvent.MOUSE_RELEASED )
+				mouseReleased( ( MouseEvent ) event );
+			else if ( type == MouseEvent.MOUSE_CLICKED )
+				mouseClicked( ( MouseEvent ) event );
+			else if ( type == MouseEvent.MOUSE_MOVED )
+				mouseMoved( ( MouseEvent ) event );
+			else if ( type == MouseEvent.MOUSE_ENTERED )
+				mouseEntered();
+			else if ( type == MouseEvent.MOUSE_EXITED )
+				mouseExited();
+		}
+		else if ( event instanceof KeyEvent )
+		{
+			final EventType< ? extends Event > type = event.getEventType();
+			if ( type == KeyEvent.KEY_PRESSED )
+				keyPressed( ( KeyEvent ) event );
+			else if ( type == KeyEvent.KEY_RELEASED )
+				keyReleased( ( KeyEvent ) event );
+			// TODO: Use KeyEvent.KEY_TYPED for InputMap/ActionMap equivalent?
+		}
+		else if ( event instanceof ScrollEvent )
+		{
+			scrolled( ( ScrollEvent ) event );
+		}
+		else if ( event instanceof ZoomEvent )
+		{
+			zoomed( ( ZoomEvent ) event );
+		}
+		else if ( event instanceof RotateEvent )
+		{
+			rotated( ( RotateEvent ) event );
+		}
+		else if ( event instanceof SwipeEvent )
+		{
+			swiped( ( SwipeEvent ) event );
+		}
+	}
+
+	public void scrolled( final ScrollEvent e )
+	{
+		final boolean inertia = e.isInertia();
+		if ( inertia && inertiaPolicy == InertiaPolicy.DROP )
+			return;
+
+		/*
+		 * Touch screens and trackpads report the movement of the fingers
+		 * during a pinch or rotation as scrolls, too. These belong to the
+		 * gesture, and are not dispatched to ScrollBehaviours.
+		 */
+		if ( e.getTouchCount() > 0 && ( zooming || rotating ) )
+			return;
+
+		final int mask = getMask( e );
+		final double x = e.getX();
+		final double y = e.getY();
+
+		double dX = e.getDeltaX();
+		double dY = e.getDeltaY();
+
+		if ( inertiaPolicy == InertiaPolicy.DECIMATE )
+		{
+			final ScrollAccumulator acc = scrollAccumulator( mask );
+			if ( inertia )
+			{
+				acc.inertiaDX += dX;
+				acc.inertiaDY += dY;
+				if ( ++acc.inertiaCount < inertiaDecimation )
+					return;
+			}
+			dX += acc.inertiaDX;
+			dY += acc.inertiaDY;
+			acc.clearInertia();
+		}
+
+		final BehaviourRegions.Region region = regions == null ? null : regions.hit( x, y, BehaviourRegions.SCROLL, mask, mask, pressedKeys );
+		if ( region != null )
+		{
+			// scrolls over regions are not accumulated
+			final boolean isHorizontal = Math.abs( dX ) > Math.abs( dY );
+			final double amount = isHorizontal ? dX : dY;
+			final Binding< ScrollBehaviour >[] scrolls = region.bindings( BehaviourRegions.SCROLL );
+			for ( final Binding< ScrollBehaviour > scroll : scrolls )
+			{
+				if ( scroll.matches( mask, pressedKeys ) )
+				{
+					scroll( scroll, amount, isHorizontal, x, y );
+					consume |= consumeEvents;
+				}
+			}
+		}
+		else if ( accumulateScroll )
+		{
+			scrollAccumulator( mask ).add( dX, dY, x, y );
+			scrollPending = true;
+			startPulse();
+			for ( final Binding< ScrollBehaviour > scroll : match( current.scrolls, mask, mask, pressedKeys ) )
+				consume |= consumes( scroll );
+		}
+		else
+		{
+			final boolean isHorizontal = Math.abs( dX ) > Math.abs( dY );
+			final double amount = isHorizontal ? dX : dY;
+
+			for ( final Binding< ScrollBehaviour > scroll : match( current.scrolls, mask, mask, pressedKeys ) )
+			{
+				scroll( scroll, amount, isHorizontal, x, y );
+				consume |= consumes( scroll );
+			}
+		}
+	}
+
+	private ScrollAccumulator scrollAccumulator( final int mask )
+	{
+		for ( int i = 0; i < scrollAccumulators.size(); ++i )
+		{
+			final ScrollAccumulator acc = scrollAccumulators.get( i );
+			if ( acc.mask == mask )
+				return acc;
+		}
+		final ScrollAccumulator acc = new ScrollAccumulator( mask );
+		scrollAccumulators.add( acc );
+		return acc;
+	}
+
+	/**
+	 * Deliver accumulated scroll deltas. For each modifier mask, matching
+	 * {@link ScrollBehaviour}s receive one vertical and one horizontal scroll
+	 * (if the respective delta is non-zero).
+	 */
+	private void flushPendingScrolls()
+	{
+		if ( !scrollPending )
+			return;
+		scrollPending = false;
+
+		for ( int i = 0; i < scrollAccumulators.size(); ++i )
+		{
+			final ScrollAccumulator acc = scrollAccumulators.get( i );
+			if ( !acc.pending )
+				continue;
+			final double dX = acc.dX;
+			final double dY = acc.dY;
+			acc.clear();
+			for ( final Binding< ScrollBehaviour > scroll : match( current.scrolls, acc.mask, acc.mask, pressedKeys ) )
+			{
+				if ( dY != 0 )
+					scroll( scroll, dY, false, acc.x, acc.y );
+				if ( dX != 0 )
+					scroll( scroll, dX, true, acc.x, acc.y );
+			}
+		}
+	}
+
+	/**
+	 * Set whether scroll deltas should be summed up and delivered once per
+	 * frame.
+	 * <p>
+	 * If enabled, {@link ScrollEvent}s are accumulated per modifier mask,
+	 * separately for the horizontal and vertical axis. Once per JavaFX pulse,
+	 * matching {@link ScrollBehaviour}s receive one {@code scroll()} call for
+	 * each axis with non-zero accumulated delta. (If disabled, each event
+	 * results in one {@code scroll()} call for the dominant axis only.)
+	 * <p>
+	 * Pending scrolls are delivered before any key or mouse button press or
+	 * release is handled.
+	 * <p>
+	 * Must be called on the JavaFX application thread.
+	 *
+	 * @param accumulate
+	 *            whether to accumulate scroll deltas.
+	 */
+	public void setAccumulateScroll( final boolean accumulate )
+	{
+		if ( !accumulate )
+			flushPendingScrolls();
+		else
+			createPulse();
+		accumulateScroll = accumulate;
+	}
+
+	/**
+	 * Set how inertia {@link ScrollEvent}s are handled. Default is
+	 * {@link InertiaPolicy#DELIVER}.
+	 *
+	 * @param policy
+	 *            inertia policy
+	 */
+	public void setScrollInertiaPolicy( final InertiaPolicy policy )
+	{
+		inertiaPolicy = policy;
+		for ( final ScrollAccumulator acc : scrollAccumulators )
+			acc.clearInertia();
+	}
+
+	/**
+	 * Set how many inertia {@link ScrollEvent}s are summed up into one, if
+	 * the {@link InertiaPolicy#DECIMATE} policy is used. Default is 4.
+	 *
+	 * @param n
+	 *            decimation factor
+	 */
+	public void setScrollInertiaDecimation( final int n )
+	{
+		if ( n < 1 )
+			throw new IllegalArgumentException( "decimation factor must be >= 1" );
+		inertiaDecimation = n;
+	}
+
+	private void zoomed( final ZoomEvent e )
+	{
+		final EventType< ZoomEvent > type = e.getEventType();
+		if ( type == ZoomEvent.ZOOM_STARTED )
+			zooming = true;
+		else if ( type == ZoomEvent.ZOOM_FINISHED )
+			zooming = false;
+		final int mask = getMask( e );
+		final double x = e.getX();
+		final double y = e.getY();
+		final double factor = e.getZoomFactor();
+
+		if ( coalesceGestures )
+		{
+			if ( type == ZoomEvent.ZOOM && factor != 1 )
+			{
+				gestureAccumulator( mask ).zoom( factor, x, y );
+				gesturePending = true;
+				createPulse();
+				startPulse();
+			}
+			else if ( type == ZoomEvent.ZOOM_FINISHED )
+				flushPendingGestures();
+		}
+		else if ( type == ZoomEvent.ZOOM && factor != 1 )
+		{
+			for ( final Binding< ZoomBehaviour > zoom : match( current.zooms, mask, mask, pressedKeys ) )
+				zoom( zoom, factor, x, y );
+		}
+	}
+
+	private void rotated( final RotateEvent e )
+	{
+		final EventType< RotateEvent > type = e.getEventType();
+		if ( type == RotateEvent.ROTATION_STARTED )
+			rotating = true;
+		else if ( type == RotateEvent.ROTATION_FINISHED )
+			rotating = false;
+		final int mask = getMask( e );
+		final double x = e.getX();
+		final double y = e.getY();
+		final double angle = e.getAngle();
+
+		if ( coalesceGestures )
+		{
+			if ( type == RotateEvent.ROTATE && angle != 0 )
+			{
+				gestureAccumulator( mask ).rotate( angle, x, y );
+				gesturePending = true;
+				createPulse();
+				startPulse();
+			}
+			else if ( type == RotateEvent.ROTATION_FINISHED )
+				flushPendingGestures();
+		}
+		else if ( type == RotateEvent.ROTATE && angle != 0 )
+		{
+			for ( final Binding< RotateBehaviour > rotate : match( current.rotates, mask, mask, pressedKeys ) )
+				rotate( rotate, angle, x, y );
+		}
+	}
+
+	private void swiped( final SwipeEvent e )
+	{
+		final EventType< SwipeEvent > type = e.getEventType();
+		final SwipeBehaviour.Direction direction;
+		if ( type == SwipeEvent.SWIPE_LEFT )
+			direction = SwipeBehaviour.Direction.LEFT;
+		else if ( type == SwipeEvent.SWIPE_RIGHT )
+			direction = SwipeBehaviour.Direction.RIGHT;
+		else if ( type == SwipeEvent.SWIPE_UP )
+			direction = SwipeBehaviour.Direction.UP;
+		else if ( type == SwipeEvent.SWIPE_DOWN )
+			direction = SwipeBehaviour.Direction.DOWN;
+		else
+			return;
+
+		final int mask = getMask( e );
+		final double x = e.getX();
+		final double y = e.getY();
+
+		flushPending();
+		for ( final Binding< SwipeBehaviour > swipe : match( current.swipes, mask, mask, pressedKeys ) )
+			swipe( swipe, direction, e.getTouchCount(), x, y );
+	}
+
+	private GestureAccumulator gestureAccumulator( final int mask )
+	{
+		for ( int i = 0; i < gestureAccumulators.size(); ++i )
+		{
+			final GestureAccumulator acc = gestureAccumulators.get( i );
+			if ( acc.mask == mask )
+				return acc;
+		}
+		final GestureAccumulator acc = new GestureAccumulator( mask );
+		gestureAccumulators.add( acc );
+		return acc;
+	}
+
+	/**
+	 * Deliver merged zoom and rotation gestures. For each modifier mask,
+	 * matching {@link ZoomBehaviour}s receive the product of the pending zoom
+	 * factors, and matching {@link RotateBehaviour}s receive the sum of the
+	 * pending rotation angles.
+	 */
+	private void flushPendingGestures()
+	{
+		if ( !gesturePending )
+			return;
+		gesturePending = false;
+
+		for ( int i = 0; i < gestureAccumulators.size(); ++i )
+		{
+			final GestureAccumulator acc = gestureAccumulators.get( i );
+			final boolean zoomPending = acc.zoomPending;
+			final boolean rotatePending = acc.rotatePending;
+			final double factor = acc.zoomFactor;
+			final double angle = acc.angle;
+			acc.clear();
+			if ( zoomPending )
+				for ( final Binding< ZoomBehaviour > zoom : match( current.zooms, acc.mask, acc.mask, pressedKeys ) )
+					zoom( zoom, factor, acc.x, acc.y );
+			if ( rotatePending )
+				for ( final Binding< RotateBehaviour > rotate : match( current.rotates, acc.mask, acc.mask, pressedKeys ) )
+					rotate( rotate, angle, acc.x, acc.y );
+		}
+	}
+
+	/**
+	 * Set whether zoom and rotation gestures should be merged and delivered
+	 * once per frame. This is enabled by default.
+	 * <p>
+	 * If enabled, the {@link ZoomEvent}s and {@link RotateEvent}s of one frame
+	 * are merged per modifier mask: zoom factors are multiplied, and rotation
+	 * angles are added up. Once per JavaFX pulse, matching
+	 * {@link ZoomBehaviour}s and {@link RotateBehaviour}s receive one call with
+	 * the merged value. Pending gestures are delivered immediately when the
+	 * gesture finishes, and before any key or mouse button press or release is
+	 * handled. (If disabled, each event results in one call.)
+	 * <p>
+	 * Must be called on the JavaFX application thread.
+	 *
+	 * @param coalesce
+	 *            whether to merge gestures.
+	 */
+	public void setCoalesceGestures( final boolean coalesce )
+	{
+		if ( !coalesce )
+			flushPendingGestures();
+		coalesceGestures = coalesce;
+	}
+
+	private void mouseDragged( final MouseEvent e )
+	{
+		mouseX = e.getX();
+		mouseY = e.getY();
+
+		if ( !pendingButtonDrags.isEmpty() )
+			activatePendingDrags();
+
+		if ( coalesceDrags )
+		{
+			if ( !activeButtonDrags.isEmpty() )
+			{
+				buttonDragPending = true;
+				startPulse();
+			}
+		}
+		else
+			drag( activeButtonDrags );
+	}
+
+	private void mouseMoved( final MouseEvent e )
+	{
+		mouseX = e.getX();
+		mouseY = e.getY();
+
+		if ( coalesceDrags )
+		{
+			if ( !activeKeyDrags.isEmpty() )
+			{
+				keyDragPending = true;
+				startPulse();
+			}
+		}
+		else
+			drag( activeKeyDrags );
+	}
+
+	/**
+	 * Initialize the {@link #pendingButtonDrags} for which the pointer has
+	 * moved beyond the drag threshold, or has moved after the drag delay.
+	 * They are initialized at the position of the mouse press.
+	 */
+	private void activatePendingDrags()
+	{
+		final boolean delayed = dragDelayNanos > 0 && now() - dragPressTime >= dragDelayNanos;
+		for ( int i = 0; i < pendingButtonDrags.size(); )
+		{
+			final double x0 = pendingButtonDrags.lastX( i );
+			final double y0 = pendingButtonDrags.lastY( i );
+			final boolean moved = dragThreshold > 0 && ( Math.abs( mouseX - x0 ) > dragThreshold || Math.abs( mouseY - y0 ) > dragThreshold );
+			if ( delayed || moved )
+			{
+				final Binding< DragBehaviour > drag = pendingButtonDrags.get( i );
+				pendingButtonDrags.remove( i );
+				init( drag, x0, y0 );
+				activeButtonDrags.add( drag, x0, y0 );
+			}
+			else
+				++i;
+		}
+	}
+
+	/**
+	 * Set a drag threshold for button-triggered {@link DragBehaviour}s.
+	 * <p>
+	 * If the threshold is greater than 0, a drag is not initialized when the
+	 * mouse button is pressed, but only once the pointer has moved more than
+	 * {@code pixels} (horizontally or vertically) from where it was pressed. It
+	 * is then initialized at the position of the press, and dragged to the
+	 * current position. If the button is released before that, the drag is
+	 * neither initialized nor ended, and the press and release are only
+	 * delivered as a click. Default is 0, i.e., drags are initialized
+	 * immediately.
+	 *
+	 * @param pixels
+	 *            drag threshold
+	 * @see #setDragDelay(long)
+	 */
+	public void setDragThreshold( final double pixels )
+	{
+		if ( !( pixels >= 0 ) )
+			throw new IllegalArgumentException( "drag threshold must be >= 0" );
+		dragThreshold = pixels;
+	}
+
+	/**
+	 * Set a drag delay for button-triggered {@link DragBehaviour}s.
+	 * <p>
+	 * If the delay is greater than 0, a drag is not initialized when the
+	 * mouse button is pressed, but only when the pointer moves at least
+	 * {@code millis} after the press (or moves beyond the drag threshold, see
+	 * {@link #setDragThreshold(double)}, whichever comes first). Default is 0.
+	 *
+	 * @param millis
+	 *            drag delay in milliseconds
+	 */
+	public void setDragDelay( final long millis )
+	{
+		if ( millis < 0 )
+			throw new IllegalArgumentException( "drag delay must be >= 0" );
+		dragDelayNanos = TimeUnit.MILLISECONDS.toNanos( millis );
+	}
+
+	/**
+	 * Set whether {@code drag()} calls to active {@link DragBehaviour}s should
+	 * be coalesced to at most one per frame.
+	 * <p>
+	 * If enabled, {@code MOUSE_DRAGGED} and {@code MOUSE_MOVED} events only
+	 * record the latest mouse position. Active drags are notified of that
+	 * position once per JavaFX pulse. Pending positions are always delivered
+	 * before any {@code init()} or {@code end()}, so the
+	 * {@code init}, {@code drag}, {@code end} ordering seen by each behaviour is unchanged.
+	 * <p>
+	 * Must be called on the JavaFX application thread.
+	 *
+	 * @param coalesce
+	 *            whether to coalesce drags.
+	 */
+	public void setCoalesceDrags( final boolean coalesce )
+	{
+		if ( !coalesce )
+			flushPendingDrags();
+		else
+			createPulse();
+		coalesceDrags = coalesce;
+	}
+
+	/**
+	 * Deliver pending coalesced drags, accumulated scrolls, merged gestures,
+	 * and rate-limited key repeats.
+	 */
+	private void flushPending()
+	{
+		flushPendingDrags();
+		flushPendingScrolls();
+		flushPendingGestures();
+		flushPendingRepeats();
+	}
+
+	/**
+	 * Click key repeats that were deferred to this frame by
+	 * {@link KeyRepeatPolicy#ONCE_PER_FRAME}.
+	 */
+	private void flushPendingRepeats()
+	{
+		final int n = keyRepeats.pendingSize();
+		if ( n == 0 )
+			return;
+		for ( int i = 0; i < n; ++i )
+			click( keyRepeats.pending( i ), mouseX, mouseY );
+		keyRepeats.clearPending();
+	}
+
+	/**
+	 * Set the {@link KeyRepeatPolicy} for all key-triggered
+	 * {@link ClickBehaviour}s that do not have their own policy (see
+	 * {@link #setKeyRepeatPolicy(String, KeyRepeatPolicy)}). Default is
+	 * {@link KeyRepeatPolicy#DELIVER}.
+	 *
+	 * @param policy
+	 *            repeat policy
+	 */
+	public void setKeyRepeatPolicy( final KeyRepeatPolicy policy )
+	{
+		defaultKeyRepeatPolicy = policy;
+	}
+
+	/**
+	 * Set the {@link KeyRepeatPolicy} for the behaviour with the given name
+	 * (in the {@link BehaviourMap}).
+	 *
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @param policy
+	 *            repeat policy, or {@code null} to use the default policy.
+	 */
+	public void setKeyRepeatPolicy( final String behaviourName, final KeyRepeatPolicy policy )
+	{
+		if ( policy == null )
+			keyRepeatPolicies.remove( behaviourName );
+		else
+			keyRepeatPolicies.put( behaviourName, policy );
+	}
+
+	/**
+	 * Set the minimum interval between clicks caused by key repeats, if the
+	 * {@link KeyRepeatPolicy#FIXED_RATE} policy is used. Default is 100 ms.
+	 *
+	 * @param millis
+	 *            repeat interval in milliseconds
+	 */
+	public void setKeyRepeatInterval( final long millis )
+	{
+		if ( millis < 0 )
+			throw new IllegalArgumentException( "repeat interval must be >= 0" );
+		keyRepeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos( millis );
+	}
+
+	private KeyRepeatPolicy keyRepeatPolicy( final Binding< ClickBehaviour > click )
+	{
+		final String name = click.name();
+		if ( name != null && !keyRepeatPolicies.isEmpty() )
+		{
+			final KeyRepeatPolicy policy = keyRepeatPolicies.get( name );
+			if ( policy != null )
+				return policy;
+		}
+		return defaultKeyRepeatPolicy;
+	}
+
+	/**
+	 * Notify active drags of the latest mouse position, if it was not yet
+	 * delivered.
+	 */
+	private void flushPendingDrags()
+	{
+		if ( buttonDragPending )
+		{
+			buttonDragPending = false;
+			drag( activeButtonDrags );
+		}
+		if ( keyDragPending )
+		{
+			keyDragPending = false;
+			drag( activeKeyDrags );
+		}
+	}
+
+	/**
+	 * Notify {@code drags} of the current mouse position. If
+	 * {@link #skipDuplicateDrags} is set, drags that have already received
+	 * this position are skipped. (For plain {@link DragBehaviour}s, this
+	 * compares the integer coordinates they receive.)
+	 */
+	private void drag( final ActiveDrags drags )
+	{
+		final double x = mouseX;
+		final double y = mouseY;
+		for ( int i = 0; i < drags.size(); ++i )
+		{
+			final Binding< DragBehaviour > drag = drags.get( i );
+			final DragBehaviour behaviour = drag.behaviour();
+			if ( skipDuplicateDrags )
+			{
+				final double lastX = drags.lastX( i );
+				final double lastY = drags.lastY( i );
+				final boolean unchanged = behaviour instanceof PreciseDragBehaviour
+						? x == lastX && y == lastY
+						: ( int ) x == ( int ) lastX && ( int ) y == ( int ) lastY;
+				if ( unchanged )
+					continue;
+			}
+			drags.setLast( i, x, y );
+			drag( drag, x, y );
+		}
+	}
+
+	/**
+	 * Set whether {@code drag()} calls should be skipped if the position has
+	 * not changed since the last {@code init()} or {@code drag()} call to the
+	 * same behaviour. Default is {@code false}.
+	 * <p>
+	 * Plain {@link DragBehaviour}s receive integer coordinates, so for them
+	 * all mouse positions within the same pixel count as unchanged.
+	 * {@link PreciseDragBehaviour}s are skipped only if the exact position is
+	 * repeated.
+	 *
+	 * @param skip
+	 *            whether to skip drags to an unchanged position.
+	 */
+	public void setSkipDuplicateDrags( final boolean skip )
+	{
+		skipDuplicateDrags = skip;
+	}
+
+	/**
+	 * End all {@code drags} that are no longer triggered by {@code mask} and
+	 * the currently pressed keys, and remove them from {@code drags}.
+	 */
+	private void endDrags( final ActiveDrags drags, final int mask, final double x, final double y )
+	{
+		for ( int i = 0; i < drags.size(); )
+		{
+			final Binding< DragBehaviour > drag = drags.get( i );
+			if ( !drag.matchesSubset( mask, pressedKeys ) )
+			{
+				end( drag, x, y );
+				drags.remove( i );
+			}
+			else
+				++i;
+		}
+	}
+
+	/**
+	 * Set a listener that receives timing information for every handled event
+	 * and every behaviour invocation, for example {@link DispatchMetrics}.
+	 * With no listener (the default), dispatch is not instrumented and the only
+	 * overhead is a {@code null} check per event and per invocation.
+	 *
+	 * @param listener
+	 *            the listener, or {@code null} to turn instrumentation off.
+	 */
+	public void setDispatchListener( final DispatchListener listener )
+	{
+		this.dispatchListener = listener;
+	}
+
+	/**
+	 * Set a recorder that writes every handled input event to a log, which can
+	 * be played back with {@link InputReplayer}.
+	 *
+	 * @param recorder
+	 *            the recorder, or {@code null} to stop recording.
+	 */
+	public void setInputRecorder( final InputRecorder recorder )
+	{
+		this.inputRecorder = recorder;
+	}
+
+	/*
+	 * Behaviour lookup and invocation. All matching and behaviour calls go
+	 * through these methods, so that they can be timed if a dispatchListener
+	 * is set.
+	 */
+
+	private < T extends Behaviour > Binding< T >[] match( final TriggerIndex< T > index, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		if ( dispatchListener == null )
+			return index.get( mask, alternativeMask, pressedKeys );
+		final long t0 = System.nanoTime();
+		final Binding< T >[] bindings = index.get( mask, alternativeMask, pressedKeys );
+		matchNanos += System.nanoTime() - t0;
+		return bindings;
+	}
+
+	private void click( final Binding< ClickBehaviour > binding, final double x, final double y )
+	{
+		final ClickBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			invokeClick( behaviour, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			invokeClick( behaviour, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void init( final Binding< DragBehaviour > binding, final double x, final double y )
+	{
+		final DragBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			invokeInit( behaviour, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			invokeInit( behaviour, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void drag( final Binding< DragBehaviour > binding, final double x, final double y )
+	{
+		final DragBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			invokeDrag( behaviour, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			invokeDrag( behaviour, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void end( final Binding< DragBehaviour > binding, final double x, final double y )
+	{
+		final DragBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			invokeEnd( behaviour, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			invokeEnd( behaviour, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void scroll( final Binding< ScrollBehaviour > binding, final double wheelRotation, final boolean isHorizontal, final double x, final double y )
+	{
+		final ScrollBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			invokeScroll( behaviour, wheelRotation, isHorizontal, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			invokeScroll( behaviour, wheelRotation, isHorizontal, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	/*
+	 * Call the double-precision methods of Precise*Behaviours, and the int
+	 * methods of other behaviours.
+	 */
+
+	private static void invokeClick( final ClickBehaviour behaviour, final double x, final double y )
+	{
+		if ( behaviour instanceof PreciseClickBehaviour )
+			( ( PreciseClickBehaviour ) behaviour ).click( x, y );
+		else
+			behaviour.click( ( int ) x, ( int ) y );
+	}
+
+	private static void invokeInit( final DragBehaviour behaviour, final double x, final double y )
+	{
+		if ( behaviour instanceof PreciseDragBehaviour )
+			( ( PreciseDragBehaviour ) behaviour ).init( x, y );
+		else
+			behaviour.init( ( int ) x, ( int ) y );
+	}
+
+	private static void invokeDrag( final DragBehaviour behaviour, final double x, final double y )
+	{
+		if ( behaviour instanceof PreciseDragBehaviour )
+			( ( PreciseDragBehaviour ) behaviour ).drag( x, y );
+		else
+			behaviour.drag( ( int ) x, ( int ) y );
+	}
+
+	private static void invokeEnd( final DragBehaviour behaviour, final double x, final double y )
+	{
+		if ( behaviour instanceof PreciseDragBehaviour )
+			( ( PreciseDragBehaviour ) behaviour ).end( x, y );
+		else
+			behaviour.end( ( int ) x, ( int ) y );
+	}
+
+	private static void invokeScroll( final ScrollBehaviour behaviour, final double wheelRotation, final boolean isHorizontal, final double x, final double y )
+	{
+		if ( behaviour instanceof PreciseScrollBehaviour )
+			( ( PreciseScrollBehaviour ) behaviour ).scroll( wheelRotation, isHorizontal, x, y );
+		else
+			behaviour.scroll( wheelRotation, isHorizontal, ( int ) x, ( int ) y );
+	}
+
+	private void zoom( final Binding< ZoomBehaviour > binding, final double factor, final double x, final double y )
+	{
+		final ZoomBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			behaviour.zoom( factor, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			behaviour.zoom( factor, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void rotate( final Binding< RotateBehaviour > binding, final double angle, final double x, final double y )
+	{
+		final RotateBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			behaviour.rotate( angle, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			behaviour.rotate( angle, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void swipe( final Binding< SwipeBehaviour > binding, final SwipeBehaviour.Direction direction, final int touchCount, final double x, final double y )
+	{
+		final SwipeBehaviour behaviour = binding.behaviour();
+		final DispatchListener listener = dispatchListener;
+		if ( listener == null )
+			behaviour.swipe( direction, touchCount, x, y );
+		else
+		{
+			final long t0 = System.nanoTime();
+			behaviour.swipe( direction, touchCount, x, y );
+			listener.behaviourInvoked( binding.name(), behaviour, System.nanoTime() - t0 );
+		}
+	}
+
+	private void createPulse()
+	{
+		if ( pulse == null )
+			pulse = newPulseTimer();
+	}
+
+	/**
+	 * Create the timer that calls {@link #pulse()} once per frame. (Tests
+	 * without a running JavaFX toolkit override this, and call
+	 * {@link #pulse()} directly.)
 	 */
-	private boolean altGraphPressed = false;
+	PulseTimer newPulseTimer()
+	{
+		return PulseTimer.animationTimer( this::pulse );
+	}
 
 	/**
-	 * The current mouse coordinates, updated through {@link #mouseMoved(MouseEvent)}.
+	 * Deliver everything that is pending for this frame, and stop the pulse
+	 * if no drags are active.
 	 */
-	private int mouseX;
+	void pulse()
+	{
+		flushPending();
+		if ( activeButtonDrags.isEmpty() && activeKeyDrags.isEmpty() )
+			stopPulse();
+	}
+
+	private void startPulse()
+	{
+		if ( !pulseRunning )
+		{
+			pulseRunning = true;
+			pulse.start();
+		}
+	}
+
+	private void stopPulse()
+	{
+		if ( pulseRunning )
+		{
+			pulseRunning = false;
+			pulse.stop();
+		}
+	}
+
+	private void mouseClicked( final MouseEvent e )
+	{
+		final int mask = getMask( e );
+		final double x = e.getX();
+		final double y = e.getY();
+
+		final int clickMask = mask & ~InputTrigger.DOUBLE_CLICK_MASK;
+		final BehaviourRegions.Region region = regions == null ? null : regions.hit( x, y, BehaviourRegions.CLICK, mask, clickMask, pressedKeys );
+		if ( region != null )
+		{
+			final Binding< ClickBehaviour >[] clicks = region.bindings( BehaviourRegions.CLICK );
+			for ( final Binding< ClickBehaviour > click : clicks )
+			{
+				if ( BehaviourRegions.matches( click, mask, clickMask, pressedKeys ) )
+				{
+					click( click, x, y );
+					consume |= consumeEvents;
+				}
+			}
+			return;
+		}
+
+		for ( final Binding< ClickBehaviour > click : match( current.buttonClicks, mask, clickMask, pressedKeys ) )
+		{
+			if ( hasClickCount( click, buttonClickCount ) && holdDuration( click ) == 0 )
+			{
+				click( click, x, y );
+				consume |= consumes( click );
+			}
+		}
+	}
 
 	/**
-	 * The current mouse coordinates, updated through {@link #mouseMoved(MouseEvent)}.
+	 * Use region-scoped behaviours. Within the regions, their bindings take
+	 * precedence over the ordinary bindings: on a mouse press, click, or
+	 * scroll, if the topmost region under the pointer has a matching drag,
+	 * click, or scroll binding (respectively), only that region's bindings of
+	 * that kind are triggered. Multi-click, hold, and scroll accumulation
+	 * settings do not apply to region bindings.
+	 *
+	 * @param regions
+	 *            regions, or {@code null} to remove them.
 	 */
-	private int mouseY;
+	public void setRegions( final BehaviourRegions regions )
+	{
+		this.regions = regions;
+		updateFilters( bindings.current() );
+	}
 
 	/**
-	 * Active {@link DragBehaviour}s initiated by mouse button press.
+	 * Set whether mouse presses, mouse clicks, scrolls, and key presses that
+	 * trigger a behaviour are consumed, so that JavaFX does not deliver them
+	 * further (to the handlers of other nodes). Default is {@code false}.
+	 * <p>
+	 * This can be overridden for individual behaviours, see
+	 * {@link #setConsumeEvents(String, Boolean)}. Region bindings and key
+	 * sequences always use this setting.
+	 *
+	 * @param consume
+	 *            whether to consume events
 	 */
-	private final ArrayList< BehaviourEntry< DragBehaviour > > activeButtonDrags = new ArrayList<>();
+	public void setConsumeEvents( final boolean consume )
+	{
+		consumeEvents = consume;
+	}
 
 	/**
-	 * Active {@link DragBehaviour}s initiated by key press.
+	 * Set whether events that trigger the behaviour with the given name (in
+	 * the {@link BehaviourMap}) are consumed. An event is consumed if any of
+	 * the behaviours it triggers consumes it.
+	 *
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @param consume
+	 *            whether to consume events, or {@code null} to use the
+	 *            default (see {@link #setConsumeEvents(boolean)}).
 	 */
-	private final ArrayList< BehaviourEntry< DragBehaviour > > activeKeyDrags = new ArrayList<>();
+	public void setConsumeEvents( final String behaviourName, final Boolean consume )
+	{
+		if ( consume == null )
+			consumePolicies.remove( behaviourName );
+		else
+			consumePolicies.put( behaviourName, consume );
+	}
 
-	@Override
-	public void handle( final Event event )
+	/**
+	 * Whether an event that triggers {@code binding} should be consumed.
+	 */
+	private boolean consumes( final Binding< ? > binding )
 	{
-		if ( event instanceof InputEvent )
+		if ( !consumePolicies.isEmpty() )
 		{
-			update();
-
-			if ( event instanceof MouseEvent )
-			{
-				final EventType< ? extends Event > type = event.getEventType();
-				if ( type == MouseEvent.MOUSE_PRESSED )
-					mousePressed( ( MouseEvent ) event );
-				if ( type == MouseEvent.MOUSE_DRAGGED )
-					mouseDragged( ( MouseEvent ) event );
-				else if ( type == MouseEvent.MOUSE_RELEASED )
-					mouseReleased( ( MouseEvent ) event );
-				else if ( type == MouseEvent.MOUSE_CLICKED )
-					mouseClicked( ( MouseEvent ) event );
-				else if ( type == MouseEvent.MOUSE_MOVED )
-					mouseMoved( ( MouseEvent ) event );
-				else if ( type == MouseEvent.MOUSE_ENTERED )
-					mouseEntered();
-				else if ( type == MouseEvent.MOUSE_EXITED )
-					mouseExited();
-			}
-			else if ( event instanceof KeyEvent )
-			{
-				final EventType< ? extends Event > type = event.getEventType();
-				if ( type == KeyEvent.KEY_PRESSED )
-					keyPressed( ( KeyEvent ) event );
-				else if ( type == KeyEvent.KEY_RELEASED )
-					keyReleased( ( KeyEvent ) event );
-				// TODO: Use KeyEvent.KEY_TYPED for InputMap/ActionMap equivalent?
-			}
-			else if ( event instanceof ScrollEvent )
+			final String name = binding.name();
+			if ( name != null )
 			{
-				scrolled( ( ScrollEvent ) event );
+				final Boolean c = consumePolicies.get( name );
+				if ( c != null )
+					return c;
 			}
 		}
+		return consumeEvents;
 	}
 
-	public void scrolled( final ScrollEvent e )
+	/**
+	 * Count the multi-click that a mouse button press belongs to. Mouse click
+	 * counts are determined by the {@link #clickCounter}, like key click
+	 * counts, not by {@link MouseEvent#getClickCount()}. A press that is not
+	 * near the previous one starts a new multi-click.
+	 */
+	private void countButtonPress( final MouseEvent e )
 	{
-		final int mask = getMask( e );
-		final int x = ( int ) e.getX();
-		final int y = ( int ) e.getY();
+		final MouseButton button = e.getButton();
+		final int code;
+		if ( button == MouseButton.PRIMARY )
+			code = MultiClickCounter.buttonCode( 1 );
+		else if ( button == MouseButton.MIDDLE )
+			code = MultiClickCounter.buttonCode( 2 );
+		else if ( button == MouseButton.SECONDARY )
+			code = MultiClickCounter.buttonCode( 3 );
+		else
+			return;
+		final double x = e.getX();
+		final double y = e.getY();
+		final boolean near = Math.abs( x - lastPressX ) <= MULTI_CLICK_TOLERANCE && Math.abs( y - lastPressY ) <= MULTI_CLICK_TOLERANCE;
+		lastPressX = x;
+		lastPressY = y;
+		buttonClickCount = clickCounter.press( code, now(), near ? multiClickIntervalNanos : 0 );
+	}
+
+	private long now()
+	{
+		final long t = replayTime;
+		return t == NO_TIME ? System.nanoTime() : t;
+	}
 
-		final double dX = e.getDeltaX();
-		final double dY = e.getDeltaY();
-		final boolean isHorizontal = Math.abs( dX ) > Math.abs( dY );
-		final double amount = isHorizontal ? dX : dY;
+	/**
+	 * Check whether {@code binding} may be triggered by the
+	 * {@code clickCount}-th click of a multi-click.
+	 */
+	private boolean hasClickCount( final Binding< ? > binding, final int clickCount )
+	{
+		if ( clickCounts.isEmpty() )
+			return true;
+		final String name = binding.name();
+		if ( name == null )
+			return true;
+		final Integer required = clickCounts.get( name );
+		return required == null || required == clickCount;
+	}
 
-		for ( final BehaviourEntry< ScrollBehaviour > scroll : scrolls )
-			if ( scroll.buttons().matches( mask, pressedKeys ) )
-				scroll.behaviour().scroll( amount, isHorizontal, x, y );
+	/**
+	 * Make the behaviour with the given name (in the {@link BehaviourMap})
+	 * trigger only on the {@code clickCount}-th click of a multi-click, for
+	 * example, 3 for a triple-click.
+	 * <p>
+	 * This restricts the behaviour's triggers further. Any click with a click
+	 * count greater than 1 also matches {@code double-click} triggers. Clicks
+	 * also match triggers without {@code double-click} (for example,
+	 * {@code "button1"} with click count 3 is a triple-click on button 1), but
+	 * drags do not (for a triple-click drag, use
+	 * {@code "button1 double-click"}).
+	 *
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @param clickCount
+	 *            required click count, or 0 to remove the restriction.
+	 */
+	public void setClickCount( final String behaviourName, final int clickCount )
+	{
+		if ( clickCount < 0 )
+			throw new IllegalArgumentException( "click count must be >= 0" );
+		if ( clickCount == 0 )
+			clickCounts.remove( behaviourName );
+		else
+			clickCounts.put( behaviourName, clickCount );
 	}
 
-	private void mouseDragged( final MouseEvent e )
+	/**
+	 * Make the {@link ClickBehaviour} with the given name (in the
+	 * {@link BehaviourMap}) a hold trigger: instead of clicking when its
+	 * trigger is pressed (for keys) or clicked (for mouse buttons), it clicks
+	 * once the trigger has been held down for the given duration. If the keys
+	 * or buttons are released, or other keys or buttons are pressed, before
+	 * that, it does not click at all.
+	 * <p>
+	 * The hold deadlines of all handlers are served by one shared timer, that
+	 * runs once per frame while deadlines are pending.
+	 *
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @param millis
+	 *            hold duration in milliseconds, or 0 to make the behaviour a
+	 *            normal click again.
+	 */
+	public void setHoldDuration( final String behaviourName, final long millis )
 	{
-		mouseX = ( int ) e.getX();
-		mouseY = ( int ) e.getY();
+		if ( millis < 0 )
+			throw new IllegalArgumentException( "hold duration must be >= 0" );
+		if ( millis == 0 )
+			holdDurations.remove( behaviourName );
+		else
+			holdDurations.put( behaviourName, TimeUnit.MILLISECONDS.toNanos( millis ) );
+	}
 
-		for ( final BehaviourEntry< DragBehaviour > drag : activeButtonDrags )
-			drag.behaviour().drag( mouseX, mouseY );
+	/**
+	 * Get the hold duration of {@code click} in nanoseconds, or 0 if it is not
+	 * a hold trigger.
+	 */
+	private long holdDuration( final Binding< ClickBehaviour > click )
+	{
+		if ( holdDurations.isEmpty() )
+			return 0;
+		final String name = click.name();
+		if ( name == null )
+			return 0;
+		final Long duration = holdDurations.get( name );
+		return duration == null ? 0 : duration;
 	}
 
-	private void mouseMoved( final MouseEvent e )
+	/**
+	 * Arm the {@link Hold} for {@code click}, unless it is already armed.
+	 */
+	private void armHold( final Binding< ClickBehaviour > click, final long durationNanos, final double x, final double y, final ArrayList< Hold > armed )
 	{
-		mouseX = ( int ) e.getX();
-		mouseY = ( int ) e.getY();
+		Hold hold = holds.get( click );
+		if ( hold == null )
+		{
+			hold = new Hold( click );
+			holds.put( click, hold );
+		}
+		if ( hold.isArmed() )
+			return;
+		if ( holdTimer == null )
+			holdTimer = HoldTimer.shared();
+		hold.x = x;
+		hold.y = y;
+		hold.armed = armed;
+		armed.add( hold );
+		holdTimer.arm( hold, durationNanos );
+	}
 
-		for ( final BehaviourEntry< DragBehaviour > drag : activeKeyDrags )
-			drag.behaviour().drag( mouseX, mouseY );
+	private void cancelHolds( final ArrayList< Hold > armed )
+	{
+		for ( int i = 0; i < armed.size(); ++i )
+			holdTimer.cancel( armed.get( i ) );
+		armed.clear();
 	}
 
-	private void mouseClicked( final MouseEvent e )
+	/**
+	 * Use the given timer for holds, instead of the shared one. (For tests.)
+	 */
+	void setHoldTimer( final HoldTimer timer )
 	{
-		final int mask = getMask( e );
-		final int x = ( int ) e.getX();
-		final int y = ( int ) e.getY();
+		cancelHolds( armedKeyHolds );
+		cancelHolds( armedButtonHolds );
+		holdTimer = timer;
+	}
 
-		final int clickMask = mask & ~InputTrigger.DOUBLE_CLICK_MASK;
-		for ( final BehaviourEntry< ClickBehaviour > click : buttonClicks )
+	/**
+	 * A pending click of a hold trigger.
+	 */
+	private final class Hold extends HoldTimer.Deadline
+	{
+		private final Binding< ClickBehaviour > click;
+
+		private double x;
+
+		private double y;
+
+		/**
+		 * The list of armed holds this is in.
+		 */
+		private ArrayList< Hold > armed;
+
+		Hold( final Binding< ClickBehaviour > click )
 		{
-			if ( click.buttons().matches( mask, pressedKeys ) ||
-					( clickMask != mask && click.buttons().matches( clickMask, pressedKeys ) ) )
-			{
-				click.behaviour().click( x, y );
-			}
+			this.click = click;
+		}
+
+		@Override
+		void expired()
+		{
+			armed.remove( this );
+			click( click, x, y );
+		}
+	}
+
+	/**
+	 * Bind a multi-stroke key sequence to the {@link ClickBehaviour} with the
+	 * given name (in the {@link BehaviourMap}).
+	 * <p>
+	 * A sequence consists of comma-separated key triggers, for example
+	 * {@code "ctrl X, ctrl S"}. Key presses that continue a sequence are not
+	 * dispatched to ordinary key bindings. A key press that does not continue
+	 * the sequence typed so far aborts it, and is ignored. A sequence is also
+	 * aborted if its next step is not typed within the timeout (see
+	 * {@link #setKeySequenceTimeout(long)}). If a sequence is a prefix of
+	 * another sequence, the longer one cannot be typed.
+	 * <p>
+	 * Key sequences are part of the {@link SharedBindings} of this handler
+	 * (see {@link SharedBindings#addKeySequence(String, String)}), so they
+	 * apply to all handlers that share them, and are replaced by
+	 * {@link #setBindings(SharedBindings)}.
+	 *
+	 * @param sequence
+	 *            comma-separated key triggers
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @throws IllegalArgumentException
+	 *             if the sequence contains an empty step or a trigger that is
+	 *             not key-triggered
+	 */
+	public void addKeySequence( final String sequence, final String behaviourName )
+	{
+		bindings.addKeySequence( sequence, behaviourName );
+	}
+
+	/**
+	 * Remove all key sequences bound to the behaviour with the given name.
+	 *
+	 * @see SharedBindings#removeKeySequences(String)
+	 */
+	public void removeKeySequences( final String behaviourName )
+	{
+		bindings.removeKeySequences( behaviourName );
+	}
+
+	/**
+	 * Set the maximum time between the steps of a key sequence. Default is 2
+	 * seconds.
+	 *
+	 * @param millis
+	 *            timeout in milliseconds
+	 */
+	public void setKeySequenceTimeout( final long millis )
+	{
+		if ( millis < 0 )
+			throw new IllegalArgumentException( "key sequence timeout must be >= 0" );
+		keySequenceTimeoutNanos = TimeUnit.MILLISECONDS.toNanos( millis );
+	}
+
+	/**
+	 * Advance the key sequence cursor by a key press, and click the
+	 * behaviours of a completed sequence.
+	 *
+	 * @return whether the key press was taken by a key sequence (and should
+	 *         not be dispatched to ordinary key bindings).
+	 */
+	private boolean advanceKeySequence( final int mask )
+	{
+		final KeySequences.Node root = current.keySequences;
+		final long time = now();
+		if ( sequenceRoot != root || time - sequenceTime > keySequenceTimeoutNanos )
+		{
+			sequenceRoot = root;
+			sequenceCursor = root;
+		}
+
+		final KeySequences.Node next = sequenceCursor.next( mask, pressedKeys );
+		if ( next == null )
+		{
+			// abort
+			final boolean inSequence = sequenceCursor != root;
+			sequenceCursor = root;
+			return inSequence;
+		}
+
+		if ( next.isComplete() )
+		{
+			sequenceCursor = root;
+			flushPending();
+			for ( final Binding< ClickBehaviour > click : next.behaviours() )
+				click( click, mouseX, mouseY );
+		}
+		else
+		{
+			sequenceCursor = next;
+			sequenceTime = time;
 		}
+		return true;
+	}
+
+	/**
+	 * Set the maximum time between the presses of a multi-click (for keys and
+	 * mouse buttons). Default is 300 ms.
+	 *
+	 * @param millis
+	 *            multi-click interval in milliseconds
+	 */
+	public void setMultiClickInterval( final long millis )
+	{
+		if ( millis < 0 )
+			throw new IllegalArgumentException( "multi-click interval must be >= 0" );
+		multiClickIntervalNanos = TimeUnit.MILLISECONDS.toNanos( millis );
 	}
 
 	private void mousePressed( final MouseEvent e )
 	{
 		final int mask = getMask( e );
-		final int x = ( int ) e.getX();
-		final int y = ( int ) e.getY();
+		final double x = e.getX();
+		final double y = e.getY();
+
+		flushPending();
+		final BehaviourRegions.Region region = regions == null ? null : regions.hit( x, y, BehaviourRegions.DRAG, mask, mask, pressedKeys );
+		final Binding< DragBehaviour >[] drags = region == null
+				? match( current.buttonDrags, mask, mask, pressedKeys )
+				: region.bindings( BehaviourRegions.DRAG );
+		final boolean lazy = dragThreshold > 0 || dragDelayNanos > 0;
+		if ( lazy )
+			dragPressTime = now();
+		for ( final Binding< DragBehaviour > drag : drags )
+		{
+			if ( region != null ? !drag.matches( mask, pressedKeys ) : !hasClickCount( drag, buttonClickCount ) )
+				continue;
+			if ( lazy )
+				pendingButtonDrags.add( drag, x, y );
+			else
+			{
+				init( drag, x, y );
+				activeButtonDrags.add( drag, x, y );
+			}
+			consume |= consumes( drag );
+		}
 
-		for ( final BehaviourEntry< DragBehaviour > drag : buttonDrags )
+		cancelHolds( armedKeyHolds );
+		cancelHolds( armedButtonHolds );
+		if ( !holdDurations.isEmpty() )
 		{
-			if ( drag.buttons().matches( mask, pressedKeys ) )
+			final int clickMask = mask & ~InputTrigger.DOUBLE_CLICK_MASK;
+			for ( final Binding< ClickBehaviour > click : match( current.buttonClicks, mask, clickMask, pressedKeys ) )
 			{
-				drag.behaviour().init( x, y );
-				activeButtonDrags.add( drag );
+				final long hold = holdDuration( click );
+				if ( hold > 0 && hasClickCount( click, buttonClickCount ) )
+				{
+					armHold( click, hold, x, y, armedButtonHolds );
+					consume |= consumes( click );
+				}
 			}
 		}
 	}
@@ -205,17 +2171,21 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 	private void mouseReleased( final MouseEvent e )
 	{
 		final int mask = getMask( e );
-		final int x = ( int ) e.getX();
-		final int y = ( int ) e.getY();
+		final double x = e.getX();
+		final double y = e.getY();
 
-		final ArrayList< BehaviourEntry< ? > > ended = new ArrayList<>();
-		for ( final BehaviourEntry< DragBehaviour > drag : activeButtonDrags )
-			if ( !drag.buttons().matchesSubset( mask, pressedKeys ) )
-			{
-				drag.behaviour().end( x, y );
-				ended.add( drag );
-			}
-		activeButtonDrags.removeAll( ended );
+		flushPending();
+		endDrags( activeButtonDrags, mask, x, y );
+		cancelHolds( armedButtonHolds );
+
+		// drags that have not moved beyond the threshold are dropped
+		for ( int i = 0; i < pendingButtonDrags.size(); )
+		{
+			if ( !pendingButtonDrags.get( i ).matchesSubset( mask, pressedKeys ) )
+				pendingButtonDrags.remove( i );
+			else
+				++i;
+		}
 	}
 
 	private void mouseEntered()
@@ -245,30 +2215,49 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 				code != KeyCode.ALT &&
 				code != KeyCode.CONTROL )
 		{
-			final int key = getKeyCode( code );
-			final boolean inserted = pressedKeys.add( key );
+			final int key = JfxKeyCodes.toAwt( code );
+			final boolean inserted = pressedKeys.add( JfxKeyCodes.toBit( code ), key );
 
 			/*
-			 * Create mask and deal with double-click on keys.
+			 * Create mask and deal with multi-clicks on keys. Auto-repeats
+			 * are not clicks.
 			 */
 
 			final int mask = getMask( e );
-			boolean doubleClick = false;
 			if ( inserted )
 			{
-				// double-click on keys.
-				final long time = System.currentTimeMillis();
-				final long lastPressTime = keyPressTimes.get( key );
-				if ( lastPressTime != -1 && ( time - lastPressTime ) < DOUBLE_CLICK_INTERVAL )
-					doubleClick = true;
+				keyClickCount = clickCounter.press( key, now(), multiClickIntervalNanos );
+				keyRepeats.clearFired();
+				cancelHolds( armedKeyHolds );
+				cancelHolds( armedButtonHolds );
+			}
+			else
+				keyClickCount = 0;
+			keyRepeat = !inserted;
+			final boolean doubleClick = keyClickCount > 1;
 
-				keyPressTimes.put( key, time );
+			/*
+			 * Auto-repeats do not advance key sequences, but are held back
+			 * while one is being typed, and while the key that was taken by a
+			 * sequence is held.
+			 */
+			if ( !current.keySequences.isLeaf() && ( inserted
+					? advanceKeySequence( mask )
+					: code == sequenceKey || sequenceCursor != sequenceRoot ) )
+			{
+				sequenceKey = code;
+				consume |= consumeEvents;
+				return;
 			}
 
 			if ( keypressManager != null )
-				keypressManager.handleKeyPressed( receiver, mask, doubleClick, pressedKeys );
-			else
-				handleKeyPressed( mask, doubleClick, pressedKeys, false );
+			{
+				pressedKeySet.clear();
+				pressedKeys.copyTo( pressedKeySet );
+				keypressManager.handleKeyPressed( receiver, mask, doubleClick, pressedKeySet );
+			}
+			else if ( matchKeys( mask, keyClickCount, pressedKeys ) )
+				consume |= triggerMatchedKeys( !inserted );
 		}
 	}
 
@@ -288,15 +2277,14 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 
 	private void transferKeysTo( JfxMouseAndKeyHandler target )
 	{
-		target.pressedKeys.clear();
-		target.pressedKeys.addAll( pressedKeys );
-		target.keyPressTimes.clear();
-		target.keyPressTimes.putAll( keyPressTimes );
+		target.pressedKeys.set( pressedKeys );
+		target.clickCounter.set( clickCounter );
 		target.winPressed = winPressed;
 		target.altGraphPressed = altGraphPressed;
 
 		pressedKeys.clear();
-		keyPressTimes.clear();
+		pressedKeySet.clear();
+		clickCounter.clear();
 		winPressed = false;
 		altGraphPressed = false;
 	}
@@ -313,10 +2301,47 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 			this.focus = focus;
 		}
 
+		/**
+		 * Bindings are matched once. If anything matches, pressed keys are
+		 * transferred from the {@code origin} handler (which clears
+		 * {@code pressedKeys}, if it is the origin's set), focus is moved to
+		 * this handler's component, and the matched behaviours are triggered.
+		 * <p>
+		 * If {@code pressedKeys} is the origin handler's set, its
+		 * {@link KeyBits} are used directly. Otherwise, the set is converted.
+		 * Click count and auto-repeat are taken from the origin handler, if
+		 * possible.
+		 */
 		@Override
 		public void handleKeyPressed( final KeyPressedReceiver origin, final int mask, final boolean doubleClick, final TIntSet pressedKeys )
 		{
-			if ( handler.handleKeyPressed( mask, doubleClick, pressedKeys, true ) )
+			if ( origin != this )
+				handler.update();
+
+			final KeyBits keys;
+			if ( origin instanceof KeyPressedReceiverImp && ( ( KeyPressedReceiverImp ) origin ).handler.pressedKeySet == pressedKeys )
+				keys = ( ( KeyPressedReceiverImp ) origin ).handler.pressedKeys;
+			else
+			{
+				keys = handler.routedKeys;
+				keys.clear();
+				keys.addAll( pressedKeys );
+			}
+
+			final int clickCount;
+			final boolean repeat;
+			if ( origin instanceof KeyPressedReceiverImp )
+			{
+				clickCount = ( ( KeyPressedReceiverImp ) origin ).handler.keyClickCount;
+				repeat = ( ( KeyPressedReceiverImp ) origin ).handler.keyRepeat;
+			}
+			else
+			{
+				clickCount = doubleClick ? 2 : 1;
+				repeat = false;
+			}
+
+			if ( handler.matchKeys( mask, clickCount, keys ) )
 			{
 				if ( origin instanceof KeyPressedReceiverImp )
 				{
@@ -325,7 +2350,9 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 						o.handler.transferKeysTo( this.handler );
 				}
 				focus.run();
-				handler.handleKeyPressed( mask, doubleClick, pressedKeys, false );
+				final boolean consume = handler.triggerMatchedKeys( repeat );
+				if ( origin instanceof KeyPressedReceiverImp )
+					( ( KeyPressedReceiverImp ) origin ).handler.consume |= consume;
 			}
 		}
 	}
@@ -344,41 +2371,113 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 		this.receiver = new KeyPressedReceiverImp( this, focus );
 	}
 
-	private boolean handleKeyPressed( final int mask, final boolean doubleClick, final TIntSet pressedKeys, final boolean dryRun )
-	{
-		update();
+	/*
+	 * Result of the last matchKeys(), consumed by triggerMatchedKeys().
+	 */
+
+	private Binding< DragBehaviour >[] matchedKeyDrags;
+
+	private Binding< ClickBehaviour >[] matchedKeyClicks;
+
+	private int matchedClickCount;
 
-		final int doubleClickMask = mask | InputTrigger.DOUBLE_CLICK_MASK;
+	/**
+	 * Look up the key drags and key clicks triggered by a key press, and
+	 * remember them for {@link #triggerMatchedKeys(boolean)}. The
+	 * {@link #current} bindings must be up to date, see {@link #update()}.
+	 *
+	 * @param clickCount
+	 *            click count of the key press (0 for an auto-repeat)
+	 * @return whether the key press triggers anything, i.e., whether
+	 *         {@link #triggerMatchedKeys(boolean)} would call any behaviour.
+	 */
+	private boolean matchKeys( final int mask, final int clickCount, final KeyBits pressedKeys )
+	{
+		final int doubleClickMask = clickCount > 1 ? mask | InputTrigger.DOUBLE_CLICK_MASK : mask;
+		matchedKeyDrags = match( current.keyDrags, mask, doubleClickMask, pressedKeys );
+		matchedKeyClicks = match( current.keyClicks, mask, doubleClickMask, pressedKeys );
+		matchedClickCount = clickCount;
+
+		for ( final Binding< ClickBehaviour > click : matchedKeyClicks )
+			if ( hasClickCount( click, clickCount ) )
+				return true;
+		for ( final Binding< DragBehaviour > drag : matchedKeyDrags )
+			if ( !activeKeyDrags.contains( drag ) && hasClickCount( drag, clickCount ) )
+				return true;
+		return false;
+	}
 
-		boolean triggered = false;
+	/**
+	 * Init the key drags and click the key clicks found by the last
+	 * {@link #matchKeys}. If the key press is an auto-repeat, clicks are
+	 * subject to their {@link KeyRepeatPolicy}.
+	 *
+	 * @return whether the key press should be consumed.
+	 */
+	private boolean triggerMatchedKeys( final boolean repeat )
+	{
+		boolean consumed = false;
+		final Binding< DragBehaviour >[] drags = matchedKeyDrags;
+		final Binding< ClickBehaviour >[] clicks = matchedKeyClicks;
+		matchedKeyDrags = null;
+		matchedKeyClicks = null;
 
-		for ( final BehaviourEntry< DragBehaviour > drag : keyDrags )
+		if ( repeat )
+		{
+			// pending repeats stay pending until the next frame
+			flushPendingDrags();
+			flushPendingScrolls();
+			flushPendingGestures();
+		}
+		else
+			flushPending();
+		for ( final Binding< DragBehaviour > drag : drags )
 		{
-			if ( !activeKeyDrags.contains( drag ) &&
-					( drag.buttons().matches( mask, pressedKeys ) ||
-							( doubleClick && drag.buttons().matches( doubleClickMask, pressedKeys ) ) ) )
+			if ( activeKeyDrags.contains( drag ) )
+				// auto-repeat of an active drag
+				consumed |= consumes( drag );
+			else if ( hasClickCount( drag, matchedClickCount ) )
 			{
-				if ( dryRun )
-					return true;
-				triggered = true;
-				drag.behaviour().init( mouseX, mouseY );
-				activeKeyDrags.add( drag );
+				init( drag, mouseX, mouseY );
+				activeKeyDrags.add( drag, mouseX, mouseY );
+				consumed |= consumes( drag );
 			}
 		}
-
-		for ( final BehaviourEntry< ClickBehaviour > click : keyClicks )
+		for ( final Binding< ClickBehaviour > click : clicks )
 		{
-			if ( click.buttons().matches( mask, pressedKeys ) ||
-					( doubleClick && click.buttons().matches( doubleClickMask, pressedKeys ) ) )
+			if ( !repeat && !hasClickCount( click, matchedClickCount ) )
+				continue;
+			// consumed even if the key repeat policy drops the click
+			consumed |= consumes( click );
+			final long hold = holdDuration( click );
+			if ( hold > 0 )
+			{
+				if ( !repeat )
+					armHold( click, hold, mouseX, mouseY, armedKeyHolds );
+				continue;
+			}
+			if ( repeat )
 			{
-				if ( dryRun )
-					return true;
-				triggered = true;
-				click.behaviour().click( mouseX, mouseY );
+				switch ( keyRepeatPolicy( click ) )
+				{
+				case IGNORE:
+					continue;
+				case ONCE_PER_FRAME:
+					keyRepeats.addPending( click );
+					createPulse();
+					startPulse();
+					continue;
+				case FIXED_RATE:
+					if ( !keyRepeats.tryFire( click, now(), keyRepeatIntervalNanos ) )
+						continue;
+					break;
+				default:
+					break;
+				}
 			}
+			click( click, mouseX, mouseY );
 		}
-
-		return triggered;
+		return consumed;
 	}
 
 	private void keyReleased( final KeyEvent e )
@@ -395,21 +2494,29 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 				code != KeyCode.ALT &&
 				code != KeyCode.CONTROL )
 		{
-			final int key = getKeyCode( code );
-			pressedKeys.remove( key );
+			pressedKeys.remove( JfxKeyCodes.toBit( code ), JfxKeyCodes.toAwt( code ) );
+			if ( code == sequenceKey )
+				sequenceKey = null;
 			final int mask = getMask( e );
 
-			final ArrayList< BehaviourEntry< ? > > ended = new ArrayList<>();
-			for ( final BehaviourEntry< DragBehaviour > drag : activeKeyDrags )
-				if ( !drag.buttons().matchesSubset( mask, pressedKeys ) )
-				{
-					drag.behaviour().end( mouseX, mouseY );
-					ended.add( drag );
-				}
-			activeKeyDrags.removeAll( ended );
+			flushPending();
+			endDrags( activeKeyDrags, mask, mouseX, mouseY );
+			cancelHolds( armedKeyHolds );
 		}
 	}
 
+	private int getMask( final Event e )
+	{
+		if ( e instanceof MouseEvent )
+			return getMask( ( MouseEvent ) e );
+		else if ( e instanceof KeyEvent )
+			return getMask( ( KeyEvent ) e );
+		else if ( e instanceof GestureEvent )
+			return getMask( ( GestureEvent ) e );
+		else
+			return 0;
+	}
+
 	private int getMask( final MouseEvent e )
 	{
 		int mask = 0;
@@ -444,27 +2551,34 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 		 */
 		if ( e.getEventType() == MouseEvent.MOUSE_CLICKED )
 		{
-			switch ( e.getButton() )
-			{
-			case PRIMARY:
+			final MouseButton button = e.getButton();
+			if ( button == MouseButton.PRIMARY )
 				mask |= InputTrigger.BUTTON1_DOWN_MASK;
-				break;
-			case MIDDLE:
+			else if ( button == MouseButton.MIDDLE )
 				mask |= InputTrigger.BUTTON2_DOWN_MASK;
-				break;
-			case SECONDARY:
+			else if ( button == MouseButton.SECONDARY )
 				mask |= InputTrigger.BUTTON3_DOWN_MASK;
-				break;
-			}
 		}
 
-		if ( e.getClickCount() > 1 )
-			mask |= InputTrigger.DOUBLE_CLICK_MASK;
+		if ( buttonClickCount > 1 )
+		{
+			final EventType< ? extends MouseEvent > type = e.getEventType();
+			if ( type == MouseEvent.MOUSE_PRESSED || type == MouseEvent.MOUSE_RELEASED || type == MouseEvent.MOUSE_CLICKED )
+				mask |= InputTrigger.DOUBLE_CLICK_MASK;
+		}
 
 		return mask;
 	}
 
-	private int getMask( final ScrollEvent e )
+	/**
+	 * Get the mask for a {@link ScrollEvent}, {@link ZoomEvent},
+	 * {@link RotateEvent}, or {@link SwipeEvent}. Gestures are bound to scroll
+	 * triggers (there is no other {@link InputTrigger} syntax for them), but
+	 * each kind of event is only dispatched to the behaviours of its own
+	 * type: scrolls to {@link ScrollBehaviour}s, zooms to
+	 * {@link ZoomBehaviour}s, and so on.
+	 */
+	private int getMask( final GestureEvent e )
 	{
 		int mask = InputTrigger.SCROLL_MASK;
 
@@ -514,38 +2628,15 @@ public class JfxMouseAndKeyHandler extends AbstractMouseAndKeyHandler
 		return altGraphPressed;
 	}
 
-	private final static Method getKeyCode;
-
-	static
-	{
-		Method m = null;
-		try
-		{
-			m = KeyCode.class.getDeclaredMethod( "getCode" ); // Java 9+
-		}
-		catch ( NoSuchMethodException e )
-		{
-			try
-			{
-				m = KeyCode.class.getDeclaredMethod( "impl_getCode" ); // Java 8
-			}
-			catch ( NoSuchMethodException ex )
-			{
-				throw new RuntimeException( ex );
-			}
-		}
-		getKeyCode = m;
-	}
-
-	private int getKeyCode( KeyCode keyCode )
+	/**
+	 * Create a set for storing pressed keys. Auto-compaction is disabled,
+	 * because it would periodically re-allocate the set while keys are
+	 * pressed and released.
+	 */
+	private static TIntSet newPressedKeySet()
 	{
-		try
-		{
-			return ( int ) getKeyCode.invoke( keyCode );
-		}
-		catch ( IllegalAccessException | InvocationTargetException e )
-		{
-			throw new RuntimeException( e );
-		}
+		final TIntHashSet set = new TIntHashSet( 5, 0.5f, -1 );
+		set.setAutoCompactionFactor( 0 );
+		return set;
 	}
 }
@@ -0,0 +1,323 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import javafx.scene.input.KeyCode;
+
+/**
+ * A set of pressed keys, as a fixed-width bitset of 256 bits.
+ * <p>
+ * Each AWT key code that a JavaFX {@link KeyCode} translates to has its own
+ * bit (see {@link JfxKeyCodes#toBit(KeyCode)}). Comparing, testing for
+ * containment, and copying are a few operations on four {@code long}s, and
+ * do not allocate.
+ * <p>
+ * All other key codes share the bit {@link #OTHER}, which is set while any of
+ * them is. Their AWT key codes are kept in a separate set (allocated when the
+ * first one is added, see {@link #add(int, int)}), so that they are still
+ * told apart.
+ */
+final class KeyBits
+{
+	/**
+	 * Number of bits.
+	 */
+	static final int SIZE = 256;
+
+	/**
+	 * The bit used for key codes that do not have their own bit.
+	 */
+	static final int OTHER = SIZE - 1;
+
+	private long w0;
+
+	private long w1;
+
+	private long w2;
+
+	private long w3;
+
+	/**
+	 * AWT key codes of the keys in {@link #OTHER}, or {@code null} if there
+	 * never were any.
+	 */
+	private TIntHashSet others;
+
+	/**
+	 * Cached result of {@link #asSet()}, or {@code null} if this set has been
+	 * modified since.
+	 */
+	private TIntHashSet view;
+
+	KeyBits()
+	{}
+
+	KeyBits( final KeyBits other )
+	{
+		set( other );
+	}
+
+	/**
+	 * Set bit {@code bit}.
+	 *
+	 * @return whether the bit was not set before.
+	 */
+	boolean add( final int bit )
+	{
+		view = null;
+		final long m = 1L << bit;
+		final long w;
+		switch ( bit >>> 6 )
+		{
+		case 0:
+			w = w0;
+			w0 |= m;
+			break;
+		case 1:
+			w = w1;
+			w1 |= m;
+			break;
+		case 2:
+			w = w2;
+			w2 |= m;
+			break;
+		default:
+			w = w3;
+			w3 |= m;
+			break;
+		}
+		return ( w & m ) == 0;
+	}
+
+	/**
+	 * Clear bit {@code bit}.
+	 *
+	 * @return whether the bit was set before.
+	 */
+	boolean remove( final int bit )
+	{
+		view = null;
+		final long m = 1L << bit;
+		final long w;
+		switch ( bit >>> 6 )
+		{
+		case 0:
+			w = w0;
+			w0 &= ~m;
+			break;
+		case 1:
+			w = w1;
+			w1 &= ~m;
+			break;
+		case 2:
+			w = w2;
+			w2 &= ~m;
+			break;
+		default:
+			w = w3;
+			w3 &= ~m;
+			break;
+		}
+		return ( w & m ) != 0;
+	}
+
+	/**
+	 * Add the key with bit {@code bit} and AWT key code {@code awtKeyCode}.
+	 * Keys without their own bit ({@link #OTHER}) are told apart by their
+	 * key code.
+	 *
+	 * @return whether the key was not in the set before.
+	 */
+	boolean add( final int bit, final int awtKeyCode )
+	{
+		if ( bit != OTHER )
+			return add( bit );
+		if ( others == null )
+			others = new TIntHashSet();
+		add( OTHER );
+		return others.add( awtKeyCode );
+	}
+
+	/**
+	 * Remove the key with bit {@code bit} and AWT key code
+	 * {@code awtKeyCode}. The bit {@link #OTHER} is cleared when the last key
+	 * without its own bit is removed.
+	 *
+	 * @return whether the key was in the set before.
+	 */
+	boolean remove( final int bit, final int awtKeyCode )
+	{
+		if ( bit != OTHER )
+			return remove( bit );
+		if ( others == null || !others.remove( awtKeyCode ) )
+			return false;
+		if ( others.isEmpty() )
+			remove( OTHER );
+		view = null;
+		return true;
+	}
+
+	boolean contains( final int bit )
+	{
+		final long m = 1L << bit;
+		switch ( bit >>> 6 )
+		{
+		case 0:
+			return ( w0 & m ) != 0;
+		case 1:
+			return ( w1 & m ) != 0;
+		case 2:
+			return ( w2 & m ) != 0;
+		default:
+			return ( w3 & m ) != 0;
+		}
+	}
+
+	void clear()
+	{
+		view = null;
+		if ( others != null )
+			others.clear();
+		w0 = 0;
+		w1 = 0;
+		w2 = 0;
+		w3 = 0;
+	}
+
+	void set( final KeyBits other )
+	{
+		view = null;
+		if ( other.others != null && !other.others.isEmpty() )
+		{
+			if ( others == null )
+				others = new TIntHashSet();
+			others.clear();
+			others.addAll( other.others );
+		}
+		else if ( others != null )
+			others.clear();
+		w0 = other.w0;
+		w1 = other.w1;
+		w2 = other.w2;
+		w3 = other.w3;
+	}
+
+	boolean isEmpty()
+	{
+		return ( w0 | w1 | w2 | w3 ) == 0;
+	}
+
+	/**
+	 * Check whether all keys of {@code other} are in this set.
+	 */
+	boolean containsAll( final KeyBits other )
+	{
+		return ( other.w0 & ~w0 ) == 0
+				&& ( other.w1 & ~w1 ) == 0
+				&& ( other.w2 & ~w2 ) == 0
+				&& ( other.w3 & ~w3 ) == 0
+				&& ( !other.contains( OTHER ) || others.containsAll( other.others ) );
+	}
+
+	boolean equals( final KeyBits other )
+	{
+		return w0 == other.w0
+				&& w1 == other.w1
+				&& w2 == other.w2
+				&& w3 == other.w3
+				&& ( !contains( OTHER ) || others.equals( other.others ) );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return obj instanceof KeyBits && equals( ( KeyBits ) obj );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		long h = w0;
+		h = 31 * h + w1;
+		h = 31 * h + w2;
+		h = 31 * h + w3;
+		return ( int ) ( h ^ ( h >>> 32 ) );
+	}
+
+	/**
+	 * Add AWT key codes.
+	 */
+	void addAll( final TIntSet awtKeyCodes )
+	{
+		final int[] codes = awtKeyCodes.toArray();
+		for ( final int code : codes )
+			add( JfxKeyCodes.awtToBit( code ), code );
+	}
+
+	/**
+	 * Add the AWT key codes of all keys in this set to {@code awtKeyCodes}.
+	 */
+	void copyTo( final TIntSet awtKeyCodes )
+	{
+		copyTo( w0, 0, awtKeyCodes );
+		copyTo( w1, 64, awtKeyCodes );
+		copyTo( w2, 128, awtKeyCodes );
+		copyTo( w3 & ~( 1L << OTHER ), 192, awtKeyCodes );
+		if ( contains( OTHER ) )
+			awtKeyCodes.addAll( others );
+	}
+
+	/**
+	 * Get the AWT key codes of all keys in this set. The returned set is
+	 * cached until this set is modified, and must not be modified.
+	 */
+	TIntSet asSet()
+	{
+		TIntHashSet set = view;
+		if ( set == null )
+		{
+			set = new TIntHashSet();
+			copyTo( set );
+			view = set;
+		}
+		return set;
+	}
+
+	private static void copyTo( long w, final int offset, final TIntSet awtKeyCodes )
+	{
+		while ( w != 0 )
+		{
+			final int bit = Long.numberOfTrailingZeros( w );
+			awtKeyCodes.add( JfxKeyCodes.bitToAwt( offset + bit ) );
+			w &= w - 1;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.scijava.ui.behaviour.ClickBehaviour;
+
+/**
+ * State for rate-limiting key-triggered {@link ClickBehaviour}s during key
+ * auto-repeat: clicks that are pending for the next frame, and when each
+ * rate-limited click last fired. Bindings are compared by identity.
+ */
+final class KeyRepeats
+{
+	private final ArrayList< Binding< ClickBehaviour > > pending = new ArrayList<>();
+
+	private final ArrayList< Binding< ClickBehaviour > > fired = new ArrayList<>();
+
+	private long[] firedTimes = new long[ 4 ];
+
+	int pendingSize()
+	{
+		return pending.size();
+	}
+
+	Binding< ClickBehaviour > pending( final int i )
+	{
+		return pending.get( i );
+	}
+
+	/**
+	 * Mark {@code click} as pending for the next frame.
+	 */
+	void addPending( final Binding< ClickBehaviour > click )
+	{
+		if ( indexOf( pending, click ) < 0 )
+			pending.add( click );
+	}
+
+	void clearPending()
+	{
+		pending.clear();
+	}
+
+	/**
+	 * Check whether {@code click} may fire at time {@code now}, i.e., whether
+	 * it has not fired yet during this repeat, or at least
+	 * {@code intervalNanos} ago. If so, record {@code now} as its last firing
+	 * time.
+	 */
+	boolean tryFire( final Binding< ClickBehaviour > click, final long now, final long intervalNanos )
+	{
+		final int i = indexOf( fired, click );
+		if ( i < 0 )
+		{
+			final int n = fired.size();
+			fired.add( click );
+			if ( n == firedTimes.length )
+				firedTimes = Arrays.copyOf( firedTimes, 2 * n );
+			firedTimes[ n ] = now;
+			return true;
+		}
+		if ( now - firedTimes[ i ] >= intervalNanos )
+		{
+			firedTimes[ i ] = now;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forget last firing times (a new key was pressed).
+	 */
+	void clearFired()
+	{
+		fired.clear();
+	}
+
+	private static int indexOf( final ArrayList< Binding< ClickBehaviour > > list, final Binding< ClickBehaviour > click )
+	{
+		for ( int i = 0; i < list.size(); ++i )
+			if ( list.get( i ) == click )
+				return i;
+		return -1;
+	}
+}
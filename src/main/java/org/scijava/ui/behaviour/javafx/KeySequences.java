@@ -0,0 +1,292 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * Multi-stroke key sequence triggers, such as {@code "ctrl X, ctrl S"}, bound
+ * to {@link ClickBehaviour} names.
+ * <p>
+ * {@link InputTrigger} cannot represent sequences, so they are not kept in
+ * the {@link org.scijava.ui.behaviour.InputTriggerMap InputTriggerMap}, but
+ * registered with {@link SharedBindings} alongside it. They are compiled
+ * together with the other bindings: each {@link CompiledBindings} snapshot
+ * has a prefix trie of the sequences (see {@link #compile(BehaviourMap)}).
+ * Each node indexes the key chords that continue a sequence from there by
+ * their key set, so advancing a cursor by one key press is a single hash
+ * lookup, regardless of the number of sequences.
+ * <p>
+ * Not thread-safe. {@link SharedBindings} synchronizes access.
+ */
+final class KeySequences
+{
+	private final ArrayList< InputTrigger[] > sequences = new ArrayList<>();
+
+	private final ArrayList< String > names = new ArrayList<>();
+
+	private volatile int modCount = 0;
+
+	/**
+	 * Parse a key sequence.
+	 *
+	 * @param sequence
+	 *            comma-separated key triggers, for example
+	 *            {@code "ctrl X, ctrl S"}.
+	 * @throws IllegalArgumentException
+	 *             if the sequence is empty, or contains triggers that are not
+	 *             key-triggered
+	 */
+	static InputTrigger[] parse( final String sequence )
+	{
+		final String[] parts = sequence.split( "," );
+		final InputTrigger[] steps = new InputTrigger[ parts.length ];
+		for ( int i = 0; i < parts.length; ++i )
+		{
+			final String part = parts[ i ].trim();
+			if ( part.isEmpty() )
+				throw new IllegalArgumentException( "empty step in key sequence \"" + sequence + "\"" );
+			steps[ i ] = InputTrigger.getFromString( part );
+			if ( !steps[ i ].isKeyTriggered() )
+				throw new IllegalArgumentException( "\"" + part + "\" in key sequence \"" + sequence + "\" is not key-triggered" );
+		}
+		return steps;
+	}
+
+	/**
+	 * Add a key sequence.
+	 *
+	 * @param steps
+	 *            the sequence, as returned by {@link #parse(String)}.
+	 * @param behaviourName
+	 *            name of a {@link ClickBehaviour}
+	 */
+	void add( final InputTrigger[] steps, final String behaviourName )
+	{
+		sequences.add( steps );
+		names.add( behaviourName );
+		++modCount;
+	}
+
+	/**
+	 * Remove all key sequences bound to {@code behaviourName}.
+	 */
+	void remove( final String behaviourName )
+	{
+		for ( int i = names.size() - 1; i >= 0; --i )
+		{
+			if ( names.get( i ).equals( behaviourName ) )
+			{
+				names.remove( i );
+				sequences.remove( i );
+				++modCount;
+			}
+		}
+	}
+
+	/**
+	 * Incremented whenever sequences are added or removed.
+	 */
+	int modCount()
+	{
+		return modCount;
+	}
+
+	/**
+	 * Compile the sequences into a trie, resolving behaviour names against
+	 * {@code behaviourMap}. Sequences bound to names that are not
+	 * {@link ClickBehaviour}s are left out.
+	 */
+	Node compile( final BehaviourMap behaviourMap )
+	{
+		if ( sequences.isEmpty() )
+			return Node.EMPTY;
+		final Builder root = new Builder();
+		for ( int i = 0; i < sequences.size(); ++i )
+		{
+			final Behaviour behaviour = behaviourMap.get( names.get( i ) );
+			if ( !( behaviour instanceof ClickBehaviour ) )
+				continue;
+			Builder node = root;
+			final InputTrigger[] steps = sequences.get( i );
+			for ( final InputTrigger step : steps )
+				node = node.children.computeIfAbsent( step, k -> new Builder() );
+			node.behaviours.add( new Binding<>( steps[ steps.length - 1 ], ( ClickBehaviour ) behaviour, names.get( i ) ) );
+		}
+		return root.build();
+	}
+
+	private static final class Builder
+	{
+		final LinkedHashMap< InputTrigger, Builder > children = new LinkedHashMap<>();
+
+		final ArrayList< Binding< ClickBehaviour > > behaviours = new ArrayList<>();
+
+		Node build()
+		{
+			final HashMap< KeyBits, List< Step > > byKeys = new HashMap<>();
+			final List< Step > uncompiled = new ArrayList<>();
+			for ( final Map.Entry< InputTrigger, Builder > entry : children.entrySet() )
+			{
+				final Step step = new Step( entry.getKey(), entry.getValue().build() );
+				if ( step.keys == null )
+					uncompiled.add( step );
+				else
+					byKeys.computeIfAbsent( step.keys, k -> new ArrayList<>() ).add( step );
+			}
+			final HashMap< KeyBits, Step[] > steps = new HashMap<>();
+			byKeys.forEach( ( keys, list ) -> steps.put( keys, list.toArray( Node.NO_STEPS ) ) );
+			return new Node( behaviours.toArray( Node.NO_BEHAVIOURS ), steps, uncompiled.toArray( Node.NO_STEPS ) );
+		}
+	}
+
+	/**
+	 * A key chord that continues a sequence, and the node it leads to.
+	 */
+	private static final class Step
+	{
+		final InputTrigger trigger;
+
+		final int mask;
+
+		final int ignoreMask;
+
+		/**
+		 * Compiled keys of {@link #trigger}, or {@code null} if it could not
+		 * be compiled.
+		 */
+		final KeyBits keys;
+
+		final Node next;
+
+		Step( final InputTrigger trigger, final Node next )
+		{
+			final CompiledTrigger compiled = CompiledTrigger.of( trigger );
+			this.trigger = trigger;
+			this.mask = compiled.mask;
+			this.ignoreMask = compiled.ignoreMask;
+			this.keys = compiled.keys;
+			this.next = next;
+		}
+
+		/**
+		 * Same as {@code trigger.matches(mask, pressedKeys)}, for a step in
+		 * the bucket of {@code pressedKeys}.
+		 */
+		boolean matchesMask( final int mask )
+		{
+			return ( mask & ~ignoreMask ) == this.mask;
+		}
+	}
+
+	/**
+	 * A node of the trie, i.e., a (possibly complete) prefix of one or more
+	 * sequences. Immutable.
+	 */
+	static final class Node
+	{
+		@SuppressWarnings( "unchecked" )
+		private static final Binding< ClickBehaviour >[] NO_BEHAVIOURS = new Binding[ 0 ];
+
+		private static final Step[] NO_STEPS = new Step[ 0 ];
+
+		static final Node EMPTY = new Node( NO_BEHAVIOURS, new HashMap<>(), NO_STEPS );
+
+		/**
+		 * Behaviours of the sequences that are complete at this node, bound to
+		 * the last step.
+		 */
+		private final Binding< ClickBehaviour >[] behaviours;
+
+		/**
+		 * The steps that continue from this node, by their compiled key set.
+		 */
+		private final HashMap< KeyBits, Step[] > steps;
+
+		/**
+		 * The steps whose triggers could not be compiled.
+		 */
+		private final Step[] uncompiled;
+
+		private Node( final Binding< ClickBehaviour >[] behaviours, final HashMap< KeyBits, Step[] > steps, final Step[] uncompiled )
+		{
+			this.behaviours = behaviours;
+			this.steps = steps;
+			this.uncompiled = uncompiled;
+		}
+
+		/**
+		 * Whether no sequence continues from this node.
+		 */
+		boolean isLeaf()
+		{
+			return steps.isEmpty() && uncompiled.length == 0;
+		}
+
+		/**
+		 * Whether a sequence is complete at this node. Longer sequences with
+		 * the same prefix cannot be completed.
+		 */
+		boolean isComplete()
+		{
+			return behaviours.length > 0;
+		}
+
+		Binding< ClickBehaviour >[] behaviours()
+		{
+			return behaviours;
+		}
+
+		/**
+		 * Get the node that a key press with {@code mask} and
+		 * {@code pressedKeys} advances to, or {@code null} if the press does
+		 * not continue any sequence.
+		 */
+		Node next( final int mask, final KeyBits pressedKeys )
+		{
+			final Step[] candidates = steps.get( pressedKeys );
+			if ( candidates != null )
+				for ( final Step step : candidates )
+					if ( step.matchesMask( mask ) )
+						return step.next;
+			for ( final Step step : uncompiled )
+				if ( step.trigger.matches( mask, pressedKeys.asSet() ) )
+					return step.next;
+			return null;
+		}
+	}
+}
@@ -0,0 +1,430 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+/**
+ * A keymap (the bindings of an {@link InputTriggerMap}) together with its
+ * compiled triggers, in a compact binary file.
+ * <p>
+ * Building a keymap from an {@code InputTriggerConfig} means parsing YAML,
+ * resolving the configured and default triggers of every behaviour, and
+ * compiling every trigger the first time it is dispatched. A cache file
+ * stores the result: the trigger and behaviour names, and for each trigger its
+ * modifier mask, ignored modifiers, and keys. Reading it is a single mapped
+ * read. The trigger strings are parsed into {@link InputTrigger}s again, but
+ * the triggers are not compiled again.
+ * <p>
+ * The compiled forms are trusted without probing the triggers, behind two
+ * checks per file: a checksum of the file contents (so that a damaged file
+ * cannot bind compiled forms to the wrong triggers), and the version of the
+ * library that provides {@link InputTrigger} (so that a cache written with a
+ * different version, which might parse or match triggers differently, is not
+ * trusted; its triggers are then compiled as usual). Key codes are stored as
+ * AWT key codes, so that a cache remains valid across JavaFX versions.
+ * <p>
+ * Usage: write the cache after building the keymap for the first time,
+ *
+ * <pre>
+ * KeymapCache.write( inputMap, cacheFile );
+ * </pre>
+ *
+ * and on later starts load it in the background, attaching the bindings to
+ * the handler when they are ready:
+ *
+ * <pre>
+ * KeymapCache.loadAsync( cacheFile, behaviourMap, executor )
+ * 		.thenAcceptAsync( handler::setBindings, Platform::runLater );
+ * </pre>
+ *
+ * The cache does not know whether the configuration it was built from has
+ * changed. Applications should rewrite it (or fall back to the configuration)
+ * when the configuration file is newer than the cache.
+ */
+public final class KeymapCache
+{
+	static final int MAGIC = 0x55424B4D; // "UBKM"
+
+	static final int VERSION = 2;
+
+	/**
+	 * Marks a trigger that has no compiled key set, in place of the number of
+	 * keys.
+	 */
+	private static final int NOT_COMPILED = -1;
+
+	/**
+	 * Trigger strings and behaviour names.
+	 */
+	private final String[] strings;
+
+	/**
+	 * Per trigger: index of the trigger string in {@link #strings}.
+	 */
+	private final int[] triggers;
+
+	private final int[] masks;
+
+	private final int[] ignoreMasks;
+
+	/**
+	 * Per trigger: AWT key codes, or {@code null} if the trigger has no
+	 * compiled key set.
+	 */
+	private final int[][] keys;
+
+	/**
+	 * Per trigger: indices of behaviour names in {@link #strings}.
+	 */
+	private final int[][] names;
+
+	/**
+	 * Whether the cache was written with the same version of
+	 * {@link InputTrigger}, so that the compiled forms can be used.
+	 */
+	private final boolean trusted;
+
+	private KeymapCache( final boolean trusted, final String[] strings, final int[] triggers, final int[] masks, final int[] ignoreMasks, final int[][] keys, final int[][] names )
+	{
+		this.trusted = trusted;
+		this.strings = strings;
+		this.triggers = triggers;
+		this.masks = masks;
+		this.ignoreMasks = ignoreMasks;
+		this.keys = keys;
+		this.names = names;
+	}
+
+	/**
+	 * Write all bindings of {@code inputMap} (including those inherited from
+	 * its parents) to a cache file. The file is written next to
+	 * {@code file} and then moved into place, so that a concurrent
+	 * {@link #read} never sees a partially written cache.
+	 * <p>
+	 * The file has the following layout, in big-endian byte order:
+	 *
+	 * <pre>
+	 * int     MAGIC
+	 * int     VERSION
+	 * int     length of the library version, UTF-8 bytes
+	 * int     CRC-32 of the rest of the file
+	 * int     number of strings
+	 * int     number of triggers
+	 * strings:  int length, UTF-8 bytes
+	 * triggers: int string index, int mask, int ignore mask,
+	 *           int number of keys (or -1), int AWT key codes,
+	 *           int number of names, int string indices
+	 * </pre>
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write( final InputTriggerMap inputMap, final Path file ) throws IOException
+	{
+		final Map< InputTrigger, Set< String > > bindings = inputMap.getAllBindings();
+		final List< String > strings = new ArrayList<>();
+		final Map< String, Integer > indices = new HashMap<>();
+		for ( final Map.Entry< InputTrigger, Set< String > > entry : bindings.entrySet() )
+		{
+			index( entry.getKey().toString(), strings, indices );
+			for ( final String name : entry.getValue() )
+				index( name, strings, indices );
+		}
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (final DataOutputStream out = new DataOutputStream( body ))
+		{
+			out.writeInt( strings.size() );
+			out.writeInt( bindings.size() );
+			for ( final String s : strings )
+			{
+				final byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+				out.writeInt( bytes.length );
+				out.write( bytes );
+			}
+			final TIntSet awtKeyCodes = new TIntHashSet();
+			for ( final Map.Entry< InputTrigger, Set< String > > entry : bindings.entrySet() )
+			{
+				final InputTrigger trigger = entry.getKey();
+				final CompiledTrigger compiled = CompiledTrigger.of( trigger );
+				out.writeInt( indices.get( trigger.toString() ) );
+				out.writeInt( compiled.mask );
+				out.writeInt( compiled.ignoreMask );
+				if ( compiled.keys == null )
+					out.writeInt( NOT_COMPILED );
+				else
+				{
+					awtKeyCodes.clear();
+					compiled.keys.copyTo( awtKeyCodes );
+					out.writeInt( awtKeyCodes.size() );
+					for ( final int key : awtKeyCodes.toArray() )
+						out.writeInt( key );
+				}
+				out.writeInt( entry.getValue().size() );
+				for ( final String name : entry.getValue() )
+					out.writeInt( indices.get( name ) );
+			}
+		}
+
+		final byte[] bytes = body.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update( bytes );
+		final byte[] library = libraryVersion().getBytes( StandardCharsets.UTF_8 );
+		final Path tmp = file.resolveSibling( file.getFileName() + ".tmp" );
+		try (final DataOutputStream out = new DataOutputStream( Files.newOutputStream( tmp ) ))
+		{
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+			out.writeInt( library.length );
+			out.write( library );
+			out.writeInt( ( int ) crc.getValue() );
+			out.write( bytes );
+		}
+		Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING );
+	}
+
+	/**
+	 * Get the version of the library that provides {@link InputTrigger}, as
+	 * recorded in its jar manifest, or {@code "unknown"} if it has none (for
+	 * example, when running from a build directory).
+	 */
+	static String libraryVersion()
+	{
+		final Package p = InputTrigger.class.getPackage();
+		final String version = p == null ? null : p.getImplementationVersion();
+		return version == null ? "unknown" : version;
+	}
+
+	private static void index( final String s, final List< String > strings, final Map< String, Integer > indices )
+	{
+		if ( !indices.containsKey( s ) )
+		{
+			indices.put( s, strings.size() );
+			strings.add( s );
+		}
+	}
+
+	/**
+	 * Read a cache file written by {@link #write}.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not a keymap cache.
+	 */
+	public static KeymapCache read( final Path file ) throws IOException
+	{
+		try (final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+		{
+			final long size = channel.size();
+			if ( size < 16 || size > Integer.MAX_VALUE )
+				throw new IOException( "not a keymap cache: " + file );
+			final MappedByteBuffer b = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+			if ( b.getInt() != MAGIC )
+				throw new IOException( "not a keymap cache: " + file );
+			final int version = b.getInt();
+			if ( version != VERSION )
+				throw new IOException( "unsupported keymap cache version " + version + ": " + file );
+			final byte[] library = new byte[ count( b, file ) ];
+			b.get( library );
+			final boolean trusted = libraryVersion().equals( new String( library, StandardCharsets.UTF_8 ) );
+			final int checksum = b.getInt();
+			final CRC32 crc = new CRC32();
+			crc.update( b.duplicate() );
+			if ( ( int ) crc.getValue() != checksum )
+				throw new IOException( "corrupt keymap cache: " + file );
+
+			final String[] strings = new String[ count( b, file ) ];
+			final int n = count( b, file );
+			for ( int i = 0; i < strings.length; ++i )
+			{
+				final byte[] bytes = new byte[ count( b, file ) ];
+				b.get( bytes );
+				strings[ i ] = new String( bytes, StandardCharsets.UTF_8 );
+			}
+
+			final int[] triggers = new int[ n ];
+			final int[] masks = new int[ n ];
+			final int[] ignoreMasks = new int[ n ];
+			final int[][] keys = new int[ n ][];
+			final int[][] names = new int[ n ][];
+			for ( int i = 0; i < n; ++i )
+			{
+				triggers[ i ] = stringIndex( b, strings, file );
+				masks[ i ] = b.getInt();
+				ignoreMasks[ i ] = b.getInt();
+				final int numKeys = b.getInt();
+				if ( numKeys != NOT_COMPILED )
+				{
+					if ( numKeys < 0 || numKeys > b.remaining() / 4 )
+						throw new IOException( "corrupt keymap cache: " + file );
+					keys[ i ] = new int[ numKeys ];
+					b.asIntBuffer().get( keys[ i ] );
+					b.position( b.position() + 4 * numKeys );
+				}
+				names[ i ] = new int[ count( b, file ) ];
+				for ( int j = 0; j < names[ i ].length; ++j )
+					names[ i ][ j ] = stringIndex( b, strings, file );
+			}
+			return new KeymapCache( trusted, strings, triggers, masks, ignoreMasks, keys, names );
+		}
+		catch ( final BufferUnderflowException e )
+		{
+			throw new IOException( "truncated keymap cache: " + file, e );
+		}
+	}
+
+	/**
+	 * Read a non-negative count that is not larger than the rest of the file.
+	 */
+	private static int count( final MappedByteBuffer b, final Path file ) throws IOException
+	{
+		final int count = b.getInt();
+		if ( count < 0 || count > b.remaining() )
+			throw new IOException( "corrupt keymap cache: " + file );
+		return count;
+	}
+
+	private static int stringIndex( final MappedByteBuffer b, final String[] strings, final Path file ) throws IOException
+	{
+		final int index = b.getInt();
+		if ( index < 0 || index >= strings.length )
+			throw new IOException( "corrupt keymap cache: " + file );
+		return index;
+	}
+
+	/**
+	 * Get the number of triggers in the cache.
+	 */
+	public int size()
+	{
+		return triggers.length;
+	}
+
+	/**
+	 * Create a new {@link InputTriggerMap} with the cached bindings. The
+	 * compiled forms of the triggers are registered (see
+	 * {@link CompiledTrigger#register}), so that handlers using the map do not
+	 * compile them again, unless the cache was written with a different
+	 * version of {@link InputTrigger}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a cached trigger string cannot be parsed.
+	 */
+	public InputTriggerMap createInputTriggerMap()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		for ( int i = 0; i < triggers.length; ++i )
+		{
+			final InputTrigger trigger = InputTrigger.getFromString( strings[ triggers[ i ] ] );
+			if ( trusted )
+				CompiledTrigger.register( trigger, compiled( i ) );
+			for ( final int name : names[ i ] )
+				inputMap.put( trigger, strings[ name ] );
+		}
+		return inputMap;
+	}
+
+	/**
+	 * Get the cached compiled form of the {@code i}th trigger. Like compiling
+	 * the trigger, this has no key set if one of its keys has no
+	 * {@link KeyBits} bit in this JavaFX version.
+	 */
+	private CompiledTrigger compiled( final int i )
+	{
+		return new CompiledTrigger( masks[ i ], ignoreMasks[ i ], keyBits( keys[ i ] ) );
+	}
+
+	private static KeyBits keyBits( final int[] awtKeyCodes )
+	{
+		if ( awtKeyCodes == null )
+			return null;
+		final KeyBits bits = new KeyBits();
+		for ( final int key : awtKeyCodes )
+		{
+			final int bit = JfxKeyCodes.awtToBit( key );
+			if ( bit == KeyBits.OTHER )
+				return null;
+			bits.add( bit );
+		}
+		return bits;
+	}
+
+	/**
+	 * Read a cache file, create an {@link InputTriggerMap} from it, and
+	 * compile {@link SharedBindings} for it and {@code behaviourMap}, all on
+	 * {@code executor}.
+	 * <p>
+	 * {@code behaviourMap} should be populated before calling this method, and
+	 * not be modified until the returned future completes. (Later
+	 * modifications are picked up as usual.) The future completes
+	 * exceptionally (with an {@link UncheckedIOException}) if the file
+	 * cannot be read.
+	 */
+	public static CompletableFuture< SharedBindings > loadAsync( final Path file, final BehaviourMap behaviourMap, final Executor executor )
+	{
+		return CompletableFuture.supplyAsync( () -> {
+			final KeymapCache cache;
+			try
+			{
+				cache = read( file );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+			final SharedBindings bindings = new SharedBindings( cache.createInputTriggerMap(), behaviourMap );
+			bindings.refresh();
+			return bindings;
+		}, executor );
+	}
+}
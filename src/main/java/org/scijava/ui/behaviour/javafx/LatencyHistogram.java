@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with power-of-two buckets.
+ * <p>
+ * Bucket {@code i} counts durations {@code d} with
+ * {@code 2^(i-1) <= d < 2^i} nanoseconds (bucket 0 counts zero durations).
+ * Recording is a few atomic increments and does not allocate. Percentiles are
+ * reported as the upper bound of the bucket they fall into, that is, they are
+ * accurate to within a factor of two.
+ */
+final class LatencyHistogram
+{
+	private static final int NUM_BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray( NUM_BUCKETS );
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	void record( final long nanos )
+	{
+		final long d = Math.max( nanos, 0 );
+		buckets.incrementAndGet( Math.min( 64 - Long.numberOfLeadingZeros( d ), NUM_BUCKETS - 1 ) );
+		count.incrementAndGet();
+		total.addAndGet( d );
+		long m = max.get();
+		while ( d > m && !max.compareAndSet( m, d ) )
+			m = max.get();
+	}
+
+	long count()
+	{
+		return count.get();
+	}
+
+	long totalNanos()
+	{
+		return total.get();
+	}
+
+	long maxNanos()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Get an upper bound for the {@code p}-quantile of recorded durations.
+	 *
+	 * @param p
+	 *            quantile in {@code [0, 1]}
+	 */
+	long percentileNanos( final double p )
+	{
+		final long[] counts = new long[ NUM_BUCKETS ];
+		long n = 0;
+		for ( int i = 0; i < NUM_BUCKETS; ++i )
+		{
+			counts[ i ] = buckets.get( i );
+			n += counts[ i ];
+		}
+		if ( n == 0 )
+			return 0;
+		final long rank = Math.max( 1, ( long ) Math.ceil( p * n ) );
+		long cumulative = 0;
+		for ( int i = 0; i < NUM_BUCKETS; ++i )
+		{
+			cumulative += counts[ i ];
+			if ( cumulative >= rank )
+				return Math.min( i == 0 ? 0 : 1L << i, max.get() );
+		}
+		return max.get();
+	}
+
+	void reset()
+	{
+		for ( int i = 0; i < NUM_BUCKETS; ++i )
+			buckets.set( i, 0 );
+		count.set( 0 );
+		total.set( 0 );
+		max.set( 0 );
+	}
+
+	LatencySummary summary( final String name )
+	{
+		final long n = count();
+		return new LatencySummary(
+				name,
+				n,
+				n == 0 ? 0 : totalNanos() / n,
+				percentileNanos( 0.5 ),
+				percentileNanos( 0.9 ),
+				percentileNanos( 0.99 ),
+				maxNanos() );
+	}
+}
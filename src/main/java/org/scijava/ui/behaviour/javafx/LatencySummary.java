@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of a latency histogram, as exposed by {@link DispatchMetricsMXBean}.
+ * All durations are in nanoseconds. Percentiles are upper bounds, accurate to
+ * within a factor of two.
+ */
+public final class LatencySummary
+{
+	private final String name;
+
+	private final long count;
+
+	private final long meanNanos;
+
+	private final long p50Nanos;
+
+	private final long p90Nanos;
+
+	private final long p99Nanos;
+
+	private final long maxNanos;
+
+	@ConstructorProperties( { "name", "count", "meanNanos", "p50Nanos", "p90Nanos", "p99Nanos", "maxNanos" } )
+	public LatencySummary(
+			final String name,
+			final long count,
+			final long meanNanos,
+			final long p50Nanos,
+			final long p90Nanos,
+			final long p99Nanos,
+			final long maxNanos )
+	{
+		this.name = name;
+		this.count = count;
+		this.meanNanos = meanNanos;
+		this.p50Nanos = p50Nanos;
+		this.p90Nanos = p90Nanos;
+		this.p99Nanos = p99Nanos;
+		this.maxNanos = maxNanos;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getMeanNanos()
+	{
+		return meanNanos;
+	}
+
+	public long getP50Nanos()
+	{
+		return p50Nanos;
+	}
+
+	public long getP90Nanos()
+	{
+		return p90Nanos;
+	}
+
+	public long getP99Nanos()
+	{
+		return p99Nanos;
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format( "%s: n=%d mean=%dns p50<=%dns p90<=%dns p99<=%dns max=%dns",
+				name, count, meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos );
+	}
+}
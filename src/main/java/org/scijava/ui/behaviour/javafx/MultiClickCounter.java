@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+/**
+ * Counts multi-clicks (double-clicks, triple-clicks, ...) of keys and mouse
+ * buttons.
+ * <p>
+ * A press continues the multi-click of the previous press of the same key or
+ * button if it follows within the multi-click interval. Recent presses are
+ * kept in a ring buffer of fixed size, so memory is bounded regardless of how
+ * many different keys are pressed over time. Timestamps are
+ * {@link System#nanoTime()}-based.
+ */
+final class MultiClickCounter
+{
+	/**
+	 * Number of recent presses that are remembered. Must be a power of two.
+	 */
+	static final int CAPACITY = 16;
+
+	private final int[] codes = new int[ CAPACITY ];
+
+	private final long[] times = new long[ CAPACITY ];
+
+	private final int[] counts = new int[ CAPACITY ];
+
+	/**
+	 * Index where the next press is stored.
+	 */
+	private int head;
+
+	/**
+	 * Number of valid entries.
+	 */
+	private int size;
+
+	/**
+	 * Code used for mouse button {@code button} (1, 2, 3). Key codes are
+	 * non-negative, so these do not collide.
+	 */
+	static int buttonCode( final int button )
+	{
+		return -button;
+	}
+
+	/**
+	 * Record a press of {@code code} at time {@code now}.
+	 *
+	 * @param code
+	 *            key code, or {@link #buttonCode(int)}
+	 * @param now
+	 *            time of the press, in nanoseconds
+	 * @param intervalNanos
+	 *            maximum time between consecutive presses of a multi-click
+	 * @return click count: 1 for a single click, 2 for a double-click, etc.
+	 */
+	int press( final int code, final long now, final long intervalNanos )
+	{
+		int count = 1;
+		for ( int i = 1; i <= size; ++i )
+		{
+			final int j = ( head - i ) & ( CAPACITY - 1 );
+			if ( codes[ j ] == code )
+			{
+				if ( now - times[ j ] < intervalNanos )
+					count = counts[ j ] + 1;
+				break;
+			}
+		}
+
+		codes[ head ] = code;
+		times[ head ] = now;
+		counts[ head ] = count;
+		head = ( head + 1 ) & ( CAPACITY - 1 );
+		if ( size < CAPACITY )
+			++size;
+		return count;
+	}
+
+	void clear()
+	{
+		head = 0;
+		size = 0;
+	}
+
+	void set( final MultiClickCounter other )
+	{
+		System.arraycopy( other.codes, 0, codes, 0, CAPACITY );
+		System.arraycopy( other.times, 0, times, 0, CAPACITY );
+		System.arraycopy( other.counts, 0, counts, 0, CAPACITY );
+		head = other.head;
+		size = other.size;
+	}
+}
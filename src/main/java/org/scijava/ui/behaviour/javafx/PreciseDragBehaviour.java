@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import org.scijava.ui.behaviour.DragBehaviour;
+
+/**
+ * A {@link DragBehaviour} that receives sub-pixel mouse coordinates.
+ * <p>
+ * {@link JfxMouseAndKeyHandler} calls the {@code double} methods of this
+ * interface instead of the {@code int} methods of {@link DragBehaviour}. The
+ * {@code int} methods forward to the {@code double} methods, so a
+ * {@code PreciseDragBehaviour} can be used wherever a {@link DragBehaviour} is
+ * expected.
+ */
+public interface PreciseDragBehaviour extends DragBehaviour
+{
+	void init( double x, double y );
+
+	void drag( double x, double y );
+
+	void end( double x, double y );
+
+	@Override
+	default void init( final int x, final int y )
+	{
+		init( ( double ) x, ( double ) y );
+	}
+
+	@Override
+	default void drag( final int x, final int y )
+	{
+		drag( ( double ) x, ( double ) y );
+	}
+
+	@Override
+	default void end( final int x, final int y )
+	{
+		end( ( double ) x, ( double ) y );
+	}
+}
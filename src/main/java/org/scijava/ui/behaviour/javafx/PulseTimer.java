@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * A timer that runs a task once per JavaFX frame while it is started.
+ * <p>
+ * {@link #animationTimer(Runnable)} creates one backed by an
+ * {@link AnimationTimer}, which needs a running JavaFX toolkit. Tests without
+ * a toolkit use timers that do nothing, and run frames directly.
+ */
+interface PulseTimer
+{
+	void start();
+
+	void stop();
+
+	/**
+	 * Create a timer that runs {@code frame} on every JavaFX pulse while it is
+	 * started.
+	 */
+	static PulseTimer animationTimer( final Runnable frame )
+	{
+		final AnimationTimer timer = new AnimationTimer()
+		{
+			@Override
+			public void handle( final long now )
+			{
+				frame.run();
+			}
+		};
+		return new PulseTimer()
+		{
+			@Override
+			public void start()
+			{
+				timer.start();
+			}
+
+			@Override
+			public void stop()
+			{
+				timer.stop();
+			}
+		};
+	}
+}
@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import org.scijava.ui.behaviour.Behaviour;
+
+/**
+ * A {@link Behaviour} that reacts to rotation gestures
+ * ({@link javafx.scene.input.RotateEvent}).
+ * <p>
+ * Rotate behaviours are bound like scroll behaviours, to triggers such as
+ * {@code "scroll"} or {@code "ctrl scroll"}, but only rotation gestures are
+ * dispatched to them (not mouse wheel scrolls). {@link JfxMouseAndKeyHandler}
+ * merges the gesture samples of one frame, so {@link #rotate} is called at
+ * most once per frame (per modifier combination).
+ */
+public interface RotateBehaviour extends Behaviour
+{
+	/**
+	 * @param angle
+	 *            rotation angle in degrees (relative to the previous call),
+	 *            clockwise
+	 * @param x
+	 *            mouse x
+	 * @param y
+	 *            mouse y
+	 */
+	void rotate( double angle, double x, double y );
+}
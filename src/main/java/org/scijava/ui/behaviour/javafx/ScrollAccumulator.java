@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+/**
+ * Accumulated scroll deltas for one modifier mask.
+ * <p>
+ * Keeps track of the deltas that are pending for delivery at the next pulse
+ * ({@link #dX}, {@link #dY}), and of inertia deltas that are held back for
+ * decimation ({@link #inertiaDX}, {@link #inertiaDY}).
+ */
+final class ScrollAccumulator
+{
+	final int mask;
+
+	double dX;
+
+	double dY;
+
+	double x;
+
+	double y;
+
+	boolean pending;
+
+	double inertiaDX;
+
+	double inertiaDY;
+
+	int inertiaCount;
+
+	ScrollAccumulator( final int mask )
+	{
+		this.mask = mask;
+	}
+
+	void add( final double dX, final double dY, final double x, final double y )
+	{
+		this.dX += dX;
+		this.dY += dY;
+		this.x = x;
+		this.y = y;
+		pending = true;
+	}
+
+	void clear()
+	{
+		dX = 0;
+		dY = 0;
+		pending = false;
+	}
+
+	void clearInertia()
+	{
+		inertiaDX = 0;
+		inertiaDY = 0;
+		inertiaCount = 0;
+	}
+}
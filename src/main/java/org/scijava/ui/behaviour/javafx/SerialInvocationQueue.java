@@ -0,0 +1,303 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Queue of behaviour invocations that are executed one after another on an
+ * {@link Executor}.
+ * <p>
+ * Invocations are executed in the order they were submitted, with two
+ * exceptions: a {@code drag()} that has not started yet is replaced by a newer
+ * {@code drag()} (latest wins), and a {@code scroll()} that has not started
+ * yet is merged with a newer {@code scroll()} along the same axis (amounts
+ * are summed), even if scrolls along the other axis were queued in between.
+ * Invocations are never coalesced across a {@code click()}, {@code init()}, or
+ * {@code end()}. Thus, {@code init()}, {@code drag()}, and {@code end()} are
+ * always seen in order, but slow behaviours do not accumulate a backlog of
+ * stale drag positions.
+ * <p>
+ * Coordinates are passed on as {@code double}s to
+ * {@link PreciseClickBehaviour}s, {@link PreciseDragBehaviour}s, and
+ * {@link PreciseScrollBehaviour}s, and truncated to {@code int}s for other
+ * behaviours.
+ */
+final class SerialInvocationQueue
+{
+	private static final int CLICK = 0;
+
+	private static final int INIT = 1;
+
+	private static final int DRAG = 2;
+
+	private static final int END = 3;
+
+	private static final int SCROLL = 4;
+
+	private static final class Invocation
+	{
+		int kind;
+
+		double x;
+
+		double y;
+
+		double amount;
+
+		boolean isHorizontal;
+	}
+
+	private final Executor executor;
+
+	private final ArrayDeque< Invocation > queue = new ArrayDeque<>();
+
+	/**
+	 * Recycled {@link Invocation}s.
+	 */
+	private final ArrayDeque< Invocation > free = new ArrayDeque<>();
+
+	/*
+	 * Queued invocations that newer ones may be merged into, or null. Guarded
+	 * by this.
+	 */
+
+	private Invocation pendingDrag;
+
+	private Invocation pendingHorizontalScroll;
+
+	private Invocation pendingVerticalScroll;
+
+	/**
+	 * Whether a {@link #drain} task is scheduled or running.
+	 */
+	private boolean draining = false;
+
+	private final Runnable drain = this::drain;
+
+	private ClickBehaviour click;
+
+	private DragBehaviour drag;
+
+	private ScrollBehaviour scroll;
+
+	SerialInvocationQueue( final Executor executor )
+	{
+		this.executor = executor;
+	}
+
+	SerialInvocationQueue( final ClickBehaviour click, final Executor executor )
+	{
+		this( executor );
+		this.click = click;
+	}
+
+	SerialInvocationQueue( final DragBehaviour drag, final Executor executor )
+	{
+		this( executor );
+		this.drag = drag;
+	}
+
+	SerialInvocationQueue( final ScrollBehaviour scroll, final Executor executor )
+	{
+		this( executor );
+		this.scroll = scroll;
+	}
+
+	void click( final double x, final double y )
+	{
+		submit( CLICK, x, y, 0, false );
+	}
+
+	void init( final double x, final double y )
+	{
+		submit( INIT, x, y, 0, false );
+	}
+
+	void drag( final double x, final double y )
+	{
+		submit( DRAG, x, y, 0, false );
+	}
+
+	void end( final double x, final double y )
+	{
+		submit( END, x, y, 0, false );
+	}
+
+	void scroll( final double amount, final boolean isHorizontal, final double x, final double y )
+	{
+		submit( SCROLL, x, y, amount, isHorizontal );
+	}
+
+	private void submit( final int kind, final double x, final double y, final double amount, final boolean isHorizontal )
+	{
+		synchronized ( this )
+		{
+			if ( kind == DRAG && pendingDrag != null )
+			{
+				pendingDrag.x = x;
+				pendingDrag.y = y;
+				return;
+			}
+			if ( kind == SCROLL )
+			{
+				final Invocation last = isHorizontal ? pendingHorizontalScroll : pendingVerticalScroll;
+				if ( last != null )
+				{
+					last.amount += amount;
+					last.x = x;
+					last.y = y;
+					return;
+				}
+			}
+
+			final Invocation invocation = free.isEmpty() ? new Invocation() : free.poll();
+			invocation.kind = kind;
+			invocation.x = x;
+			invocation.y = y;
+			invocation.amount = amount;
+			invocation.isHorizontal = isHorizontal;
+			queue.add( invocation );
+			if ( kind == DRAG )
+				pendingDrag = invocation;
+			else if ( kind == SCROLL )
+			{
+				if ( isHorizontal )
+					pendingHorizontalScroll = invocation;
+				else
+					pendingVerticalScroll = invocation;
+			}
+			else
+			{
+				pendingDrag = null;
+				pendingHorizontalScroll = null;
+				pendingVerticalScroll = null;
+			}
+
+			if ( draining )
+				return;
+			draining = true;
+		}
+
+		try
+		{
+			executor.execute( drain );
+		}
+		catch ( final RuntimeException e )
+		{
+			synchronized ( this )
+			{
+				draining = false;
+			}
+			throw e;
+		}
+	}
+
+	private void drain()
+	{
+		final Invocation invocation = new Invocation();
+		while ( true )
+		{
+			synchronized ( this )
+			{
+				final Invocation next = queue.poll();
+				if ( next == null )
+				{
+					draining = false;
+					return;
+				}
+				invocation.kind = next.kind;
+				invocation.x = next.x;
+				invocation.y = next.y;
+				invocation.amount = next.amount;
+				invocation.isHorizontal = next.isHorizontal;
+				if ( next == pendingDrag )
+					pendingDrag = null;
+				else if ( next == pendingHorizontalScroll )
+					pendingHorizontalScroll = null;
+				else if ( next == pendingVerticalScroll )
+					pendingVerticalScroll = null;
+				free.add( next );
+			}
+
+			try
+			{
+				invoke( invocation );
+			}
+			catch ( final RuntimeException e )
+			{
+				final Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException( thread, e );
+			}
+		}
+	}
+
+	private void invoke( final Invocation invocation )
+	{
+		final double x = invocation.x;
+		final double y = invocation.y;
+		switch ( invocation.kind )
+		{
+		case CLICK:
+			if ( click instanceof PreciseClickBehaviour )
+				( ( PreciseClickBehaviour ) click ).click( x, y );
+			else
+				click.click( ( int ) x, ( int ) y );
+			break;
+		case INIT:
+			if ( drag instanceof PreciseDragBehaviour )
+				( ( PreciseDragBehaviour ) drag ).init( x, y );
+			else
+				drag.init( ( int ) x, ( int ) y );
+			break;
+		case DRAG:
+			if ( drag instanceof PreciseDragBehaviour )
+				( ( PreciseDragBehaviour ) drag ).drag( x, y );
+			else
+				drag.drag( ( int ) x, ( int ) y );
+			break;
+		case END:
+			if ( drag instanceof PreciseDragBehaviour )
+				( ( PreciseDragBehaviour ) drag ).end( x, y );
+			else
+				drag.end( ( int ) x, ( int ) y );
+			break;
+		case SCROLL:
+			if ( scroll instanceof PreciseScrollBehaviour )
+				( ( PreciseScrollBehaviour ) scroll ).scroll( invocation.amount, invocation.isHorizontal, x, y );
+			else
+				scroll.scroll( invocation.amount, invocation.isHorizontal, ( int ) x, ( int ) y );
+			break;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+/**
+ * An {@link InputTriggerMap} and {@link BehaviourMap} together with their
+ * compiled bindings, which can be shared by many
+ * {@link JfxMouseAndKeyHandler}s.
+ * <p>
+ * The compiled bindings are an immutable snapshot. All handlers that use the
+ * same {@code SharedBindings} dispatch through the same snapshot, and when
+ * the maps are modified, the new snapshot is compiled once (by whichever
+ * handler notices first, or by {@link #refresh()}) and picked up by all
+ * handlers. Per-handler state is limited to pressed keys, active drags, and
+ * the like.
+ * <p>
+ * The {@link InputTriggerMap} and {@link BehaviourMap} do not notify about
+ * modifications, so handlers compare their versions ({@code modCount()})
+ * with those of the snapshot at the start of each gesture (mouse and key
+ * presses, scrolls, and touch gestures), on the JavaFX application thread.
+ * Mouse moves, drags, and releases only read the snapshot (a single volatile
+ * read).
+ * <p>
+ * Reading the modified maps is O(n) in the number of bindings, because
+ * {@link InputTriggerMap#getAllBindings()} is the only way to find out what
+ * changed. Only the changed parts are recompiled, though: {@link Binding}s
+ * whose trigger and behaviour did not change are kept, and so are the
+ * {@link TriggerIndex} buckets (with their cached lookups) whose bindings did
+ * not change.
+ * <p>
+ * Usage, for several windows with the same keymap:
+ *
+ * <pre>
+ * final SharedBindings bindings = new SharedBindings( inputMap, behaviourMap );
+ * for ( final Scene scene : scenes )
+ * {
+ * 	final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+ * 	handler.setBindings( bindings );
+ * 	handler.install( scene );
+ * }
+ * </pre>
+ */
+public final class SharedBindings
+{
+	private volatile InputTriggerMap inputMap;
+
+	private volatile BehaviourMap behaviourMap;
+
+	/**
+	 * Key sequences, see {@link #addKeySequence(String, String)}. Guarded by
+	 * {@code this}.
+	 */
+	private final KeySequences keySequences = new KeySequences();
+
+	/**
+	 * The most recently compiled bindings. Replaced (never modified) when the
+	 * {@link InputTriggerMap} or {@link BehaviourMap} changes.
+	 */
+	private volatile CompiledBindings compiled = CompiledBindings.EMPTY;
+
+	/**
+	 * Notified (on the compiling thread) when {@link #compiled} is replaced.
+	 */
+	private final CopyOnWriteArrayList< Runnable > compiledListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param inputMap
+	 *            maps triggers to behaviour names. May be {@code null}, in
+	 *            which case there are no bindings.
+	 * @param behaviourMap
+	 *            maps behaviour names to behaviours. May be {@code null}, in
+	 *            which case there are no bindings.
+	 */
+	public SharedBindings( final InputTriggerMap inputMap, final BehaviourMap behaviourMap )
+	{
+		this.inputMap = inputMap;
+		this.behaviourMap = behaviourMap;
+	}
+
+	public InputTriggerMap getInputMap()
+	{
+		return inputMap;
+	}
+
+	public BehaviourMap getBehaviourMap()
+	{
+		return behaviourMap;
+	}
+
+	/**
+	 * Replace the {@link InputTriggerMap}, for all handlers that use these
+	 * bindings, and compile the new bindings.
+	 * <p>
+	 * Bindings that are the same in the new map (same trigger, behaviour
+	 * name, and behaviour) are kept, so drags that are active in any handler
+	 * continue across the switch.
+	 *
+	 * @param inputMap
+	 *            maps triggers to behaviour names. May be {@code null}, in
+	 *            which case there are no bindings.
+	 */
+	public void setInputMap( final InputTriggerMap inputMap )
+	{
+		synchronized ( this )
+		{
+			this.inputMap = inputMap;
+		}
+		compile();
+	}
+
+	/**
+	 * Replace the {@link BehaviourMap}, for all handlers that use these
+	 * bindings, and compile the new bindings.
+	 * <p>
+	 * Bindings that are the same in the new map (same trigger, behaviour
+	 * name, and behaviour) are kept, so drags that are active in any handler
+	 * continue across the switch.
+	 *
+	 * @param behaviourMap
+	 *            maps behaviour names to behaviours. May be {@code null}, in
+	 *            which case there are no bindings.
+	 */
+	public void setBehaviourMap( final BehaviourMap behaviourMap )
+	{
+		synchronized ( this )
+		{
+			this.behaviourMap = behaviourMap;
+		}
+		compile();
+	}
+
+	/**
+	 * Bind a multi-stroke key sequence to the {@link ClickBehaviour} with the
+	 * given name (in the {@link BehaviourMap}), for all handlers that use
+	 * these bindings, and compile the new bindings.
+	 * <p>
+	 * Key sequences are kept here rather than in the {@link InputTriggerMap},
+	 * because {@link InputTrigger} cannot represent them. See
+	 * {@link JfxMouseAndKeyHandler#addKeySequence(String, String)} for how
+	 * they are typed.
+	 *
+	 * @param sequence
+	 *            comma-separated key triggers, for example
+	 *            {@code "ctrl X, ctrl S"}.
+	 * @param behaviourName
+	 *            name of the behaviour
+	 * @throws IllegalArgumentException
+	 *             if the sequence contains an empty step or a trigger that is
+	 *             not key-triggered
+	 */
+	public void addKeySequence( final String sequence, final String behaviourName )
+	{
+		final InputTrigger[] steps = KeySequences.parse( sequence );
+		synchronized ( this )
+		{
+			keySequences.add( steps, behaviourName );
+		}
+		compile();
+	}
+
+	/**
+	 * Remove all key sequences bound to the behaviour with the given name,
+	 * and compile the new bindings.
+	 */
+	public void removeKeySequences( final String behaviourName )
+	{
+		synchronized ( this )
+		{
+			keySequences.remove( behaviourName );
+		}
+		compile();
+	}
+
+	/**
+	 * Bring the compiled bindings up to date with the {@link InputTriggerMap}
+	 * and {@link BehaviourMap}, if they have been modified.
+	 * <p>
+	 * Modifications are picked up automatically at the start of the next
+	 * gesture. Calling {@code refresh()} right after switching bindings (for
+	 * example, when changing tool modes) avoids doing that work while
+	 * handling the next event.
+	 * <p>
+	 * The maps are not thread-safe, so this must be called on the thread that
+	 * modifies them, normally the JavaFX application thread. (Compiling maps
+	 * that are not modified concurrently, for example a keymap that is being
+	 * loaded, is fine on any thread; the new bindings are published
+	 * atomically.)
+	 */
+	public void refresh()
+	{
+		get();
+	}
+
+	/**
+	 * Get the most recently compiled bindings, without checking whether they
+	 * are up to date.
+	 */
+	CompiledBindings current()
+	{
+		return compiled;
+	}
+
+	/**
+	 * Get up-to-date compiled bindings, compiling them if the maps have been
+	 * modified.
+	 */
+	CompiledBindings get()
+	{
+		final CompiledBindings c = compiled;
+		return c.isCompiledFrom( inputMap, behaviourMap, keySequences ) ? c : compile();
+	}
+
+	/**
+	 * Add a listener that is run whenever a new snapshot has been compiled.
+	 * It runs on the thread that compiled the snapshot.
+	 */
+	void addCompiledListener( final Runnable listener )
+	{
+		compiledListeners.add( listener );
+	}
+
+	void removeCompiledListener( final Runnable listener )
+	{
+		compiledListeners.remove( listener );
+	}
+
+	private CompiledBindings compile()
+	{
+		final CompiledBindings previous;
+		final CompiledBindings c;
+		synchronized ( this )
+		{
+			previous = compiled;
+			c = previous.isCompiledFrom( inputMap, behaviourMap, keySequences )
+					? previous
+					: CompiledBindings.compile( previous, inputMap, behaviourMap, keySequences );
+			compiled = c;
+		}
+		if ( c != previous )
+			for ( final Runnable listener : compiledListeners )
+				listener.run();
+		return c;
+	}
+}
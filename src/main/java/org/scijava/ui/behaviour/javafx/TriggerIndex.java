@@ -0,0 +1,337 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.scijava.ui.behaviour.Behaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * Dispatch table for {@link Binding}s of one kind (button drags, key clicks,
+ * scrolls, etc).
+ * <p>
+ * Bindings are indexed up front by the {@link KeyBits key set} of their
+ * trigger. A binding can only match if the pressed keys equal its key set, so
+ * looking up the bindings that match a given modifier mask and set of pressed
+ * keys is one hash lookup for the bucket of the pressed keys, plus a scan of
+ * the few bindings in that bucket (which differ only in their modifiers).
+ * Pressed keys that no trigger uses have no bucket, and match nothing.
+ * <p>
+ * Bindings whose trigger could not be compiled (see {@link CompiledTrigger})
+ * are not in any bucket, and are checked for every key set. If there are such
+ * bindings, buckets are also created for the key sets that are looked up,
+ * up to {@value #MAX_BUCKETS} of them.
+ * <p>
+ * Each bucket remembers the result of a lookup per modifier mask, so that
+ * subsequent lookups do not scan the bucket, and return a shared array. The
+ * memo of a bucket holds at most {@value #MAX_MASKS} masks. Beyond that, the
+ * oldest entries are replaced one at a time.
+ * <p>
+ * A {@link TriggerIndex} is immutable with respect to its bindings. When the
+ * bindings change, a new index must be built. Buckets whose bindings did not
+ * change then keep their remembered lookups (see
+ * {@link #TriggerIndex(TriggerIndex, List)}). An index may be shared by several
+ * handlers, and used from several threads: lookups do not lock, and
+ * remembered results are published by replacing the (small) memo of the
+ * bucket (copy-on-write).
+ *
+ * @param <T>
+ *            behaviour type
+ */
+final class TriggerIndex< T extends Behaviour >
+{
+	/**
+	 * Maximum number of buckets created for key sets that no compiled trigger
+	 * uses. Beyond that, lookups for new key sets are not remembered. This can
+	 * only happen for pathological input (lots of different keys pressed
+	 * simultaneously), and keeps memory bounded.
+	 */
+	private static final int MAX_BUCKETS = 4096;
+
+	/**
+	 * Maximum number of modifier masks remembered per bucket.
+	 */
+	private static final int MAX_MASKS = 32;
+
+	private final ArrayList< Binding< T > > bindings = new ArrayList<>();
+
+	/**
+	 * Buckets by key set.
+	 */
+	private final ConcurrentHashMap< KeyBits, Bucket< T > > buckets = new ConcurrentHashMap<>();
+
+	/**
+	 * Bindings that are not compiled, and their positions in
+	 * {@link #bindings}.
+	 */
+	private final ArrayList< Binding< T > > uncompiled = new ArrayList<>();
+
+	private int[] uncompiledPositions = new int[ 0 ];
+
+	private final Binding< T >[] none;
+
+	TriggerIndex()
+	{
+		none = newArray( 0 );
+	}
+
+	/**
+	 * Create an index for the given bindings.
+	 */
+	TriggerIndex( final List< Binding< T > > bindings )
+	{
+		this();
+		for ( final Binding< T > binding : bindings )
+			add( binding );
+	}
+
+	/**
+	 * Create an index for the given bindings, which replaces
+	 * {@code previous}. Buckets that have the same bindings as in
+	 * {@code previous}, in the same order, take over its remembered lookups,
+	 * so that only the buckets of key sets whose bindings changed start out
+	 * empty. (Not if either index has {@link #uncompiled} bindings, because
+	 * these are part of the remembered lookups of every bucket.)
+	 */
+	TriggerIndex( final TriggerIndex< T > previous, final List< Binding< T > > bindings )
+	{
+		this( bindings );
+		if ( !uncompiled.isEmpty() || !previous.uncompiled.isEmpty() )
+			return;
+		buckets.forEach( ( keys, bucket ) -> {
+			final Bucket< T > old = previous.buckets.get( keys );
+			if ( old != null && old.hasBindings( bucket.bindings ) )
+				bucket.memo = old.memo;
+		} );
+	}
+
+	/**
+	 * Add a binding. Must not be called after the first {@link #get}.
+	 */
+	void add( final InputTrigger buttons, final T behaviour )
+	{
+		add( new Binding<>( buttons, behaviour ) );
+	}
+
+	private void add( final Binding< T > binding )
+	{
+		final int position = bindings.size();
+		bindings.add( binding );
+		final KeyBits keys = binding.keys();
+		if ( keys == null )
+		{
+			uncompiled.add( binding );
+			uncompiledPositions = append( uncompiledPositions, position );
+		}
+		else
+			buckets.computeIfAbsent( keys, k -> new Bucket<>() ).add( binding, position );
+	}
+
+	boolean isEmpty()
+	{
+		return bindings.isEmpty();
+	}
+
+	/**
+	 * Check whether this index has exactly the given bindings, in the same
+	 * order. Bindings are compared by identity.
+	 */
+	boolean hasBindings( final List< Binding< T > > bindings )
+	{
+		return sameBindings( this.bindings, bindings );
+	}
+
+	/**
+	 * Get all bindings whose trigger matches {@code mask} or
+	 * {@code alternativeMask} (if different from {@code mask}) together with
+	 * {@code pressedKeys}. Bindings are returned in the order they were added.
+	 *
+	 * @return matching bindings. The returned array is shared and must not be
+	 *         modified.
+	 */
+	Binding< T >[] get( final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		if ( bindings.isEmpty() )
+			return none;
+
+		Bucket< T > bucket = buckets.get( pressedKeys );
+		if ( bucket == null )
+		{
+			if ( uncompiled.isEmpty() )
+				return none;
+			if ( buckets.size() >= MAX_BUCKETS )
+				return match( null, mask, alternativeMask, pressedKeys );
+			final Bucket< T > b = buckets.putIfAbsent( new KeyBits( pressedKeys ), bucket = new Bucket<>() );
+			if ( b != null )
+				bucket = b;
+		}
+
+		final Entry< T >[] memo = bucket.memo;
+		for ( final Entry< T > entry : memo )
+			if ( entry.mask == mask && entry.alternativeMask == alternativeMask )
+				return entry.matches;
+
+		final Binding< T >[] matches = match( bucket, mask, alternativeMask, pressedKeys );
+		bucket.remember( new Entry<>( mask, alternativeMask, matches ) );
+		return matches;
+	}
+
+	/**
+	 * Find the bindings of {@code bucket} (if not {@code null}) and the
+	 * {@link #uncompiled} bindings that match, in the order they were added.
+	 */
+	private Binding< T >[] match( final Bucket< T > bucket, final int mask, final int alternativeMask, final KeyBits pressedKeys )
+	{
+		final ArrayList< Binding< T > > matches = new ArrayList<>();
+		final int nb = bucket == null ? 0 : bucket.bindings.size();
+		final int nu = uncompiled.size();
+		for ( int i = 0, j = 0; i < nb || j < nu; )
+		{
+			final Binding< T > binding;
+			if ( j == nu || ( i < nb && bucket.positions[ i ] < uncompiledPositions[ j ] ) )
+				binding = bucket.bindings.get( i++ );
+			else
+				binding = uncompiled.get( j++ );
+			if ( binding.matches( mask, pressedKeys ) ||
+					( alternativeMask != mask && binding.matches( alternativeMask, pressedKeys ) ) )
+				matches.add( binding );
+		}
+		return matches.isEmpty() ? none : matches.toArray( newArray( matches.size() ) );
+	}
+
+	private static < T extends Behaviour > boolean sameBindings( final List< Binding< T > > a, final List< Binding< T > > b )
+	{
+		if ( a.size() != b.size() )
+			return false;
+		for ( int i = 0; i < a.size(); ++i )
+			if ( a.get( i ) != b.get( i ) )
+				return false;
+		return true;
+	}
+
+	private static int[] append( final int[] array, final int value )
+	{
+		final int[] a = new int[ array.length + 1 ];
+		System.arraycopy( array, 0, a, 0, array.length );
+		a[ array.length ] = value;
+		return a;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private Binding< T >[] newArray( final int length )
+	{
+		return new Binding[ length ];
+	}
+
+	/**
+	 * The bindings whose trigger has a given key set, and the results of
+	 * lookups for that key set.
+	 */
+	private static final class Bucket< T extends Behaviour >
+	{
+		/**
+		 * Bindings in this bucket, and their positions in
+		 * {@link TriggerIndex#bindings}.
+		 */
+		final ArrayList< Binding< T > > bindings = new ArrayList<>();
+
+		int[] positions = new int[ 0 ];
+
+		/**
+		 * Previously computed matches. Never modified after it has been
+		 * published.
+		 */
+		volatile Entry< T >[] memo = newMemo( 0 );
+
+		/**
+		 * Index of the memo entry to replace next, once the memo is full.
+		 * Guarded by {@code this}.
+		 */
+		private int replace;
+
+		void add( final Binding< T > binding, final int position )
+		{
+			bindings.add( binding );
+			positions = append( positions, position );
+		}
+
+		boolean hasBindings( final List< Binding< T > > bindings )
+		{
+			return sameBindings( this.bindings, bindings );
+		}
+
+		/**
+		 * Add {@code entry} to a copy of the {@link #memo}, and publish the
+		 * copy. (If another thread inserted the same masks concurrently, the
+		 * memo contains them twice. This is harmless.)
+		 */
+		synchronized void remember( final Entry< T > entry )
+		{
+			final Entry< T >[] old = memo;
+			final Entry< T >[] m;
+			if ( old.length < MAX_MASKS )
+			{
+				m = newMemo( old.length + 1 );
+				System.arraycopy( old, 0, m, 0, old.length );
+				m[ old.length ] = entry;
+			}
+			else
+			{
+				m = old.clone();
+				m[ replace ] = entry;
+				replace = ( replace + 1 ) % MAX_MASKS;
+			}
+			memo = m;
+		}
+
+		@SuppressWarnings( "unchecked" )
+		private static < T extends Behaviour > Entry< T >[] newMemo( final int length )
+		{
+			return new Entry[ length ];
+		}
+	}
+
+	private static final class Entry< T extends Behaviour >
+	{
+		final int mask;
+
+		final int alternativeMask;
+
+		final Binding< T >[] matches;
+
+		Entry( final int mask, final int alternativeMask, final Binding< T >[] matches )
+		{
+			this.mask = mask;
+			this.alternativeMask = alternativeMask;
+			this.matches = matches;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+public class AsyncBehavioursTest
+{
+	/**
+	 * Executor that runs tasks only when {@link #runAll()} is called.
+	 */
+	static class ManualExecutor implements Executor
+	{
+		final ArrayDeque< Runnable > tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute( final Runnable command )
+		{
+			tasks.add( command );
+		}
+
+		void runAll()
+		{
+			while ( !tasks.isEmpty() )
+				tasks.poll().run();
+		}
+	}
+
+	static class RecordingDrag implements DragBehaviour
+	{
+		final List< String > calls = new ArrayList<>();
+
+		@Override
+		public void init( final int x, final int y )
+		{
+			calls.add( "init " + x );
+		}
+
+		@Override
+		public void drag( final int x, final int y )
+		{
+			calls.add( "drag " + x );
+		}
+
+		@Override
+		public void end( final int x, final int y )
+		{
+			calls.add( "end " + x );
+		}
+	}
+
+	@Test
+	public void testDragOrderAndLatestWins()
+	{
+		final ManualExecutor executor = new ManualExecutor();
+		final RecordingDrag behaviour = new RecordingDrag();
+		final DragBehaviour async = AsyncBehaviours.drag( behaviour, executor );
+
+		async.init( 0, 0 );
+		async.drag( 1, 0 );
+		async.drag( 2, 0 );
+		async.drag( 3, 0 );
+		async.end( 4, 0 );
+		assertEquals( 0, behaviour.calls.size() );
+		assertEquals( 1, executor.tasks.size() );
+
+		executor.runAll();
+		assertEquals( Arrays.asList( "init 0", "drag 3", "end 4" ), behaviour.calls );
+
+		async.init( 5, 0 );
+		async.drag( 6, 0 );
+		executor.runAll();
+		async.drag( 7, 0 );
+		async.end( 8, 0 );
+		executor.runAll();
+		assertEquals( Arrays.asList( "init 0", "drag 3", "end 4", "init 5", "drag 6", "drag 7", "end 8" ), behaviour.calls );
+	}
+
+	@Test
+	public void testScrollsAreMergedPerAxis()
+	{
+		final ManualExecutor executor = new ManualExecutor();
+		final List< String > calls = new ArrayList<>();
+		final ScrollBehaviour async = AsyncBehaviours.scroll(
+				( amount, isHorizontal, x, y ) -> calls.add( amount + " " + isHorizontal ), executor );
+
+		async.scroll( 1, false, 0, 0 );
+		async.scroll( 2, false, 0, 0 );
+		async.scroll( 4, true, 0, 0 );
+		async.scroll( 8, true, 0, 0 );
+		async.scroll( 16, false, 0, 0 );
+		executor.runAll();
+		assertEquals( Arrays.asList( "19.0 false", "12.0 true" ), calls );
+	}
+
+	@Test
+	public void testNotCoalescedAcrossInitAndEnd()
+	{
+		final ManualExecutor executor = new ManualExecutor();
+		final RecordingDrag behaviour = new RecordingDrag();
+		final DragBehaviour async = AsyncBehaviours.drag( behaviour, executor );
+
+		async.init( 0, 0 );
+		async.drag( 1, 0 );
+		async.end( 2, 0 );
+		async.init( 3, 0 );
+		async.drag( 4, 0 );
+		async.drag( 5, 0 );
+		executor.runAll();
+		assertEquals( Arrays.asList( "init 0", "drag 1", "end 2", "init 3", "drag 5" ), behaviour.calls );
+	}
+
+	@Test
+	public void testPreciseCoordinates()
+	{
+		final ManualExecutor executor = new ManualExecutor();
+		final List< String > calls = new ArrayList<>();
+		final DragBehaviour async = AsyncBehaviours.drag( new PreciseDragBehaviour()
+		{
+			@Override
+			public void init( final double x, final double y )
+			{
+				calls.add( "init " + x );
+			}
+
+			@Override
+			public void drag( final double x, final double y )
+			{
+				calls.add( "drag " + x );
+			}
+
+			@Override
+			public void end( final double x, final double y )
+			{
+				calls.add( "end " + x );
+			}
+		}, executor );
+		assertTrue( async instanceof PreciseDragBehaviour );
+
+		final PreciseDragBehaviour precise = ( PreciseDragBehaviour ) async;
+		precise.init( 0.25, 0 );
+		precise.drag( 1.5, 0 );
+		precise.end( 2.75, 0 );
+		executor.runAll();
+		assertEquals( Arrays.asList( "init 0.25", "drag 1.5", "end 2.75" ), calls );
+
+		// plain behaviours receive truncated coordinates
+		final RecordingDrag plain = new RecordingDrag();
+		final PreciseDragBehaviour wrapped = ( PreciseDragBehaviour ) AsyncBehaviours.drag( plain, executor );
+		wrapped.init( 0.25, 0 );
+		wrapped.end( 2.75, 0 );
+		executor.runAll();
+		assertEquals( Arrays.asList( "init 0", "end 2" ), plain.calls );
+	}
+
+	interface DragAndScroll extends DragBehaviour, ScrollBehaviour
+	{}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testMultipleRolesAreRejected()
+	{
+		final DragAndScroll behaviour = new DragAndScroll()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{}
+
+			@Override
+			public void scroll( final double wheelRotation, final boolean isHorizontal, final int x, final int y )
+			{}
+		};
+		AsyncBehaviours.drag( behaviour, new ManualExecutor() );
+	}
+}
@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+public class BehaviourRegionsTest
+{
+	private int globalClicks;
+
+	private int globalScrolls;
+
+	private final int[] regionClicks = new int[ 3 ];
+
+	private JfxMouseAndKeyHandler createHandler( final BehaviourRegions regions )
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++globalClicks );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "click" );
+		behaviourMap.put( "scroll", ( ScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> ++globalScrolls );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		handler.setRegions( regions );
+		return handler;
+	}
+
+	private static void click( final JfxMouseAndKeyHandler handler, final double x, final double y )
+	{
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, x, y, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, x, y, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, x, y, NONE ) );
+	}
+
+	private BehaviourRegions.Region addRegion( final BehaviourRegions regions, final int i, final double minX, final double minY, final double maxX, final double maxY )
+	{
+		return regions.add( minX, minY, maxX, maxY ).bind( "button1", ( ClickBehaviour ) ( x, y ) -> ++regionClicks[ i ] );
+	}
+
+	@Test
+	public void testRegionTakesPrecedence()
+	{
+		final BehaviourRegions regions = new BehaviourRegions();
+		final JfxMouseAndKeyHandler handler = createHandler( regions );
+		addRegion( regions, 0, 10, 10, 20, 20 );
+		addRegion( regions, 1, 15, 15, 100, 100 );
+
+		click( handler, 12, 12 );
+		click( handler, 18, 18 );
+		click( handler, 90, 90 );
+		click( handler, 200, 200 );
+		assertEquals( 1, regionClicks[ 0 ] );
+		assertEquals( 2, regionClicks[ 1 ] );
+		assertEquals( 1, globalClicks );
+	}
+
+	@Test
+	public void testMoveAndRemove()
+	{
+		final BehaviourRegions regions = new BehaviourRegions();
+		final JfxMouseAndKeyHandler handler = createHandler( regions );
+		final BehaviourRegions.Region region = addRegion( regions, 0, 10, 10, 20, 20 );
+
+		region.setBounds( 500, 500, 510, 510 );
+		click( handler, 15, 15 );
+		click( handler, 505, 505 );
+		assertEquals( 1, regionClicks[ 0 ] );
+		assertEquals( 1, globalClicks );
+
+		region.remove();
+		assertEquals( 0, regions.size() );
+		click( handler, 505, 505 );
+		assertEquals( 1, regionClicks[ 0 ] );
+		assertEquals( 2, globalClicks );
+	}
+
+	@Test
+	public void testShape()
+	{
+		final BehaviourRegions regions = new BehaviourRegions();
+		final JfxMouseAndKeyHandler handler = createHandler( regions );
+		// disc of radius 10 around (50, 50)
+		regions.add( 40, 40, 60, 60, ( x, y ) -> ( x - 50 ) * ( x - 50 ) + ( y - 50 ) * ( y - 50 ) <= 100 )
+				.bind( "button1", ( ClickBehaviour ) ( x, y ) -> ++regionClicks[ 0 ] );
+		click( handler, 50, 55 );
+		click( handler, 41, 41 );
+		assertEquals( 1, regionClicks[ 0 ] );
+		assertEquals( 1, globalClicks );
+	}
+
+	@Test
+	public void testDragAndScroll()
+	{
+		final BehaviourRegions regions = new BehaviourRegions();
+		final JfxMouseAndKeyHandler handler = createHandler( regions );
+		final int[] drag = new int[ 3 ];
+		final int[] scrolls = new int[ 1 ];
+		regions.add( 0, 0, 10, 10 )
+				.bind( "button1", new DragBehaviour()
+				{
+					@Override
+					public void init( final int x, final int y )
+					{
+						++drag[ 0 ];
+					}
+
+					@Override
+					public void drag( final int x, final int y )
+					{
+						++drag[ 1 ];
+					}
+
+					@Override
+					public void end( final int x, final int y )
+					{
+						++drag[ 2 ];
+					}
+				} )
+				.bind( "scroll", ( ScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> ++scrolls[ 0 ] );
+
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 5, 5, NONE ) );
+		// the drag continues outside the region
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 50, 50, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 50, 50, NONE ) );
+		assertEquals( 1, drag[ 0 ] );
+		assertEquals( 1, drag[ 1 ] );
+		assertEquals( 1, drag[ 2 ] );
+
+		handler.handle( SyntheticEvents.scroll( 5, 5, 0, -40, false, NONE ) );
+		handler.handle( SyntheticEvents.scroll( 50, 50, 0, -40, false, NONE ) );
+		assertEquals( 1, scrolls[ 0 ] );
+		assertEquals( 1, globalScrolls );
+	}
+
+	@Test
+	public void testManyRegions()
+	{
+		final BehaviourRegions regions = new BehaviourRegions( 16 );
+		final ClickBehaviour click = ( x, y ) -> {};
+		BehaviourRegions.Region target = null;
+		for ( int i = 0; i < 100; ++i )
+			for ( int j = 0; j < 100; ++j )
+			{
+				final BehaviourRegions.Region region = regions.add( 10 * i, 10 * j, 10 * i + 8, 10 * j + 8 ).bind( "button1", click );
+				if ( i == 42 && j == 17 )
+					target = region;
+			}
+		// large region below everything
+		regions.add( -1e6, -1e6, 1e6, 1e6 ).bind( "button3", click );
+		assertEquals( 10001, regions.size() );
+
+		final int mask = InputTrigger.BUTTON1_DOWN_MASK;
+		final KeyBits keys = new KeyBits();
+		assertSame( target, regions.hit( 425, 175, BehaviourRegions.CLICK, mask, mask, keys ) );
+		assertNull( regions.hit( 429, 175, BehaviourRegions.CLICK, mask, mask, keys ) );
+		final int mask3 = InputTrigger.BUTTON3_DOWN_MASK;
+		assertNotNull( regions.hit( 429, 175, BehaviourRegions.CLICK, mask3, mask3, keys ) );
+	}
+
+	@Test( timeout = 10000 )
+	public void testFullRangeRegion()
+	{
+		// the cell count of this region does not fit into an int
+		final BehaviourRegions regions = new BehaviourRegions( 1 );
+		final JfxMouseAndKeyHandler handler = createHandler( regions );
+		addRegion( regions, 0, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE );
+		click( handler, 0, 0 );
+		click( handler, -1e9, 1e9 );
+		assertEquals( 2, regionClicks[ 0 ] );
+		assertEquals( 0, globalClicks );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testKeyTriggerRejected()
+	{
+		new BehaviourRegions().add( 0, 0, 1, 1 ).bind( "A", ( ClickBehaviour ) ( x, y ) -> {} );
+	}
+}
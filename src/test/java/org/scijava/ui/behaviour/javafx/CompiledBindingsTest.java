@@ -0,0 +1,183 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import gnu.trove.set.hash.TIntHashSet;
+import java.awt.event.KeyEvent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class CompiledBindingsTest
+{
+	private int inits;
+
+	private int clicks;
+
+	private final DragBehaviour drag = new DragBehaviour()
+	{
+		@Override
+		public void init( final int x, final int y )
+		{
+			++inits;
+		}
+
+		@Override
+		public void drag( final int x, final int y )
+		{}
+
+		@Override
+		public void end( final int x, final int y )
+		{}
+	};
+
+	private final ClickBehaviour click = ( x, y ) -> ++clicks;
+
+	@Test
+	public void testUnchangedPartsAreReused()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", drag );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMap.put( "click", click );
+		inputMap.put( InputTrigger.getFromString( "A" ), "click" );
+		final KeySequences keySequences = new KeySequences();
+
+		final CompiledBindings c1 = CompiledBindings.compile( CompiledBindings.EMPTY, inputMap, behaviourMap, keySequences );
+		assertTrue( c1.isCompiledFrom( inputMap, behaviourMap, keySequences ) );
+		final Binding< DragBehaviour >[] drags = c1.buttonDrags.get( InputTrigger.BUTTON1_DOWN_MASK, InputTrigger.BUTTON1_DOWN_MASK, new KeyBits() );
+		assertEquals( 1, drags.length );
+
+		// unrelated change to the BehaviourMap: everything is reused
+		behaviourMap.put( "unused", click );
+		assertTrue( !c1.isCompiledFrom( inputMap, behaviourMap, keySequences ) );
+		final CompiledBindings c2 = CompiledBindings.compile( c1, inputMap, behaviourMap, keySequences );
+		assertSame( c1.buttonDrags, c2.buttonDrags );
+		assertSame( c1.keyClicks, c2.keyClicks );
+
+		// new key binding: only the key click table is rebuilt, existing
+		// bindings are kept, and so are the lookups of the unchanged bucket
+		final KeyBits a = new KeyBits();
+		a.addAll( new TIntHashSet( new int[] { KeyEvent.VK_A } ) );
+		final Binding< ClickBehaviour >[] clicksOnA = c2.keyClicks.get( 0, 0, a );
+		inputMap.put( InputTrigger.getFromString( "B" ), "click" );
+		final CompiledBindings c3 = CompiledBindings.compile( c2, inputMap, behaviourMap, keySequences );
+		assertSame( c2.buttonDrags, c3.buttonDrags );
+		assertNotSame( c2.keyClicks, c3.keyClicks );
+		assertSame( clicksOnA, c3.keyClicks.get( 0, 0, a ) );
+		final KeyBits b = new KeyBits();
+		b.addAll( new TIntHashSet( new int[] { KeyEvent.VK_B } ) );
+		assertEquals( 1, c3.keyClicks.get( 0, 0, b ).length );
+
+		// replaced behaviour: the drag table is rebuilt with a new binding
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{}
+		} );
+		final CompiledBindings c4 = CompiledBindings.compile( c3, inputMap, behaviourMap, keySequences );
+		assertNotSame( c3.buttonDrags, c4.buttonDrags );
+		assertSame( c3.keyClicks, c4.keyClicks );
+		assertSame( KeySequences.Node.EMPTY, c4.keySequences );
+
+		// new key sequence: only the sequence trie is rebuilt
+		keySequences.add( KeySequences.parse( "ctrl X, A" ), "click" );
+		assertTrue( !c4.isCompiledFrom( inputMap, behaviourMap, keySequences ) );
+		final CompiledBindings c5 = CompiledBindings.compile( c4, inputMap, behaviourMap, keySequences );
+		assertSame( c4.buttonDrags, c5.buttonDrags );
+		assertSame( c4.keyClicks, c5.keyClicks );
+		final KeyBits x = new KeyBits();
+		x.addAll( new TIntHashSet( new int[] { KeyEvent.VK_X } ) );
+		final KeySequences.Node prefix = c5.keySequences.next( InputTrigger.getFromString( "ctrl X" ).getMask(), x );
+		assertTrue( prefix != null && !prefix.isComplete() );
+		assertTrue( prefix.next( 0, a ).isComplete() );
+		assertSame( c5.keySequences, CompiledBindings.compile( c5, inputMap, behaviourMap, keySequences ).keySequences );
+	}
+
+	@Test
+	public void testHandlerPicksUpChanges() throws Exception
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", drag );
+		inputMap.put( InputTrigger.getFromString( "G" ), "drag" );
+		behaviourMap.put( "click", click );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+
+		// start a key drag, then change the bindings while it is active
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 1, inits );
+		inputMap.put( InputTrigger.getFromString( "button3" ), "click" );
+
+		// compile in the background
+		final Thread thread = new Thread( handler::refresh );
+		thread.start();
+		thread.join();
+
+		// the active drag is not restarted by the recompilation
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 1, inits );
+
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 10, 10, NONE ) );
+		assertEquals( 1, clicks );
+
+		// changes are picked up without refresh(), when the next gesture starts
+		final CompiledBindings c = handler.getBindings().current();
+		inputMap.put( InputTrigger.getFromString( "A" ), "click" );
+		handler.handle( SyntheticEvents.moved( 10, 10 ) );
+		assertSame( c, handler.getBindings().current() );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		assertEquals( 2, clicks );
+	}
+}
@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import javafx.event.Event;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+public class ConsumeEventsTest
+{
+	private static JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{}
+		} );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> {} );
+		inputMap.put( InputTrigger.getFromString( "button3" ), "click" );
+		behaviourMap.put( "key", ( ClickBehaviour ) ( x, y ) -> {} );
+		inputMap.put( InputTrigger.getFromString( "A" ), "key" );
+		behaviourMap.put( "scroll", ( ScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> {} );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	private static boolean consumed( final JfxMouseAndKeyHandler handler, final Event event )
+	{
+		handler.handle( event );
+		return event.isConsumed();
+	}
+
+	@Test
+	public void testNotConsumedByDefault()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		assertFalse( consumed( handler, SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) ) );
+		assertFalse( consumed( handler, SyntheticEvents.keyPressed( KeyCode.A, NONE ) ) );
+	}
+
+	@Test
+	public void testConsumeEvents()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setConsumeEvents( true );
+		assertTrue( consumed( handler, SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) ) );
+		// releases and drags are not consumed
+		assertFalse( consumed( handler, SyntheticEvents.dragged( MouseButton.PRIMARY, 20, 20, NONE ) ) );
+		assertFalse( consumed( handler, SyntheticEvents.released( MouseButton.PRIMARY, 20, 20, NONE ) ) );
+
+		assertTrue( consumed( handler, SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 20, 20, NONE ) ) );
+		assertTrue( consumed( handler, SyntheticEvents.scroll( 20, 20, 0, -40, false, NONE ) ) );
+		assertTrue( consumed( handler, SyntheticEvents.keyPressed( KeyCode.A, NONE ) ) );
+		// auto-repeat
+		assertTrue( consumed( handler, SyntheticEvents.keyPressed( KeyCode.A, NONE ) ) );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.A, NONE ) );
+
+		// events that do not trigger anything are not consumed
+		assertFalse( consumed( handler, SyntheticEvents.keyPressed( KeyCode.B, NONE ) ) );
+		assertFalse( consumed( handler, SyntheticEvents.clicked( MouseButton.MIDDLE, 1, 20, 20, NONE ) ) );
+	}
+
+	@Test
+	public void testPerBehaviour()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setConsumeEvents( "key", true );
+		assertTrue( consumed( handler, SyntheticEvents.keyPressed( KeyCode.A, NONE ) ) );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.A, NONE ) );
+		assertFalse( consumed( handler, SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 20, 20, NONE ) ) );
+
+		handler.setConsumeEvents( true );
+		handler.setConsumeEvents( "click", false );
+		assertFalse( consumed( handler, SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 20, 20, NONE ) ) );
+		handler.setConsumeEvents( "click", null );
+		assertTrue( consumed( handler, SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 20, 20, NONE ) ) );
+	}
+
+	@Test
+	public void testRoutedKeyPress()
+	{
+		final KeyPressedRoutingTest.RoutingManager manager = new KeyPressedRoutingTest.RoutingManager();
+		final KeyPressedRoutingTest.Window w1 = new KeyPressedRoutingTest.Window( manager );
+		final KeyPressedRoutingTest.Window w2 = new KeyPressedRoutingTest.Window( manager );
+		w2.handler.setConsumeEvents( true );
+		w2.enter();
+		assertTrue( consumed( w1.handler, SyntheticEvents.keyPressed( KeyCode.C, NONE ) ) );
+	}
+}
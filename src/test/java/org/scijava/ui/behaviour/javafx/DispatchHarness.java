@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.List;
+import javafx.event.Event;
+
+/**
+ * Pushes a list of synthetic events through a {@link JfxMouseAndKeyHandler},
+ * without a window or a running JavaFX toolkit, and measures dispatch
+ * throughput.
+ */
+public final class DispatchHarness
+{
+	private DispatchHarness()
+	{}
+
+	/**
+	 * Result of {@link DispatchHarness#measure}.
+	 */
+	public static final class Throughput
+	{
+		public final long events;
+
+		public final long nanos;
+
+		Throughput( final long events, final long nanos )
+		{
+			this.events = events;
+			this.nanos = nanos;
+		}
+
+		public double eventsPerSecond()
+		{
+			return events * 1e9 / nanos;
+		}
+
+		public double nanosPerEvent()
+		{
+			return ( double ) nanos / events;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format( "%d events in %.1f ms: %.0f events/s (%.1f ns/event)",
+					events, nanos / 1e6, eventsPerSecond(), nanosPerEvent() );
+		}
+	}
+
+	/**
+	 * Feed {@code events} to {@code handler} once.
+	 */
+	public static void run( final JfxMouseAndKeyHandler handler, final List< Event > events )
+	{
+		for ( final Event event : events )
+			handler.handle( event );
+	}
+
+	/**
+	 * Feed {@code events} to {@code handler} repeatedly for about
+	 * {@code warmupMillis} without measuring, then repeatedly for at least
+	 * {@code measureMillis}, and report the throughput of the latter.
+	 */
+	public static Throughput measure(
+			final JfxMouseAndKeyHandler handler,
+			final List< Event > events,
+			final long warmupMillis,
+			final long measureMillis )
+	{
+		final Event[] script = events.toArray( new Event[ 0 ] );
+
+		final long warmupEnd = System.nanoTime() + warmupMillis * 1_000_000;
+		while ( System.nanoTime() < warmupEnd )
+			for ( final Event event : script )
+				handler.handle( event );
+
+		final long measureNanos = measureMillis * 1_000_000;
+		final long t0 = System.nanoTime();
+		long t = t0;
+		long n = 0;
+		while ( t - t0 < measureNanos )
+		{
+			for ( int i = 0; i < 100; ++i )
+				for ( final Event event : script )
+					handler.handle( event );
+			n += 100L * script.length;
+			t = System.nanoTime();
+		}
+		return new Throughput( n, t - t0 );
+	}
+}
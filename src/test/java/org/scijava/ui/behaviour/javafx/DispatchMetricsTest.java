@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class DispatchMetricsTest
+{
+	private static JfxMouseAndKeyHandler createHandler( final ClickBehaviour slow, final ClickBehaviour fast )
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "slow", slow );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "slow" );
+		behaviourMap.put( "fast", fast );
+		inputMap.put( InputTrigger.getFromString( "A" ), "fast" );
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	private static void busyWait( final long nanos )
+	{
+		final long t0 = System.nanoTime();
+		while ( System.nanoTime() - t0 < nanos )
+		{}
+	}
+
+	@Test
+	public void testCountsAndLatencies() throws Exception
+	{
+		final ClickBehaviour slow = ( x, y ) -> busyWait( 1_000_000 );
+		final ClickBehaviour fast = ( x, y ) -> {};
+		final JfxMouseAndKeyHandler handler = createHandler( slow, fast );
+		final DispatchMetrics metrics = new DispatchMetrics();
+		handler.setDispatchListener( metrics );
+
+		for ( int i = 0; i < 3; ++i )
+		{
+			handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 10, 10, NONE ) );
+			handler.handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+			handler.handle( SyntheticEvents.keyReleased( KeyCode.A, NONE ) );
+		}
+		handler.handle( SyntheticEvents.moved( 10, 10 ) );
+
+		final Map< String, Long > counts = metrics.getEventCounts();
+		assertEquals( Long.valueOf( 3 ), counts.get( "MOUSE_CLICKED" ) );
+		assertEquals( Long.valueOf( 3 ), counts.get( "KEY_PRESSED" ) );
+		assertEquals( Long.valueOf( 3 ), counts.get( "KEY_RELEASED" ) );
+		assertEquals( Long.valueOf( 1 ), counts.get( "MOUSE_MOVED" ) );
+		assertEquals( 10, metrics.getUpdateLatency().getCount() );
+
+		final List< LatencySummary > latencies = metrics.getBehaviourLatencies();
+		assertEquals( 2, latencies.size() );
+		assertEquals( "slow", latencies.get( 0 ).getName() );
+		assertEquals( 3, latencies.get( 0 ).getCount() );
+		assertTrue( latencies.get( 0 ).getP50Nanos() >= 1_000_000 );
+		assertTrue( latencies.get( 0 ).getMaxNanos() >= 1_000_000 );
+		assertEquals( "fast", latencies.get( 1 ).getName() );
+		assertEquals( 3, latencies.get( 1 ).getCount() );
+
+		metrics.reset();
+		assertTrue( metrics.getEventCounts().isEmpty() );
+		assertTrue( metrics.getBehaviourLatencies().isEmpty() );
+		assertEquals( 0, metrics.getDispatchLatency().getCount() );
+	}
+
+	@Test
+	public void testMBean() throws Exception
+	{
+		final JfxMouseAndKeyHandler handler = createHandler( ( x, y ) -> {}, ( x, y ) -> {} );
+		final DispatchMetrics metrics = new DispatchMetrics();
+		handler.setDispatchListener( metrics );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 10, 10, NONE ) );
+
+		metrics.register( "test" );
+		try
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName( "org.scijava.ui.behaviour.javafx:type=DispatchMetrics,name=\"test\"" );
+			assertTrue( server.isRegistered( name ) );
+			final CompositeData dispatch = ( CompositeData ) server.getAttribute( name, "DispatchLatency" );
+			assertEquals( 1L, dispatch.get( "count" ) );
+			final CompositeData[] behaviours = ( CompositeData[] ) server.getAttribute( name, "BehaviourLatencies" );
+			assertEquals( 1, behaviours.length );
+			server.invoke( name, "reset", null, null );
+			assertEquals( 0, metrics.getDispatchLatency().getCount() );
+		}
+		finally
+		{
+			metrics.unregister();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class DragThresholdTest
+{
+	private final List< String > calls = new ArrayList<>();
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				calls.add( "init " + x + " " + y );
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{
+				calls.add( "drag " + x + " " + y );
+			}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				calls.add( "end " + x + " " + y );
+			}
+		} );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> calls.add( "click " + x + " " + y ) );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "click" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	@Test
+	public void testClickUnderThreshold()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setDragThreshold( 5 );
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 12, 13, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 12, 13, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 12, 13, NONE ) );
+		assertEquals( "[click 12 13]", calls.toString() );
+	}
+
+	@Test
+	public void testDragBeyondThreshold()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setDragThreshold( 5 );
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 12, 12, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 20, 12, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 30, 12, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 30, 12, NONE ) );
+		assertEquals( "[init 10 10, drag 20 12, drag 30 12, end 30 12]", calls.toString() );
+	}
+
+	@Test
+	public void testDragDelay()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setDragDelay( 200 );
+		handler.replayTime = 0;
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.replayTime = TimeUnit.MILLISECONDS.toNanos( 100 );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 11, 10, NONE ) );
+		handler.replayTime = TimeUnit.MILLISECONDS.toNanos( 300 );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 12, 10, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 12, 10, NONE ) );
+		assertEquals( "[init 10 10, drag 12 10, end 12 10]", calls.toString() );
+	}
+
+	@Test
+	public void testImmediateByDefault()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 10, 10, NONE ) );
+		assertEquals( "[init 10 10, end 10 10]", calls.toString() );
+	}
+}
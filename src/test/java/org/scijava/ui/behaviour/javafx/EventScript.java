@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javafx.event.Event;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers;
+
+/**
+ * Builds scripted streams of synthetic input events (see
+ * {@link SyntheticEvents}) that resemble what JavaFX delivers for real
+ * gestures: drags, clicks and double clicks, key chords, and scroll bursts.
+ * <p>
+ * The script tracks the mouse position, so gestures continue from where the
+ * previous one ended.
+ */
+public class EventScript
+{
+	private final List< Event > events = new ArrayList<>();
+
+	private double mouseX;
+
+	private double mouseY;
+
+	/**
+	 * Get the events of this script, in order.
+	 */
+	public List< Event > events()
+	{
+		return Collections.unmodifiableList( events );
+	}
+
+	/**
+	 * Append an arbitrary event.
+	 */
+	public EventScript add( final Event event )
+	{
+		events.add( event );
+		return this;
+	}
+
+	/**
+	 * Move the mouse (no buttons pressed) to {@code (x, y)} in {@code steps}
+	 * equal steps.
+	 */
+	public EventScript move( final double x, final double y, final int steps )
+	{
+		for ( int i = 1; i <= steps; ++i )
+			events.add( SyntheticEvents.moved( interpolate( mouseX, x, i, steps ), interpolate( mouseY, y, i, steps ) ) );
+		mouseX = x;
+		mouseY = y;
+		return this;
+	}
+
+	/**
+	 * Press {@code button} at the current position, drag to {@code (x, y)} in
+	 * {@code steps} equal steps, and release. As in JavaFX, no
+	 * {@code MOUSE_CLICKED} is generated if the mouse moved.
+	 */
+	public EventScript drag( final MouseButton button, final double x, final double y, final int steps, final Modifiers modifiers )
+	{
+		events.add( SyntheticEvents.pressed( button, mouseX, mouseY, modifiers ) );
+		for ( int i = 1; i <= steps; ++i )
+			events.add( SyntheticEvents.dragged( button, interpolate( mouseX, x, i, steps ), interpolate( mouseY, y, i, steps ), modifiers ) );
+		events.add( SyntheticEvents.released( button, x, y, modifiers ) );
+		mouseX = x;
+		mouseY = y;
+		return this;
+	}
+
+	/**
+	 * Click {@code button} at the current position.
+	 */
+	public EventScript click( final MouseButton button, final Modifiers modifiers )
+	{
+		return click( button, 1, modifiers );
+	}
+
+	/**
+	 * Double-click {@code button} at the current position. The second press,
+	 * release, and click carry a click count of 2.
+	 */
+	public EventScript doubleClick( final MouseButton button, final Modifiers modifiers )
+	{
+		click( button, 1, modifiers );
+		return click( button, 2, modifiers );
+	}
+
+	private EventScript click( final MouseButton button, final int clickCount, final Modifiers modifiers )
+	{
+		final MouseButton[] down = { button };
+		final MouseButton[] up = {};
+		events.add( SyntheticEvents.mouse( MouseEvent.MOUSE_PRESSED, mouseX, mouseY, button, down, clickCount, modifiers ) );
+		events.add( SyntheticEvents.mouse( MouseEvent.MOUSE_RELEASED, mouseX, mouseY, button, up, clickCount, modifiers ) );
+		events.add( SyntheticEvents.mouse( MouseEvent.MOUSE_CLICKED, mouseX, mouseY, button, up, clickCount, modifiers ) );
+		return this;
+	}
+
+	/**
+	 * Press {@code keys} in order, then release them in reverse order.
+	 * Modifier keys ({@link KeyCode#SHIFT}, {@link KeyCode#CONTROL},
+	 * {@link KeyCode#ALT}, {@link KeyCode#META}) set the corresponding
+	 * modifier flags of the events that follow while they are held, as they
+	 * would for real key events. For example, {@code chord( CONTROL, SHIFT, S )}
+	 * types "ctrl shift S".
+	 */
+	public EventScript chord( final KeyCode... keys )
+	{
+		final Modifiers[] modifiers = new Modifiers[ keys.length + 1 ];
+		modifiers[ 0 ] = Modifiers.NONE;
+		for ( int i = 0; i < keys.length; ++i )
+		{
+			final Modifiers m = modifiers[ i ];
+			final KeyCode k = keys[ i ];
+			modifiers[ i + 1 ] = new Modifiers(
+					m.shift || k == KeyCode.SHIFT,
+					m.ctrl || k == KeyCode.CONTROL,
+					m.alt || k == KeyCode.ALT,
+					m.meta || k == KeyCode.META );
+			events.add( SyntheticEvents.keyPressed( k, modifiers[ i + 1 ] ) );
+		}
+		for ( int i = keys.length - 1; i >= 0; --i )
+			events.add( SyntheticEvents.keyReleased( keys[ i ], modifiers[ i ] ) );
+		return this;
+	}
+
+	/**
+	 * Press and release {@code key} twice.
+	 */
+	public EventScript doubleKey( final KeyCode key, final Modifiers modifiers )
+	{
+		for ( int i = 0; i < 2; ++i )
+		{
+			events.add( SyntheticEvents.keyPressed( key, modifiers ) );
+			events.add( SyntheticEvents.keyReleased( key, modifiers ) );
+		}
+		return this;
+	}
+
+	/**
+	 * A burst of {@code n} vertical scroll events of {@code deltaY} each,
+	 * followed by {@code inertia} inertia events with decaying delta, as
+	 * generated by touch pads.
+	 */
+	public EventScript scrollBurst( final int n, final double deltaY, final int inertia, final Modifiers modifiers )
+	{
+		for ( int i = 0; i < n; ++i )
+			events.add( SyntheticEvents.scroll( mouseX, mouseY, 0, deltaY, false, modifiers ) );
+		double d = deltaY;
+		for ( int i = 0; i < inertia; ++i )
+		{
+			d *= 0.8;
+			events.add( SyntheticEvents.scroll( mouseX, mouseY, 0, d, true, modifiers ) );
+		}
+		return this;
+	}
+
+	private static double interpolate( final double from, final double to, final int step, final int steps )
+	{
+		return from + ( to - from ) * step / steps;
+	}
+}
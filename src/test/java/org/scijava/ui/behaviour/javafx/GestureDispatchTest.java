@@ -0,0 +1,216 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+import org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers;
+
+public class GestureDispatchTest
+{
+	private final List< Double > zooms = new ArrayList<>();
+
+	private final List< Double > ctrlZooms = new ArrayList<>();
+
+	private final List< Double > rotations = new ArrayList<>();
+
+	private final List< SwipeBehaviour.Direction > swipes = new ArrayList<>();
+
+	private final List< Double > scrolls = new ArrayList<>();
+
+	private final List< Double > zoomCenters = new ArrayList<>();
+
+	private ManualPulseHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "zoom", ( ZoomBehaviour ) ( factor, x, y ) -> {
+			zooms.add( factor );
+			zoomCenters.add( x );
+		} );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "zoom" );
+		behaviourMap.put( "ctrl zoom", ( ZoomBehaviour ) ( factor, x, y ) -> ctrlZooms.add( factor ) );
+		inputMap.put( InputTrigger.getFromString( "ctrl scroll" ), "ctrl zoom" );
+		behaviourMap.put( "rotate", ( RotateBehaviour ) ( angle, x, y ) -> rotations.add( angle ) );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "rotate" );
+		behaviourMap.put( "swipe", ( SwipeBehaviour ) ( direction, touchCount, x, y ) -> swipes.add( direction ) );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "swipe" );
+		behaviourMap.put( "scroll", ( ScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> scrolls.add( wheelRotation ) );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		final ManualPulseHandler handler = new ManualPulseHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	@Test
+	public void testUncoalescedGestures()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setCoalesceGestures( false );
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_STARTED, 10, 10, 1, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 1.5, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_FINISHED, 10, 10, 1, NONE ) );
+		assertEquals( 2, zooms.size() );
+		assertEquals( 2, zooms.get( 0 ), 0 );
+		assertEquals( 1.5, zooms.get( 1 ), 0 );
+
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATE, 10, 10, 5, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATE, 10, 10, -2, NONE ) );
+		assertEquals( 2, rotations.size() );
+	}
+
+	@Test
+	public void testGesturesAreMergedUntilFinished()
+	{
+		final ManualPulseHandler handler = createHandler();
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_STARTED, 10, 10, 1, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 1.5, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 0.5, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATE, 10, 10, 5, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATE, 10, 10, -2, NONE ) );
+		assertEquals( 0, zooms.size() );
+		assertEquals( 0, rotations.size() );
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_FINISHED, 10, 10, 1, NONE ) );
+		assertEquals( 1, zooms.size() );
+		assertEquals( 1.5, zooms.get( 0 ), 1e-12 );
+		assertEquals( 1, rotations.size() );
+		assertEquals( 3, rotations.get( 0 ), 1e-12 );
+	}
+
+	@Test
+	public void testOneCallPerFrame()
+	{
+		final ManualPulseHandler handler = createHandler();
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.pulse();
+		assertEquals( 1, zooms.size() );
+		assertEquals( 4, zooms.get( 0 ), 1e-12 );
+
+		handler.pulse();
+		assertEquals( 1, zooms.size() );
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 0.5, NONE ) );
+		handler.pulse();
+		assertEquals( 2, zooms.size() );
+		assertEquals( 0.5, zooms.get( 1 ), 1e-12 );
+	}
+
+	@Test
+	public void testGesturesAreMergedPerModifierMask()
+	{
+		final ManualPulseHandler handler = createHandler();
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 3, Modifiers.ctrl() ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 3, Modifiers.ctrl() ) );
+		handler.pulse();
+
+		assertEquals( 1, zooms.size() );
+		assertEquals( 4, zooms.get( 0 ), 1e-12 );
+		assertEquals( 1, ctrlZooms.size() );
+		assertEquals( 9, ctrlZooms.get( 0 ), 1e-12 );
+	}
+
+	@Test
+	public void testSwipe()
+	{
+		final ManualPulseHandler handler = createHandler();
+
+		handler.handle( SyntheticEvents.swipe( SwipeEvent.SWIPE_LEFT, 10, 10, 3, NONE ) );
+		handler.handle( SyntheticEvents.swipe( SwipeEvent.SWIPE_UP, 10, 10, 3, NONE ) );
+		assertEquals( 2, swipes.size() );
+		assertEquals( SwipeBehaviour.Direction.LEFT, swipes.get( 0 ) );
+		assertEquals( SwipeBehaviour.Direction.UP, swipes.get( 1 ) );
+		assertEquals( 0, ctrlZooms.size() );
+	}
+
+	@Test
+	public void testGesturesAndScrollsAreSeparate()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setCoalesceGestures( false );
+
+		// wheel scrolls only reach scroll behaviours
+		handler.handle( SyntheticEvents.scroll( 10, 10, 0, 3, false, NONE ) );
+		assertEquals( 1, scrolls.size() );
+		assertTrue( zooms.isEmpty() && rotations.isEmpty() && swipes.isEmpty() );
+
+		// gestures only reach the behaviours of their own type, and the
+		// finger movement reported during a pinch is not a scroll
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_STARTED, 10, 10, 1, NONE ) );
+		handler.handle( SyntheticEvents.scroll( 10, 10, 0, 2, false, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 10, 2, NONE ) );
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM_FINISHED, 10, 10, 1, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATION_STARTED, 10, 10, 0, NONE ) );
+		handler.handle( SyntheticEvents.scroll( 10, 10, 0, 2, false, 2, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATE, 10, 10, 5, NONE ) );
+		handler.handle( SyntheticEvents.rotate( RotateEvent.ROTATION_FINISHED, 10, 10, 0, NONE ) );
+		handler.handle( SyntheticEvents.swipe( SwipeEvent.SWIPE_LEFT, 10, 10, 3, NONE ) );
+		assertEquals( 1, scrolls.size() );
+		assertEquals( 1, zooms.size() );
+		assertEquals( 1, rotations.size() );
+		assertEquals( 1, swipes.size() );
+
+		// after the gesture, touch scrolls are scrolls again
+		handler.handle( SyntheticEvents.scroll( 10, 10, 0, 2, false, 2, NONE ) );
+		assertEquals( 2, scrolls.size() );
+	}
+
+	@Test
+	public void testGestureCoordinatesAreNotTruncated()
+	{
+		final ManualPulseHandler handler = createHandler();
+
+		handler.handle( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10.75, 10, 2, NONE ) );
+		handler.pulse();
+		assertEquals( 10.75, zoomCenters.get( 0 ), 0 );
+	}
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.List;
+import javafx.event.Event;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+
+/**
+ * Runs scripted gestures through a {@link JfxMouseAndKeyHandler} without a
+ * window, checks that the bound behaviours are called, and reports dispatch
+ * throughput.
+ * <p>
+ * To fail on throughput regressions, set the system property
+ * {@code dispatch.minEventsPerSecond} (default 0, i.e., only report).
+ */
+public class HeadlessDispatchTest
+{
+	private int dragInit;
+
+	private int dragDrag;
+
+	private int dragEnd;
+
+	private int chordClicks;
+
+	private int doubleClicks;
+
+	private int doubleKeys;
+
+	private int scrolls;
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++dragInit;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{
+				++dragDrag;
+			}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				++dragEnd;
+			}
+		} );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMap.put( "chord", ( ClickBehaviour ) ( x, y ) -> ++chordClicks );
+		inputMap.put( InputTrigger.getFromString( "ctrl shift S" ), "chord" );
+		behaviourMap.put( "double click", ( ClickBehaviour ) ( x, y ) -> ++doubleClicks );
+		inputMap.put( InputTrigger.getFromString( "double-click button1" ), "double click" );
+		behaviourMap.put( "double key", ( ClickBehaviour ) ( x, y ) -> ++doubleKeys );
+		inputMap.put( InputTrigger.getFromString( "double-click D" ), "double key" );
+		behaviourMap.put( "scroll", ( ScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> ++scrolls );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	private static List< Event > script()
+	{
+		return new EventScript()
+				.move( 100, 100, 10 )
+				.drag( MouseButton.PRIMARY, 200, 150, 20, NONE )
+				.chord( KeyCode.CONTROL, KeyCode.SHIFT, KeyCode.S )
+				.doubleClick( MouseButton.PRIMARY, NONE )
+				.scrollBurst( 10, -40, 5, NONE )
+				.doubleKey( KeyCode.D, NONE )
+				.events();
+	}
+
+	@Test
+	public void testBehavioursAreCalled()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		DispatchHarness.run( handler, script() );
+
+		assertTrue( dragInit > 0 );
+		assertEquals( dragInit, dragEnd );
+		assertEquals( 20, dragDrag );
+		assertEquals( 1, chordClicks );
+		assertEquals( 1, doubleClicks );
+		assertEquals( 1, doubleKeys );
+		assertEquals( 15, scrolls );
+	}
+
+	@Test
+	public void testThroughput()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		final DispatchHarness.Throughput throughput = DispatchHarness.measure( handler, script(), 500, 1000 );
+		System.out.println( "HeadlessDispatchTest: " + throughput );
+
+		assertTrue( "behaviours were not invoked", dragDrag > 0 && chordClicks > 0 && scrolls > 0 );
+		final double min = Double.parseDouble( System.getProperty( "dispatch.minEventsPerSecond", "0" ) );
+		assertTrue( String.format( "throughput %.0f events/s is below %.0f events/s", throughput.eventsPerSecond(), min ),
+				throughput.eventsPerSecond() >= min );
+	}
+}
@@ -0,0 +1,187 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class HoldTriggerTest
+{
+	private int previews;
+
+	private int taps;
+
+	private int menus;
+
+	private final ManualHoldTimer timer = new ManualHoldTimer();
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "preview", ( ClickBehaviour ) ( x, y ) -> ++previews );
+		inputMap.put( InputTrigger.getFromString( "P" ), "preview" );
+		behaviourMap.put( "tap", ( ClickBehaviour ) ( x, y ) -> ++taps );
+		inputMap.put( InputTrigger.getFromString( "P" ), "tap" );
+		behaviourMap.put( "menu", ( ClickBehaviour ) ( x, y ) -> ++menus );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "menu" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		handler.setHoldTimer( timer );
+		handler.setHoldDuration( "preview", 500 );
+		handler.setHoldDuration( "menu", 500 );
+		return handler;
+	}
+
+	@Test
+	public void testKeyHold()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		assertEquals( 1, taps );
+		for ( int i = 0; i < 20; ++i )
+		{
+			timer.frame( 16 );
+			// auto-repeats do not re-arm
+			handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		}
+		assertEquals( 0, previews );
+		for ( int i = 0; i < 20; ++i )
+			timer.frame( 16 );
+		assertEquals( 1, previews );
+		assertEquals( 0, timer.size() );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.P, NONE ) );
+		timer.frame( 1000 );
+		assertEquals( 1, previews );
+	}
+
+	@Test
+	public void testKeyReleasedEarly()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		timer.frame( 400 );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.P, NONE ) );
+		assertEquals( 0, timer.size() );
+		timer.frame( 400 );
+		assertEquals( 0, previews );
+
+		// another key cancels the hold
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		timer.frame( 400 );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.Q, NONE ) );
+		timer.frame( 400 );
+		assertEquals( 0, previews );
+	}
+
+	@Test
+	public void testButtonHold()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 10, 10, NONE ) );
+		timer.frame( 1000 );
+		assertEquals( 0, menus );
+
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		timer.frame( 600 );
+		assertEquals( 1, menus );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 10, 10, NONE ) );
+		assertEquals( 1, menus );
+	}
+
+	@Test
+	public void testOtherInputCancelsHold()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+
+		// a key pressed during a button hold
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		timer.frame( 200 );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.Q, NONE ) );
+		assertEquals( 0, timer.size() );
+		timer.frame( 1000 );
+		assertEquals( 0, menus );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.Q, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 10, 10, NONE ) );
+
+		// a button pressed during a key hold
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		timer.frame( 200 );
+		handler.handle( SyntheticEvents.pressed( MouseButton.SECONDARY, 10, 10, NONE ) );
+		assertEquals( 0, timer.size() );
+		timer.frame( 1000 );
+		assertEquals( 0, previews );
+	}
+
+	@Test
+	public void testSharedTimer()
+	{
+		final JfxMouseAndKeyHandler[] handlers = new JfxMouseAndKeyHandler[ 100 ];
+		for ( int i = 0; i < handlers.length; ++i )
+		{
+			handlers[ i ] = createHandler();
+			handlers[ i ].handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		}
+		assertEquals( handlers.length, timer.size() );
+		timer.frame( 100 );
+		for ( int i = 0; i < handlers.length; i += 2 )
+			handlers[ i ].handle( SyntheticEvents.keyReleased( KeyCode.P, NONE ) );
+		assertEquals( handlers.length / 2, timer.size() );
+		timer.frame( 500 );
+		assertEquals( handlers.length / 2, previews );
+		assertEquals( 0, timer.size() );
+	}
+
+	@Test
+	public void testLongDeadlines()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setHoldDuration( "preview", 3000 );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.P, NONE ) );
+		for ( int i = 0; i < 180; ++i )
+			timer.frame( 16 );
+		assertEquals( 0, previews );
+		for ( int i = 0; i < 10; ++i )
+			timer.frame( 16 );
+		assertEquals( 1, previews );
+	}
+}
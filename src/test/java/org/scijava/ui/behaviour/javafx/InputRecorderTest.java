@@ -0,0 +1,233 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.event.Event;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers;
+
+public class InputRecorderTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static JfxMouseAndKeyHandler createHandler( final JfxMouseAndKeyHandler handler )
+	{
+		handler.setInputMap( new InputTriggerMap() );
+		handler.setBehaviourMap( new BehaviourMap() );
+		return handler;
+	}
+
+	private static List< Event > script()
+	{
+		return new EventScript()
+				.move( 100, 100, 5 )
+				.drag( MouseButton.PRIMARY, 200, 150.5, 5, Modifiers.shift() )
+				.chord( KeyCode.CONTROL, KeyCode.SHIFT, KeyCode.S )
+				.doubleClick( MouseButton.SECONDARY, NONE )
+				.scrollBurst( 3, -40, 2, Modifiers.ctrl() )
+				.events();
+	}
+
+	@Test
+	public void testRecordAndReplay() throws Exception
+	{
+		final File file = folder.newFile( "session.log" );
+		final List< Event > script = script();
+
+		final JfxMouseAndKeyHandler handler = createHandler( new JfxMouseAndKeyHandler() );
+		try (final InputRecorder recorder = new InputRecorder( file.toPath() ))
+		{
+			handler.setInputRecorder( recorder );
+			DispatchHarness.run( handler, script );
+			handler.setInputRecorder( null );
+		}
+
+		final InputReplayer replayer = new InputReplayer( file.toPath() );
+		assertEquals( script.size(), replayer.size() );
+		for ( int i = 0; i < script.size(); ++i )
+		{
+			final Event expected = script.get( i );
+			final Event actual = replayer.events().get( i );
+			assertEquals( expected.getEventType(), actual.getEventType() );
+			if ( expected instanceof MouseEvent )
+			{
+				final MouseEvent e = ( MouseEvent ) expected;
+				final MouseEvent a = ( MouseEvent ) actual;
+				assertEquals( e.getX(), a.getX(), 1e-4 );
+				assertEquals( e.getY(), a.getY(), 1e-4 );
+				assertEquals( e.getButton(), a.getButton() );
+				assertEquals( e.getClickCount(), a.getClickCount() );
+				assertEquals( e.isShiftDown(), a.isShiftDown() );
+				assertEquals( e.isPrimaryButtonDown(), a.isPrimaryButtonDown() );
+				assertEquals( e.isSecondaryButtonDown(), a.isSecondaryButtonDown() );
+			}
+			else if ( expected instanceof KeyEvent )
+			{
+				final KeyEvent e = ( KeyEvent ) expected;
+				final KeyEvent a = ( KeyEvent ) actual;
+				assertEquals( e.getCode(), a.getCode() );
+				assertEquals( e.isControlDown(), a.isControlDown() );
+				assertEquals( e.isShiftDown(), a.isShiftDown() );
+			}
+			else
+			{
+				final ScrollEvent e = ( ScrollEvent ) expected;
+				final ScrollEvent a = ( ScrollEvent ) actual;
+				assertEquals( e.getDeltaY(), a.getDeltaY(), 1e-4 );
+				assertEquals( e.isInertia(), a.isInertia() );
+				assertEquals( e.isControlDown(), a.isControlDown() );
+				assertEquals( InputTrigger.CTRL_DOWN_MASK | InputTrigger.SCROLL_MASK, replayer.mask( i ) );
+			}
+		}
+		for ( int i = 1; i < replayer.size(); ++i )
+			assertEquals( true, replayer.timestamp( i ) >= replayer.timestamp( i - 1 ) );
+	}
+
+	@Test
+	public void testGestures() throws Exception
+	{
+		final File file = folder.newFile( "gestures.log" );
+		try (final InputRecorder recorder = new InputRecorder( file.toPath() ))
+		{
+			recorder.record( SyntheticEvents.zoom( ZoomEvent.ZOOM_STARTED, 10, 20, 1, Modifiers.ctrl() ), 0 );
+			recorder.record( SyntheticEvents.zoom( ZoomEvent.ZOOM, 10, 20, 1.5, Modifiers.ctrl() ), 0 );
+			recorder.record( SyntheticEvents.rotate( RotateEvent.ROTATE, 30, 40, -12.5, NONE ), 0 );
+			recorder.record( SyntheticEvents.swipe( SwipeEvent.SWIPE_LEFT, 50, 60, 3, Modifiers.shift() ), 0 );
+			recorder.record( SyntheticEvents.swipe( SwipeEvent.SWIPE_DOWN, 50, 60, 2, NONE ), 0 );
+		}
+		final List< Event > events = new InputReplayer( file.toPath() ).events();
+		assertEquals( 5, events.size() );
+
+		final ZoomEvent started = ( ZoomEvent ) events.get( 0 );
+		assertEquals( ZoomEvent.ZOOM_STARTED, started.getEventType() );
+		final ZoomEvent zoom = ( ZoomEvent ) events.get( 1 );
+		assertEquals( ZoomEvent.ZOOM, zoom.getEventType() );
+		assertEquals( 1.5, zoom.getZoomFactor(), 0 );
+		assertEquals( 1.5, zoom.getTotalZoomFactor(), 0 );
+		assertEquals( 10, zoom.getX(), 0 );
+		assertEquals( 20, zoom.getY(), 0 );
+		assertEquals( true, zoom.isControlDown() );
+
+		final RotateEvent rotate = ( RotateEvent ) events.get( 2 );
+		assertEquals( RotateEvent.ROTATE, rotate.getEventType() );
+		assertEquals( -12.5, rotate.getAngle(), 0 );
+		assertEquals( 30, rotate.getX(), 0 );
+
+		final SwipeEvent left = ( SwipeEvent ) events.get( 3 );
+		assertEquals( SwipeEvent.SWIPE_LEFT, left.getEventType() );
+		assertEquals( 3, left.getTouchCount() );
+		assertEquals( true, left.isShiftDown() );
+		final SwipeEvent down = ( SwipeEvent ) events.get( 4 );
+		assertEquals( SwipeEvent.SWIPE_DOWN, down.getEventType() );
+		assertEquals( 2, down.getTouchCount() );
+	}
+
+	@Test
+	public void testReplayThroughDispatcher() throws Exception
+	{
+		final File file = folder.newFile( "dispatched.log" );
+		try (final InputRecorder recorder = new InputRecorder( file.toPath() ))
+		{
+			for ( final Event event : script() )
+				recorder.record( event, 0 );
+		}
+		final InputReplayer replayer = new InputReplayer( file.toPath() );
+		final List< Runnable > posted = new ArrayList<>();
+		final JfxMouseAndKeyHandler handler = createHandler( new JfxMouseAndKeyHandler() );
+		replayer.replay( handler, 10, posted::add );
+		assertEquals( replayer.size(), posted.size() );
+		posted.forEach( Runnable::run );
+		assertEquals( JfxMouseAndKeyHandler.NO_TIME, handler.replayTime );
+	}
+
+	@Test
+	public void testManyChunks() throws Exception
+	{
+		final File file = folder.newFile( "long.log" );
+		final int n = 3 * InputRecorder.CHUNK_SIZE / InputLogFormat.RECORD_SIZE + 17;
+		try (final InputRecorder recorder = new InputRecorder( file.toPath() ))
+		{
+			for ( int i = 0; i < n; ++i )
+				recorder.record( SyntheticEvents.moved( i % 1000, i / 1000 ), i );
+		}
+		assertEquals( InputLogFormat.HEADER_SIZE + ( long ) n * InputLogFormat.RECORD_SIZE, file.length() );
+
+		final InputReplayer replayer = new InputReplayer( file.toPath() );
+		assertEquals( n, replayer.size() );
+		for ( int i = 0; i < n; i += 9973 )
+		{
+			assertEquals( i, replayer.mask( i ) );
+			assertEquals( i % 1000, ( ( MouseEvent ) replayer.events().get( i ) ).getX(), 0 );
+		}
+	}
+
+	@Test
+	public void testTimedReplay() throws Exception
+	{
+		final File file = folder.newFile( "timed.log" );
+		try (final InputRecorder recorder = new InputRecorder( file.toPath() ))
+		{
+			for ( final Event event : script() )
+				recorder.record( event, 0 );
+		}
+		final InputReplayer replayer = new InputReplayer( file.toPath() );
+		final int[] count = { 0 };
+		final JfxMouseAndKeyHandler handler = createHandler( new JfxMouseAndKeyHandler()
+		{
+			@Override
+			public void handle( final Event event )
+			{
+				++count[ 0 ];
+				super.handle( event );
+			}
+		} );
+		replayer.replay( handler, 10 );
+		assertEquals( replayer.size(), count[ 0 ] );
+	}
+}
@@ -0,0 +1,64 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.event.KeyEvent;
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+
+public class JfxKeyCodesTest
+{
+	@Test
+	public void testToAwt()
+	{
+		assertEquals( KeyEvent.VK_A, JfxKeyCodes.toAwt( KeyCode.A ) );
+		assertEquals( KeyEvent.VK_0, JfxKeyCodes.toAwt( KeyCode.DIGIT0 ) );
+		assertEquals( KeyEvent.VK_F12, JfxKeyCodes.toAwt( KeyCode.F12 ) );
+		assertEquals( KeyEvent.VK_SPACE, JfxKeyCodes.toAwt( KeyCode.SPACE ) );
+		assertEquals( KeyEvent.VK_CONTROL, JfxKeyCodes.toAwt( KeyCode.CONTROL ) );
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		for ( final KeyCode keyCode : KeyCode.values() )
+		{
+			final KeyCode back = JfxKeyCodes.fromAwt( JfxKeyCodes.toAwt( keyCode ) );
+			assertEquals( JfxKeyCodes.toAwt( keyCode ), JfxKeyCodes.toAwt( back ) );
+		}
+	}
+
+	@Test
+	public void testUnknownAwtKeyCode()
+	{
+		assertEquals( KeyCode.UNDEFINED, JfxKeyCodes.fromAwt( -12345 ) );
+	}
+}
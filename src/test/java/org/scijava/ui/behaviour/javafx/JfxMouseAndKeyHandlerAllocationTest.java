@@ -0,0 +1,187 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.event.Event;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.ScrollBehaviour;
+import org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers;
+
+/**
+ * Checks that steady-state event dispatch in {@link JfxMouseAndKeyHandler}
+ * (moving, dragging, scrolling, clicking, pressing and releasing keys, typing
+ * key sequences, without changing bindings) does not allocate.
+ */
+public class JfxMouseAndKeyHandlerAllocationTest
+{
+	private int invocations;
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+
+		final DragBehaviour drag = new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++invocations;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{
+				++invocations;
+			}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				++invocations;
+			}
+		};
+		final ClickBehaviour click = ( x, y ) -> ++invocations;
+		final ScrollBehaviour scroll = ( wheelRotation, isHorizontal, x, y ) -> ++invocations;
+
+		behaviourMap.put( "drag", drag );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		inputMap.put( InputTrigger.getFromString( "G" ), "drag" );
+		behaviourMap.put( "click", click );
+		inputMap.put( InputTrigger.getFromString( "button3" ), "click" );
+		inputMap.put( InputTrigger.getFromString( "A" ), "click" );
+		behaviourMap.put( "scroll", scroll );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "scroll" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		handler.addKeySequence( "ctrl X, ctrl S", "click" );
+		return handler;
+	}
+
+	private static List< Event > script()
+	{
+		final List< Event > events = new ArrayList<>();
+		for ( int i = 0; i < 10; ++i )
+			events.add( SyntheticEvents.moved( 10 + i, 20 ) );
+		events.add( SyntheticEvents.pressed( MouseButton.PRIMARY, 20, 20, NONE ) );
+		for ( int i = 0; i < 10; ++i )
+			events.add( SyntheticEvents.dragged( MouseButton.PRIMARY, 20 + i, 20 + i, NONE ) );
+		events.add( SyntheticEvents.released( MouseButton.PRIMARY, 30, 30, NONE ) );
+		events.add( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 30, 30, NONE ) );
+		events.add( SyntheticEvents.pressed( MouseButton.SECONDARY, 30, 30, NONE ) );
+		events.add( SyntheticEvents.released( MouseButton.SECONDARY, 30, 30, NONE ) );
+		events.add( SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 30, 30, NONE ) );
+		for ( int i = 0; i < 5; ++i )
+			events.add( SyntheticEvents.scroll( 30, 30, 0, -40, false, NONE ) );
+		events.add( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.A, NONE ) );
+		events.add( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		for ( int i = 0; i < 5; ++i )
+			events.add( SyntheticEvents.moved( 30 - i, 30 ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+		final Modifiers ctrl = Modifiers.ctrl();
+		events.add( SyntheticEvents.keyPressed( KeyCode.X, ctrl ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.X, ctrl ) );
+		events.add( SyntheticEvents.keyPressed( KeyCode.S, ctrl ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.S, ctrl ) );
+		events.add( SyntheticEvents.keyPressed( KeyCode.X, ctrl ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.X, ctrl ) );
+		events.add( SyntheticEvents.keyPressed( KeyCode.Q, NONE ) );
+		events.add( SyntheticEvents.keyReleased( KeyCode.Q, NONE ) );
+		return events;
+	}
+
+	@Test
+	public void testSteadyStateDispatchDoesNotAllocate()
+	{
+		assertNoAllocation( createHandler() );
+	}
+
+	@Test
+	public void testInstrumentedDispatchDoesNotAllocate()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setDispatchListener( new DispatchMetrics() );
+		assertNoAllocation( handler );
+	}
+
+	private void assertNoAllocation( final JfxMouseAndKeyHandler handler )
+	{
+		assumeTrue( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean );
+		final com.sun.management.ThreadMXBean bean = ( com.sun.management.ThreadMXBean ) ManagementFactory.getThreadMXBean();
+		assumeTrue( bean.isThreadAllocatedMemorySupported() );
+		bean.setThreadAllocatedMemoryEnabled( true );
+		final long thread = Thread.currentThread().getId();
+
+		final Event[] events = script().toArray( new Event[ 0 ] );
+
+		// warm up: build dispatch tables, load classes, JIT compile
+		for ( int i = 0; i < 20000; ++i )
+			for ( final Event event : events )
+				handler.handle( event );
+
+		/*
+		 * Measure several rounds and take the best one: a recompilation during
+		 * a round can temporarily run code in the interpreter, where escape
+		 * analysis does not eliminate short-lived objects.
+		 */
+		final int repetitions = 10000;
+		long allocated = Long.MAX_VALUE;
+		for ( int round = 0; round < 5 && allocated > 0; ++round )
+		{
+			invocations = 0;
+			final long before = bean.getThreadAllocatedBytes( thread );
+			for ( int i = 0; i < repetitions; ++i )
+				for ( final Event event : events )
+					handler.handle( event );
+			allocated = Math.min( allocated, bean.getThreadAllocatedBytes( thread ) - before );
+		}
+
+		assertTrue( "behaviours were not invoked", invocations > 0 );
+		final double perEvent = ( double ) allocated / ( repetitions * events.length );
+		assertEquals( "bytes allocated per event", 0, perEvent, 0.01 );
+	}
+}
@@ -32,7 +32,6 @@ import java.io.StringReader;
 import java.util.List;
 import javafx.application.Application;
 import javafx.beans.value.ChangeListener;
-import javafx.event.Event;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -126,11 +125,14 @@ public class JfxUsageExample extends Application
 		handler.setBehaviourMap( behaviourMap );
 
 		/*
-		 * Display a scene with the MouseAndKeyHandler registered.
+		 * Display a scene with the MouseAndKeyHandler registered. (install()
+		 * registers event filters only for the event types that the bindings
+		 * need. Alternatively, scene.addEventFilter( Event.ANY, handler ) can
+		 * be used.)
 		 */
 		Group root = new Group();
 		Scene scene = new Scene( root, 400, 400 );
-		scene.addEventFilter( Event.ANY, handler );
+		handler.install( scene );
 		final ChangeListener< Boolean > changeListener = ( observable, oldValue, newValue ) -> {
 			System.out.println( "changeListener" );
 			System.out.println( "  observable = " + observable );
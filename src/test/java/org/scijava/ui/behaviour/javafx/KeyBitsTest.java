@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+import org.scijava.ui.behaviour.InputTrigger;
+
+public class KeyBitsTest
+{
+	@Test
+	public void testEveryKeyCodeHasItsOwnBit()
+	{
+		for ( final KeyCode code : KeyCode.values() )
+		{
+			final int bit = JfxKeyCodes.toBit( code );
+			assertTrue( bit >= 0 && bit < KeyBits.OTHER );
+			assertEquals( JfxKeyCodes.toAwt( code ), JfxKeyCodes.bitToAwt( bit ) );
+			assertEquals( bit, JfxKeyCodes.awtToBit( JfxKeyCodes.toAwt( code ) ) );
+		}
+		assertEquals( KeyBits.OTHER, JfxKeyCodes.awtToBit( -42 ) );
+	}
+
+	@Test
+	public void testSetOperations()
+	{
+		final KeyBits a = new KeyBits();
+		assertTrue( a.isEmpty() );
+		assertTrue( a.add( 3 ) );
+		assertFalse( a.add( 3 ) );
+		assertTrue( a.add( 200 ) );
+		assertTrue( a.contains( 200 ) );
+		assertFalse( a.contains( 199 ) );
+
+		final KeyBits b = new KeyBits( a );
+		assertEquals( a, b );
+		assertEquals( a.hashCode(), b.hashCode() );
+		assertTrue( b.add( 100 ) );
+		assertNotEquals( a, b );
+		assertTrue( b.containsAll( a ) );
+		assertFalse( a.containsAll( b ) );
+
+		assertTrue( b.remove( 100 ) );
+		assertFalse( b.remove( 100 ) );
+		assertEquals( a, b );
+
+		a.clear();
+		assertTrue( a.isEmpty() );
+	}
+
+	@Test
+	public void testConversion()
+	{
+		final TIntSet keys = new TIntHashSet( new int[] { KeyEvent.VK_A, KeyEvent.VK_SPACE, KeyEvent.VK_F12, KeyEvent.VK_F24 } );
+		final KeyBits bits = new KeyBits();
+		bits.addAll( keys );
+		final TIntSet copy = new TIntHashSet();
+		bits.copyTo( copy );
+		assertEquals( keys, copy );
+	}
+
+	@Test
+	public void testKeysWithoutOwnBit()
+	{
+		final int u1 = -42;
+		final int u2 = -43;
+		final KeyBits bits = new KeyBits();
+		bits.add( JfxKeyCodes.awtToBit( KeyEvent.VK_A ), KeyEvent.VK_A );
+		final KeyBits withA = new KeyBits( bits );
+
+		// a second unmapped key is not a repeat of the first
+		assertTrue( bits.add( KeyBits.OTHER, u1 ) );
+		assertTrue( bits.add( KeyBits.OTHER, u2 ) );
+		assertFalse( bits.add( KeyBits.OTHER, u2 ) );
+		assertTrue( bits.contains( KeyBits.OTHER ) );
+
+		final KeyBits withU1 = new KeyBits( withA );
+		withU1.add( KeyBits.OTHER, u1 );
+		final KeyBits withU2 = new KeyBits( withA );
+		withU2.add( KeyBits.OTHER, u2 );
+		assertNotEquals( withU1, withU2 );
+		assertTrue( bits.containsAll( withU1 ) );
+		assertFalse( withU1.containsAll( withU2 ) );
+
+		// releasing one unmapped key keeps the other
+		final TIntSet view = bits.asSet();
+		assertEquals( new TIntHashSet( new int[] { KeyEvent.VK_A, u1, u2 } ), view );
+		assertTrue( view == bits.asSet() );
+		assertTrue( bits.remove( KeyBits.OTHER, u1 ) );
+		assertFalse( bits.remove( KeyBits.OTHER, u1 ) );
+		assertTrue( bits.contains( KeyBits.OTHER ) );
+		assertEquals( withU2, bits );
+		assertEquals( new TIntHashSet( new int[] { KeyEvent.VK_A, u2 } ), bits.asSet() );
+
+		assertTrue( bits.remove( KeyBits.OTHER, u2 ) );
+		assertFalse( bits.contains( KeyBits.OTHER ) );
+		assertEquals( withA, bits );
+	}
+
+	/**
+	 * {@link Binding#matches(int, KeyBits)} and
+	 * {@link Binding#matchesSubset(int, KeyBits)} must agree with the
+	 * {@link InputTrigger} methods.
+	 */
+	@Test
+	public void testBindingMatchesLikeInputTrigger()
+	{
+		final List< InputTrigger > triggers = new ArrayList<>( SyntheticTriggers.triggers( 200 ) );
+		triggers.add( InputTrigger.getFromString( "ctrl A | all" ) );
+		triggers.add( InputTrigger.getFromString( "button1 | all" ) );
+		triggers.add( InputTrigger.getFromString( "A B" ) );
+		triggers.add( InputTrigger.getFromString( "scroll" ) );
+
+		final int[] masks = {
+				0,
+				InputTrigger.CTRL_DOWN_MASK,
+				InputTrigger.SHIFT_DOWN_MASK | InputTrigger.CTRL_DOWN_MASK,
+				InputTrigger.ALT_DOWN_MASK | InputTrigger.META_DOWN_MASK,
+				InputTrigger.BUTTON1_DOWN_MASK,
+				InputTrigger.BUTTON1_DOWN_MASK | InputTrigger.CTRL_DOWN_MASK,
+				InputTrigger.SCROLL_MASK,
+				InputTrigger.DOUBLE_CLICK_MASK | InputTrigger.WIN_DOWN_MASK };
+		final int[] keyPool = { KeyEvent.VK_A, KeyEvent.VK_B, KeyEvent.VK_F1, KeyEvent.VK_Z, KeyEvent.VK_SPACE };
+
+		final Random random = new Random( 1 );
+		for ( final InputTrigger trigger : triggers )
+		{
+			final Binding< ? > binding = new Binding<>( trigger, null );
+			for ( int i = 0; i < 200; ++i )
+			{
+				final int mask = masks[ random.nextInt( masks.length ) ];
+				final TIntSet keys = new TIntHashSet();
+				if ( i % 3 == 0 )
+					keys.addAll( trigger.getPressedKeys() );
+				for ( final int key : keyPool )
+					if ( random.nextInt( 4 ) == 0 )
+						keys.add( key );
+				final KeyBits bits = new KeyBits();
+				bits.addAll( keys );
+
+				assertEquals( trigger + " " + mask + " " + keys, trigger.matches( mask, keys ), binding.matches( mask, bits ) );
+				assertEquals( trigger + " " + mask + " " + keys, trigger.matchesSubset( mask, keys ), binding.matchesSubset( mask, bits ) );
+			}
+			final KeyBits own = new KeyBits();
+			own.addAll( trigger.getPressedKeys() );
+			assertEquals( trigger.matches( trigger.getMask(), trigger.getPressedKeys() ), binding.matches( trigger.getMask(), own ) );
+		}
+	}
+}
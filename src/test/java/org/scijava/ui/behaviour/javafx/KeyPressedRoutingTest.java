@@ -0,0 +1,170 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import gnu.trove.set.TIntSet;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.KeyPressedManager;
+
+/**
+ * Checks that key presses are routed through a {@link KeyPressedManager} to
+ * the handler under the mouse.
+ */
+public class KeyPressedRoutingTest
+{
+	/**
+	 * Routes key presses to the receiver under the mouse, if any, otherwise to
+	 * the origin.
+	 */
+	static class RoutingManager extends KeyPressedManager
+	{
+		private KeyPressedReceiver active;
+
+		@Override
+		public void handleKeyPressed( final KeyPressedReceiver origin, final int mask, final boolean doubleClick, final TIntSet pressedKeys )
+		{
+			( active != null ? active : origin ).handleKeyPressed( origin, mask, doubleClick, pressedKeys );
+		}
+
+		@Override
+		public void activate( final KeyPressedReceiver receiver )
+		{
+			active = receiver;
+		}
+
+		@Override
+		public void deactivate( final KeyPressedReceiver receiver )
+		{
+			if ( active == receiver )
+				active = null;
+		}
+	}
+
+	static class Window
+	{
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+
+		int clicks;
+
+		int inits;
+
+		int ends;
+
+		int focused;
+
+		Window( final KeyPressedManager manager )
+		{
+			final InputTriggerMap inputMap = new InputTriggerMap();
+			final BehaviourMap behaviourMap = new BehaviourMap();
+			behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++clicks );
+			inputMap.put( InputTrigger.getFromString( "C" ), "click" );
+			behaviourMap.put( "drag", new DragBehaviour()
+			{
+				@Override
+				public void init( final int x, final int y )
+				{
+					++inits;
+				}
+
+				@Override
+				public void drag( final int x, final int y )
+				{}
+
+				@Override
+				public void end( final int x, final int y )
+				{
+					++ends;
+				}
+			} );
+			inputMap.put( InputTrigger.getFromString( "K" ), "drag" );
+			handler.setInputMap( inputMap );
+			handler.setBehaviourMap( behaviourMap );
+			handler.setKeypressManager( manager, () -> ++focused );
+		}
+
+		void enter()
+		{
+			handler.handle( SyntheticEvents.mouse( MouseEvent.MOUSE_ENTERED, 10, 10, MouseButton.NONE, new MouseButton[ 0 ], 0, NONE ) );
+		}
+
+		void exit()
+		{
+			handler.handle( SyntheticEvents.mouse( MouseEvent.MOUSE_EXITED, 10, 10, MouseButton.NONE, new MouseButton[ 0 ], 0, NONE ) );
+		}
+	}
+
+	@Test
+	public void testKeyPressIsRoutedToWindowUnderMouse()
+	{
+		final RoutingManager manager = new RoutingManager();
+		final Window w1 = new Window( manager );
+		final Window w2 = new Window( manager );
+
+		// w1 has focus, but the mouse is over w2
+		w2.enter();
+		w1.handler.handle( SyntheticEvents.keyPressed( KeyCode.C, NONE ) );
+		assertEquals( 0, w1.clicks );
+		assertEquals( 1, w2.clicks );
+		assertEquals( 1, w2.focused );
+
+		// pressed keys moved to w2, which now receives key events
+		w2.handler.handle( SyntheticEvents.keyReleased( KeyCode.C, NONE ) );
+		w2.handler.handle( SyntheticEvents.keyPressed( KeyCode.K, NONE ) );
+		assertEquals( 1, w2.inits );
+		w2.handler.handle( SyntheticEvents.keyReleased( KeyCode.K, NONE ) );
+		assertEquals( 1, w2.ends );
+
+		// a key drag started through routing sees the transferred keys
+		w2.exit();
+		w1.enter();
+		w2.handler.handle( SyntheticEvents.keyPressed( KeyCode.K, NONE ) );
+		assertEquals( 1, w1.inits );
+		assertEquals( 1, w2.inits );
+
+		// unmatched key presses are not routed
+		w1.exit();
+		w2.enter();
+		w1.handler.handle( SyntheticEvents.keyReleased( KeyCode.K, NONE ) );
+		assertEquals( 1, w1.ends );
+		final int focused = w2.focused;
+		w1.handler.handle( SyntheticEvents.keyPressed( KeyCode.X, NONE ) );
+		assertEquals( focused, w2.focused );
+	}
+}
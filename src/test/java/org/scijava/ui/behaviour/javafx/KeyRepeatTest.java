@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.javafx.JfxMouseAndKeyHandler.KeyRepeatPolicy;
+
+public class KeyRepeatTest
+{
+	private int nextSlice;
+
+	private int previousSlice;
+
+	private int inits;
+
+	private ManualPulseHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "next slice", ( ClickBehaviour ) ( x, y ) -> ++nextSlice );
+		inputMap.put( InputTrigger.getFromString( "N" ), "next slice" );
+		behaviourMap.put( "previous slice", ( ClickBehaviour ) ( x, y ) -> ++previousSlice );
+		inputMap.put( InputTrigger.getFromString( "P" ), "previous slice" );
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++inits;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{}
+		} );
+		inputMap.put( InputTrigger.getFromString( "G" ), "drag" );
+
+		final ManualPulseHandler handler = new ManualPulseHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	private static void hold( final JfxMouseAndKeyHandler handler, final KeyCode key, final int presses )
+	{
+		for ( int i = 0; i < presses; ++i )
+			handler.handle( SyntheticEvents.keyPressed( key, NONE ) );
+	}
+
+	@Test
+	public void testDeliverByDefault()
+	{
+		final ManualPulseHandler handler = createHandler();
+		hold( handler, KeyCode.N, 5 );
+		assertEquals( 5, nextSlice );
+
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.N, NONE ) );
+		hold( handler, KeyCode.G, 5 );
+		assertEquals( 1, inits );
+	}
+
+	@Test
+	public void testIgnore()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setKeyRepeatPolicy( "next slice", KeyRepeatPolicy.IGNORE );
+		hold( handler, KeyCode.N, 5 );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.N, NONE ) );
+		hold( handler, KeyCode.P, 5 );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.P, NONE ) );
+		assertEquals( 1, nextSlice );
+		assertEquals( 5, previousSlice );
+
+		hold( handler, KeyCode.N, 5 );
+		assertEquals( 2, nextSlice );
+	}
+
+	@Test
+	public void testOncePerFrame()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setKeyRepeatPolicy( KeyRepeatPolicy.ONCE_PER_FRAME );
+		hold( handler, KeyCode.N, 5 );
+		assertEquals( 1, nextSlice );
+
+		handler.pulse();
+		assertEquals( 2, nextSlice );
+		handler.pulse();
+		assertEquals( 2, nextSlice );
+
+		hold( handler, KeyCode.N, 3 );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.N, NONE ) );
+		assertEquals( 3, nextSlice );
+	}
+
+	@Test
+	public void testFixedRate()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setKeyRepeatPolicy( KeyRepeatPolicy.FIXED_RATE );
+		handler.setKeyRepeatInterval( 3_600_000 );
+		hold( handler, KeyCode.N, 5 );
+		assertEquals( 2, nextSlice );
+
+		handler.setKeyRepeatInterval( 0 );
+		hold( handler, KeyCode.N, 5 );
+		assertEquals( 7, nextSlice );
+	}
+
+	/**
+	 * Fixed-rate throttling uses the event time, which is the recorded time
+	 * during replay.
+	 */
+	@Test
+	public void testFixedRateUsesEventTime()
+	{
+		final ManualPulseHandler handler = createHandler();
+		handler.setKeyRepeatPolicy( KeyRepeatPolicy.FIXED_RATE );
+		handler.setKeyRepeatInterval( 100 );
+		for ( final long millis : new long[] { 0, 50, 100, 150, 210 } )
+		{
+			handler.replayTime = millis * 1_000_000L;
+			handler.handle( SyntheticEvents.keyPressed( KeyCode.N, NONE ) );
+		}
+		handler.replayTime = JfxMouseAndKeyHandler.NO_TIME;
+		assertEquals( 3, nextSlice );
+	}
+}
@@ -0,0 +1,214 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.concurrent.TimeUnit;
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+import org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers;
+
+public class KeySequenceTest
+{
+	private int saves;
+
+	private int finds;
+
+	private int cuts;
+
+	private int quits;
+
+	private int plainSaves;
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "save", ( ClickBehaviour ) ( x, y ) -> ++saves );
+		behaviourMap.put( "find file", ( ClickBehaviour ) ( x, y ) -> ++finds );
+		behaviourMap.put( "quit", ( ClickBehaviour ) ( x, y ) -> ++quits );
+		behaviourMap.put( "cut", ( ClickBehaviour ) ( x, y ) -> ++cuts );
+		inputMap.put( InputTrigger.getFromString( "ctrl X" ), "cut" );
+		behaviourMap.put( "plain save", ( ClickBehaviour ) ( x, y ) -> ++plainSaves );
+		inputMap.put( InputTrigger.getFromString( "ctrl S" ), "plain save" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		handler.addKeySequence( "ctrl X, ctrl S", "save" );
+		handler.addKeySequence( "ctrl X, ctrl F", "find file" );
+		handler.addKeySequence( "ctrl X, ctrl C", "quit" );
+		return handler;
+	}
+
+	private static void type( final JfxMouseAndKeyHandler handler, final KeyCode key, final Modifiers modifiers )
+	{
+		handler.handle( SyntheticEvents.keyPressed( key, modifiers ) );
+		handler.handle( SyntheticEvents.keyReleased( key, modifiers ) );
+	}
+
+	@Test
+	public void testSequences()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 1, saves );
+
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		type( handler, KeyCode.F, Modifiers.ctrl() );
+		assertEquals( 1, finds );
+
+		// the prefix is taken by the sequences
+		assertEquals( 0, cuts );
+		assertEquals( 0, quits );
+	}
+
+	@Test
+	public void testAbort()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		type( handler, KeyCode.Q, NONE );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 0, saves );
+
+		// starts over after the abort
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 1, saves );
+	}
+
+	@Test
+	public void testAutoRepeatDuringPrefix()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.X, Modifiers.ctrl() ) );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.X, Modifiers.ctrl() ) );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.X, Modifiers.ctrl() ) );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 0, cuts );
+		assertEquals( 1, saves );
+	}
+
+	@Test
+	public void testAutoRepeatOfLastStep()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		for ( int i = 0; i < 5; ++i )
+			handler.handle( SyntheticEvents.keyPressed( KeyCode.S, Modifiers.ctrl() ) );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.S, Modifiers.ctrl() ) );
+		assertEquals( 1, saves );
+		assertEquals( 0, plainSaves );
+
+		// after the release, the key is dispatched as usual
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 1, saves );
+		assertEquals( 1, plainSaves );
+	}
+
+	@Test
+	public void testTimeout()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setKeySequenceTimeout( 1000 );
+		handler.replayTime = 0;
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		handler.replayTime = TimeUnit.MILLISECONDS.toNanos( 1500 );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 0, saves );
+
+		handler.replayTime = TimeUnit.MILLISECONDS.toNanos( 2000 );
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		handler.replayTime = TimeUnit.MILLISECONDS.toNanos( 2500 );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 1, saves );
+	}
+
+	@Test
+	public void testRemoveKeySequences()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.removeKeySequences( "save" );
+		handler.removeKeySequences( "find file" );
+		handler.removeKeySequences( "quit" );
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		assertEquals( 1, cuts );
+	}
+
+	@Test
+	public void testSequencesArePartOfTheBindings()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+
+		// kept when the maps are replaced
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		inputMap.put( InputTrigger.getFromString( "ctrl X" ), "cut" );
+		handler.setInputMap( inputMap );
+		type( handler, KeyCode.X, Modifiers.ctrl() );
+		type( handler, KeyCode.S, Modifiers.ctrl() );
+		assertEquals( 1, saves );
+		assertEquals( 0, cuts );
+
+		// shared with other handlers that use the same bindings
+		final JfxMouseAndKeyHandler other = new JfxMouseAndKeyHandler();
+		other.setBindings( handler.getBindings() );
+		type( other, KeyCode.X, Modifiers.ctrl() );
+		type( other, KeyCode.C, Modifiers.ctrl() );
+		assertEquals( 1, quits );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testButtonStep()
+	{
+		createHandler().addKeySequence( "ctrl X, button1", "save" );
+	}
+
+	@Test
+	public void testLargeVocabulary()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		final KeyCode[] letters = { KeyCode.A, KeyCode.B, KeyCode.D, KeyCode.E, KeyCode.G, KeyCode.H, KeyCode.I, KeyCode.J };
+		for ( final KeyCode a : letters )
+			for ( final KeyCode b : letters )
+				for ( final KeyCode c : letters )
+					handler.addKeySequence( "alt " + a.getName() + ", " + b.getName() + ", " + c.getName(), "save" );
+		type( handler, KeyCode.G, Modifiers.alt() );
+		type( handler, KeyCode.J, NONE );
+		type( handler, KeyCode.A, NONE );
+		assertEquals( 1, saves );
+	}
+}
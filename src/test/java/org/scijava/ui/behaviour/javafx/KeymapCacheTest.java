@@ -0,0 +1,232 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import javafx.scene.input.KeyCode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class KeymapCacheTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private int clicks;
+
+	private static InputTriggerMap keymap()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		inputMap.put( InputTrigger.getFromString( "ctrl shift S" ), "save" );
+		inputMap.put( InputTrigger.getFromString( "A | all" ), "click" );
+		inputMap.put( InputTrigger.getFromString( "A | all" ), "also click" );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		inputMap.put( InputTrigger.getFromString( "alt scroll" ), "zoom \u00e9" );
+		return inputMap;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		final InputTriggerMap inputMap = keymap();
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( inputMap, file );
+
+		final KeymapCache cache = KeymapCache.read( file );
+		assertEquals( 4, cache.size() );
+		final InputTriggerMap loaded = cache.createInputTriggerMap();
+		assertEquals( inputMap.getAllBindings(), loaded.getAllBindings() );
+
+		for ( final InputTrigger trigger : loaded.getAllBindings().keySet() )
+		{
+			final CompiledTrigger compiled = CompiledTrigger.of( trigger );
+			assertEquals( trigger.getMask(), compiled.mask );
+		}
+	}
+
+	@Test
+	public void testLoadDoesNotCompile() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( keymap(), file );
+		CompiledTrigger.forgetAll();
+
+		final int compilations = CompiledTrigger.compilations();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++clicks );
+		final SharedBindings bindings = KeymapCache.loadAsync( file, behaviourMap, Runnable::run ).get();
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setBindings( bindings );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		assertEquals( 1, clicks );
+		assertEquals( compilations, CompiledTrigger.compilations() );
+
+		// the cached forms are those that compiling produces
+		final Map< InputTrigger, CompiledTrigger > cached = new HashMap<>();
+		for ( final InputTrigger trigger : bindings.getInputMap().getAllBindings().keySet() )
+			cached.put( trigger, CompiledTrigger.of( trigger ) );
+		CompiledTrigger.forgetAll();
+		for ( final Map.Entry< InputTrigger, CompiledTrigger > entry : cached.entrySet() )
+		{
+			final CompiledTrigger compiled = CompiledTrigger.of( entry.getKey() );
+			assertEquals( compiled.mask, entry.getValue().mask );
+			assertEquals( compiled.ignoreMask, entry.getValue().ignoreMask );
+			assertEquals( compiled.keys, entry.getValue().keys );
+		}
+		assertEquals( compilations + cached.size(), CompiledTrigger.compilations() );
+	}
+
+	@Test
+	public void testOtherLibraryVersionIsNotTrusted() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( keymap(), file );
+		final byte[] bytes = Files.readAllBytes( file );
+		final int length = ByteBuffer.wrap( bytes, 8, 4 ).getInt();
+		Arrays.fill( bytes, 12, 12 + length, ( byte ) 'x' );
+		Files.write( file, bytes );
+		CompiledTrigger.forgetAll();
+
+		final int compilations = CompiledTrigger.compilations();
+		final InputTriggerMap loaded = KeymapCache.read( file ).createInputTriggerMap();
+		assertEquals( keymap().getAllBindings(), loaded.getAllBindings() );
+		for ( final InputTrigger trigger : loaded.getAllBindings().keySet() )
+			CompiledTrigger.of( trigger );
+		assertEquals( compilations + 4, CompiledTrigger.compilations() );
+	}
+
+	@Test
+	public void testCorrupt() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( keymap(), file );
+		final byte[] bytes = Files.readAllBytes( file );
+		final String contents = new String( bytes, StandardCharsets.ISO_8859_1 );
+		bytes[ contents.indexOf( "ctrl shift S" ) + 11 ] = 'T';
+		Files.write( file, bytes );
+		try
+		{
+			KeymapCache.read( file );
+			fail();
+		}
+		catch ( final IOException e )
+		{
+			assertTrue( e.getMessage().startsWith( "corrupt keymap cache" ) );
+		}
+	}
+
+	@Test
+	public void testLoadAsync() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( keymap(), file );
+
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++clicks );
+		final SharedBindings bindings = KeymapCache.loadAsync( file, behaviourMap, Runnable::run ).get();
+
+		// compiled in the background: "click" is bound, "also click" is not
+		assertEquals( 1, bindings.current().keyClicks.get( 0, 0, keys( KeyCode.A ) ).length );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setBindings( bindings );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		assertEquals( 1, clicks );
+	}
+
+	@Test
+	public void testNotACache() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.yaml" ).toPath();
+		Files.write( file, "---\n- !mapping\n  action: click\n".getBytes( "UTF-8" ) );
+		try
+		{
+			KeymapCache.read( file );
+			fail();
+		}
+		catch ( final IOException e )
+		{
+			assertTrue( e.getMessage().startsWith( "not a keymap cache" ) );
+		}
+	}
+
+	@Test
+	public void testTruncated() throws Exception
+	{
+		final Path file = folder.newFile( "keymap.bin" ).toPath();
+		KeymapCache.write( keymap(), file );
+		final byte[] bytes = Files.readAllBytes( file );
+		Files.write( file, Arrays.copyOf( bytes, bytes.length - 3 ) );
+		try
+		{
+			KeymapCache.read( file );
+			fail();
+		}
+		catch ( final IOException e )
+		{
+			// expected
+		}
+
+		try
+		{
+			KeymapCache.loadAsync( file, new BehaviourMap(), Runnable::run ).get();
+			fail();
+		}
+		catch ( final ExecutionException e )
+		{
+			assertTrue( e.getCause().getCause() instanceof IOException );
+		}
+	}
+
+	private static KeyBits keys( final KeyCode... keyCodes )
+	{
+		final KeyBits keys = new KeyBits();
+		for ( final KeyCode keyCode : keyCodes )
+			keys.add( JfxKeyCodes.toBit( keyCode ) );
+		return keys;
+	}
+}
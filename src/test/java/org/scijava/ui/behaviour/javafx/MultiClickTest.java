@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.concurrent.TimeUnit;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class MultiClickTest
+{
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+	private int singleClicks;
+
+	private int doubleClicks;
+
+	private int tripleClicks;
+
+	private int keyDoubleClicks;
+
+	private int keyTripleClicks;
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "single", ( ClickBehaviour ) ( x, y ) -> ++singleClicks );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "single" );
+		behaviourMap.put( "double", ( ClickBehaviour ) ( x, y ) -> ++doubleClicks );
+		inputMap.put( InputTrigger.getFromString( "button1 double-click" ), "double" );
+		behaviourMap.put( "triple", ( ClickBehaviour ) ( x, y ) -> ++tripleClicks );
+		inputMap.put( InputTrigger.getFromString( "button1 double-click" ), "triple" );
+		behaviourMap.put( "key double", ( ClickBehaviour ) ( x, y ) -> ++keyDoubleClicks );
+		inputMap.put( InputTrigger.getFromString( "A double-click" ), "key double" );
+		behaviourMap.put( "key triple", ( ClickBehaviour ) ( x, y ) -> ++keyTripleClicks );
+		inputMap.put( InputTrigger.getFromString( "A double-click" ), "key triple" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		handler.setClickCount( "single", 1 );
+		handler.setClickCount( "double", 2 );
+		handler.setClickCount( "triple", 3 );
+		handler.setClickCount( "key double", 2 );
+		handler.setClickCount( "key triple", 3 );
+		return handler;
+	}
+
+	private static void click( final JfxMouseAndKeyHandler handler, final long time )
+	{
+		handler.replayTime = time;
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10, 10, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 10, 10, NONE ) );
+		// JavaFX's click count is ignored
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 1, 10, 10, NONE ) );
+	}
+
+	private static void type( final JfxMouseAndKeyHandler handler, final KeyCode key, final long time )
+	{
+		handler.replayTime = time;
+		handler.handle( SyntheticEvents.keyPressed( key, NONE ) );
+		handler.handle( SyntheticEvents.keyReleased( key, NONE ) );
+	}
+
+	@Test
+	public void testMouseClickCounts()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		click( handler, 0 );
+		click( handler, 100 * MS );
+		click( handler, 200 * MS );
+		click( handler, 300 * MS );
+		assertEquals( 1, singleClicks );
+		assertEquals( 1, doubleClicks );
+		assertEquals( 1, tripleClicks );
+
+		// too slow: starts over
+		click( handler, 1000 * MS );
+		click( handler, 1400 * MS );
+		assertEquals( 3, singleClicks );
+		assertEquals( 1, doubleClicks );
+	}
+
+	@Test
+	public void testDistantPressesAreNotMultiClicks()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		click( handler, 0 );
+		handler.replayTime = 100 * MS;
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 100, 10, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 100, 10, NONE ) );
+		handler.handle( SyntheticEvents.clicked( MouseButton.PRIMARY, 2, 100, 10, NONE ) );
+		assertEquals( 2, singleClicks );
+		assertEquals( 0, doubleClicks );
+	}
+
+	@Test
+	public void testKeyClickCounts()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		type( handler, KeyCode.A, 0 );
+		type( handler, KeyCode.A, 100 * MS );
+		type( handler, KeyCode.A, 200 * MS );
+		assertEquals( 1, keyDoubleClicks );
+		assertEquals( 1, keyTripleClicks );
+
+		// keys are counted independently
+		type( handler, KeyCode.A, 1000 * MS );
+		type( handler, KeyCode.B, 1050 * MS );
+		type( handler, KeyCode.A, 1100 * MS );
+		assertEquals( 2, keyDoubleClicks );
+
+		// too slow: starts over
+		type( handler, KeyCode.A, 1500 * MS );
+		assertEquals( 2, keyDoubleClicks );
+		assertEquals( 1, keyTripleClicks );
+	}
+
+	@Test
+	public void testMultiClickInterval()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setMultiClickInterval( 1000 );
+		click( handler, 0 );
+		click( handler, 900 * MS );
+		assertEquals( 1, doubleClicks );
+	}
+
+	@Test
+	public void testCounterIsBounded()
+	{
+		final MultiClickCounter counter = new MultiClickCounter();
+		for ( int key = 0; key < 1000; ++key )
+			assertEquals( 1, counter.press( key, key, MS ) );
+		assertEquals( 2, counter.press( 999, 1000, MS ) );
+		assertEquals( 1, counter.press( 0, 1001, MS ) );
+	}
+}
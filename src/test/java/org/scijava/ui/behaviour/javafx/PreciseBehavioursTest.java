@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.input.MouseButton;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class PreciseBehavioursTest
+{
+	private final List< String > calls = new ArrayList<>();
+
+	private final List< String > preciseCalls = new ArrayList<>();
+
+	private JfxMouseAndKeyHandler createHandler()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				calls.add( "init " + x + " " + y );
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{
+				calls.add( "drag " + x + " " + y );
+			}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				calls.add( "end " + x + " " + y );
+			}
+		} );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "drag" );
+		behaviourMap.put( "precise drag", new PreciseDragBehaviour()
+		{
+			@Override
+			public void init( final double x, final double y )
+			{
+				preciseCalls.add( "init " + x + " " + y );
+			}
+
+			@Override
+			public void drag( final double x, final double y )
+			{
+				preciseCalls.add( "drag " + x + " " + y );
+			}
+
+			@Override
+			public void end( final double x, final double y )
+			{
+				preciseCalls.add( "end " + x + " " + y );
+			}
+		} );
+		inputMap.put( InputTrigger.getFromString( "button1" ), "precise drag" );
+		behaviourMap.put( "precise click", ( PreciseClickBehaviour ) ( x, y ) -> preciseCalls.add( "click " + x + " " + y ) );
+		inputMap.put( InputTrigger.getFromString( "button3" ), "precise click" );
+		behaviourMap.put( "precise scroll", ( PreciseScrollBehaviour ) ( wheelRotation, isHorizontal, x, y ) -> preciseCalls.add( "scroll " + x + " " + y ) );
+		inputMap.put( InputTrigger.getFromString( "scroll" ), "precise scroll" );
+
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		handler.setInputMap( inputMap );
+		handler.setBehaviourMap( behaviourMap );
+		return handler;
+	}
+
+	private static void drag( final JfxMouseAndKeyHandler handler )
+	{
+		handler.handle( SyntheticEvents.pressed( MouseButton.PRIMARY, 10.25, 20.5, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 10.5, 20.5, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 10.5, 20.5, NONE ) );
+		handler.handle( SyntheticEvents.dragged( MouseButton.PRIMARY, 11.5, 20.5, NONE ) );
+		handler.handle( SyntheticEvents.released( MouseButton.PRIMARY, 11.5, 20.5, NONE ) );
+	}
+
+	@Test
+	public void testPreciseCoordinates()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		drag( handler );
+		handler.handle( SyntheticEvents.clicked( MouseButton.SECONDARY, 1, 1.5, 2.5, NONE ) );
+		handler.handle( SyntheticEvents.scroll( 3.5, 4.5, 0, -40, false, NONE ) );
+
+		assertEquals( "[init 10 20, drag 10 20, drag 10 20, drag 11 20, end 11 20]", calls.toString() );
+		assertEquals( "[init 10.25 20.5, drag 10.5 20.5, drag 10.5 20.5, drag 11.5 20.5, end 11.5 20.5, click 1.5 2.5, scroll 3.5 4.5]",
+				preciseCalls.toString() );
+	}
+
+	@Test
+	public void testSkipDuplicateDrags()
+	{
+		final JfxMouseAndKeyHandler handler = createHandler();
+		handler.setSkipDuplicateDrags( true );
+		drag( handler );
+
+		assertEquals( "[init 10 20, drag 11 20, end 11 20]", calls.toString() );
+		assertEquals( "[init 10.25 20.5, drag 10.5 20.5, drag 11.5 20.5, end 11.5 20.5]", preciseCalls.toString() );
+	}
+}
@@ -0,0 +1,238 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.scijava.ui.behaviour.javafx.SyntheticEvents.Modifiers.NONE;
+
+import gnu.trove.set.hash.TIntHashSet;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+import org.scijava.ui.behaviour.BehaviourMap;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.DragBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+import org.scijava.ui.behaviour.InputTriggerMap;
+
+public class SharedBindingsTest
+{
+	private int inits;
+
+	private int clicks;
+
+	@Test
+	public void testCompiledOnceForAllHandlers()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++inits;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{}
+		} );
+		inputMap.put( InputTrigger.getFromString( "G" ), "drag" );
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++clicks );
+
+		final SharedBindings bindings = new SharedBindings( inputMap, behaviourMap );
+		final List< JfxMouseAndKeyHandler > handlers = new ArrayList<>();
+		for ( int i = 0; i < 10; ++i )
+		{
+			final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+			handler.setBindings( bindings );
+			handlers.add( handler );
+		}
+
+		bindings.refresh();
+		final CompiledBindings c1 = bindings.current();
+
+		// pressed keys and active drags are per handler
+		handlers.get( 0 ).handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		handlers.get( 1 ).handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		handlers.get( 1 ).handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 2, inits );
+		assertSame( c1, bindings.current() );
+
+		handlers.get( 0 ).handle( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+		handlers.get( 1 ).handle( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+
+		// a change is compiled once, by the first handler that needs it
+		inputMap.put( InputTrigger.getFromString( "A" ), "click" );
+		handlers.get( 2 ).handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		final CompiledBindings c2 = bindings.current();
+		assertNotSame( c1, c2 );
+		for ( final JfxMouseAndKeyHandler handler : handlers )
+		{
+			handler.handle( SyntheticEvents.keyReleased( KeyCode.A, NONE ) );
+			handler.handle( SyntheticEvents.keyPressed( KeyCode.A, NONE ) );
+		}
+		assertEquals( 11, clicks );
+		assertSame( c2, bindings.current() );
+	}
+
+	@Test
+	public void testSwitchMapsDuringDrag()
+	{
+		final int[] ends = { 0 };
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "drag", new DragBehaviour()
+		{
+			@Override
+			public void init( final int x, final int y )
+			{
+				++inits;
+			}
+
+			@Override
+			public void drag( final int x, final int y )
+			{}
+
+			@Override
+			public void end( final int x, final int y )
+			{
+				++ends[ 0 ];
+			}
+		} );
+		final InputTriggerMap mode1 = new InputTriggerMap();
+		mode1.put( InputTrigger.getFromString( "G" ), "drag" );
+		final InputTriggerMap mode2 = new InputTriggerMap();
+		mode2.put( InputTrigger.getFromString( "G" ), "drag" );
+		final InputTriggerMap mode3 = new InputTriggerMap();
+
+		final SharedBindings bindings = new SharedBindings( mode1, behaviourMap );
+		final JfxMouseAndKeyHandler handler = new JfxMouseAndKeyHandler();
+		final JfxMouseAndKeyHandler other = new JfxMouseAndKeyHandler();
+		handler.setBindings( bindings );
+		other.setBindings( bindings );
+
+		// switching to a map with the same binding keeps the drag
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 1, inits );
+		handler.setInputMap( mode2 );
+		assertSame( bindings, handler.getBindings() );
+		assertSame( mode2, other.getBindings().getInputMap() );
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 1, inits );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+		assertEquals( 1, ends[ 0 ] );
+
+		// switching to a map without the binding still ends the drag
+		handler.handle( SyntheticEvents.keyPressed( KeyCode.G, NONE ) );
+		assertEquals( 2, inits );
+		handler.setInputMap( mode3 );
+		handler.handle( SyntheticEvents.keyReleased( KeyCode.G, NONE ) );
+		assertEquals( 2, ends[ 0 ] );
+	}
+
+	@Test
+	public void testCompiledListeners()
+	{
+		final InputTriggerMap inputMap = new InputTriggerMap();
+		final BehaviourMap behaviourMap = new BehaviourMap();
+		behaviourMap.put( "click", ( ClickBehaviour ) ( x, y ) -> ++clicks );
+		final SharedBindings bindings = new SharedBindings( inputMap, behaviourMap );
+		bindings.refresh();
+
+		final int[] compiled = { 0 };
+		final Runnable listener = () -> ++compiled[ 0 ];
+		bindings.addCompiledListener( listener );
+		bindings.refresh();
+		assertEquals( 0, compiled[ 0 ] );
+
+		inputMap.put( InputTrigger.getFromString( "A" ), "click" );
+		bindings.refresh();
+		assertEquals( 1, compiled[ 0 ] );
+
+		bindings.setInputMap( new InputTriggerMap() );
+		assertEquals( 2, compiled[ 0 ] );
+
+		bindings.removeCompiledListener( listener );
+		inputMap.put( InputTrigger.getFromString( "B" ), "click" );
+		bindings.setInputMap( inputMap );
+		assertEquals( 2, compiled[ 0 ] );
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception
+	{
+		final TriggerIndex< ClickBehaviour > index = new TriggerIndex<>();
+		final List< InputTrigger > triggers = SyntheticTriggers.triggers( 1000 );
+		for ( final InputTrigger trigger : triggers )
+			index.add( trigger, ( x, y ) -> {} );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< ? > > futures = new ArrayList<>();
+			for ( int t = 0; t < 4; ++t )
+			{
+				futures.add( executor.submit( () -> {
+					final KeyBits keys = new KeyBits();
+					for ( int i = 0; i < 2000; ++i )
+					{
+						final InputTrigger trigger = triggers.get( ( i * 7919 ) % triggers.size() );
+						keys.clear();
+						keys.addAll( trigger.getPressedKeys() );
+						final Binding< ClickBehaviour >[] matches = index.get( trigger.getMask(), trigger.getMask(), keys );
+						assertEquals( 1, matches.length );
+						assertSame( trigger, matches[ 0 ].buttons() );
+					}
+				} ) );
+			}
+			for ( final Future< ? > future : futures )
+				future.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		final KeyBits keys = new KeyBits();
+		keys.addAll( new TIntHashSet( new int[] { KeyEvent.VK_A, KeyEvent.VK_Z } ) );
+		assertEquals( 0, index.get( InputTrigger.CTRL_DOWN_MASK, InputTrigger.CTRL_DOWN_MASK, keys ).length );
+	}
+}
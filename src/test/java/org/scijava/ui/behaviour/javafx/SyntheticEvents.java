@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import javafx.event.EventType;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Factory for {@link MouseEvent}s, {@link KeyEvent}s, {@link ScrollEvent}s, and
+ * gesture events that can be fed directly to {@link JfxMouseAndKeyHandler#handle}. This does
+ * not require a running JavaFX toolkit.
+ */
+public final class SyntheticEvents
+{
+	private SyntheticEvents()
+	{}
+
+	/**
+	 * State of the modifier keys for a synthetic event.
+	 */
+	public static final class Modifiers
+	{
+		public static final Modifiers NONE = new Modifiers( false, false, false, false );
+
+		final boolean shift;
+
+		final boolean ctrl;
+
+		final boolean alt;
+
+		final boolean meta;
+
+		public Modifiers( final boolean shift, final boolean ctrl, final boolean alt, final boolean meta )
+		{
+			this.shift = shift;
+			this.ctrl = ctrl;
+			this.alt = alt;
+			this.meta = meta;
+		}
+
+		public static Modifiers shift()
+		{
+			return new Modifiers( true, false, false, false );
+		}
+
+		public static Modifiers ctrl()
+		{
+			return new Modifiers( false, true, false, false );
+		}
+
+		public static Modifiers alt()
+		{
+			return new Modifiers( false, false, true, false );
+		}
+
+		public static Modifiers meta()
+		{
+			return new Modifiers( false, false, false, true );
+		}
+	}
+
+	/**
+	 * Create a mouse event.
+	 *
+	 * @param type
+	 *            {@link MouseEvent#MOUSE_PRESSED}, {@link MouseEvent#MOUSE_MOVED},
+	 *            etc.
+	 * @param button
+	 *            the button that changed state ({@link MouseButton#NONE} for
+	 *            moves and drags)
+	 * @param buttonsDown
+	 *            buttons that are down after the event
+	 * @param clickCount
+	 *            number of clicks
+	 */
+	public static MouseEvent mouse(
+			final EventType< MouseEvent > type,
+			final double x,
+			final double y,
+			final MouseButton button,
+			final MouseButton[] buttonsDown,
+			final int clickCount,
+			final Modifiers modifiers )
+	{
+		boolean primary = false;
+		boolean middle = false;
+		boolean secondary = false;
+		for ( final MouseButton b : buttonsDown )
+		{
+			if ( b == MouseButton.PRIMARY )
+				primary = true;
+			else if ( b == MouseButton.MIDDLE )
+				middle = true;
+			else if ( b == MouseButton.SECONDARY )
+				secondary = true;
+		}
+		return new MouseEvent( type, x, y, x, y, button, clickCount,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta,
+				primary, middle, secondary,
+				false, false, clickCount == 0, null );
+	}
+
+	public static MouseEvent moved( final double x, final double y )
+	{
+		return mouse( MouseEvent.MOUSE_MOVED, x, y, MouseButton.NONE, new MouseButton[ 0 ], 0, Modifiers.NONE );
+	}
+
+	public static MouseEvent pressed( final MouseButton button, final double x, final double y, final Modifiers modifiers )
+	{
+		return mouse( MouseEvent.MOUSE_PRESSED, x, y, button, new MouseButton[] { button }, 1, modifiers );
+	}
+
+	public static MouseEvent dragged( final MouseButton button, final double x, final double y, final Modifiers modifiers )
+	{
+		return mouse( MouseEvent.MOUSE_DRAGGED, x, y, MouseButton.NONE, new MouseButton[] { button }, 0, modifiers );
+	}
+
+	public static MouseEvent released( final MouseButton button, final double x, final double y, final Modifiers modifiers )
+	{
+		return mouse( MouseEvent.MOUSE_RELEASED, x, y, button, new MouseButton[ 0 ], 1, modifiers );
+	}
+
+	public static MouseEvent clicked( final MouseButton button, final int clickCount, final double x, final double y, final Modifiers modifiers )
+	{
+		return mouse( MouseEvent.MOUSE_CLICKED, x, y, button, new MouseButton[ 0 ], clickCount, modifiers );
+	}
+
+	public static KeyEvent key( final EventType< KeyEvent > type, final KeyCode code, final Modifiers modifiers )
+	{
+		return new KeyEvent( type, KeyEvent.CHAR_UNDEFINED, code.getName(), code,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta );
+	}
+
+	public static KeyEvent keyPressed( final KeyCode code, final Modifiers modifiers )
+	{
+		return key( KeyEvent.KEY_PRESSED, code, modifiers );
+	}
+
+	public static KeyEvent keyReleased( final KeyCode code, final Modifiers modifiers )
+	{
+		return key( KeyEvent.KEY_RELEASED, code, modifiers );
+	}
+
+	public static ScrollEvent scroll(
+			final double x,
+			final double y,
+			final double deltaX,
+			final double deltaY,
+			final boolean inertia,
+			final Modifiers modifiers )
+	{
+		return scroll( x, y, deltaX, deltaY, inertia, 0, modifiers );
+	}
+
+	public static ScrollEvent scroll(
+			final double x,
+			final double y,
+			final double deltaX,
+			final double deltaY,
+			final boolean inertia,
+			final int touchCount,
+			final Modifiers modifiers )
+	{
+		return new ScrollEvent( ScrollEvent.SCROLL, x, y, x, y,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta,
+				false, inertia, deltaX, deltaY, deltaX, deltaY,
+				ScrollEvent.HorizontalTextScrollUnits.NONE, 0,
+				ScrollEvent.VerticalTextScrollUnits.NONE, 0,
+				touchCount, null );
+	}
+
+	public static ZoomEvent zoom(
+			final EventType< ZoomEvent > type,
+			final double x,
+			final double y,
+			final double zoomFactor,
+			final Modifiers modifiers )
+	{
+		return new ZoomEvent( type, x, y, x, y,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta,
+				false, false, zoomFactor, zoomFactor, null );
+	}
+
+	public static RotateEvent rotate(
+			final EventType< RotateEvent > type,
+			final double x,
+			final double y,
+			final double angle,
+			final Modifiers modifiers )
+	{
+		return new RotateEvent( type, x, y, x, y,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta,
+				false, false, angle, angle, null );
+	}
+
+	public static SwipeEvent swipe(
+			final EventType< SwipeEvent > type,
+			final double x,
+			final double y,
+			final int touchCount,
+			final Modifiers modifiers )
+	{
+		return new SwipeEvent( type, x, y, x, y,
+				modifiers.shift, modifiers.ctrl, modifiers.alt, modifiers.meta,
+				false, touchCount, null );
+	}
+}
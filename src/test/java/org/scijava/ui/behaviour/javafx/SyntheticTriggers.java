@@ -0,0 +1,74 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.scijava.ui.behaviour.InputTrigger;
+
+/**
+ * Factory for lots of distinct key triggers, for tests and benchmarks with
+ * large keymaps.
+ */
+public final class SyntheticTriggers
+{
+	private SyntheticTriggers()
+	{}
+
+	private static final String[] MODIFIERS = { "ctrl", "shift", "alt", "meta", "win" };
+
+	/**
+	 * Create {@code n} distinct key triggers: the letters A-Z and function
+	 * keys F1-F12, with all combinations of modifiers.
+	 */
+	public static List< InputTrigger > triggers( final int n )
+	{
+		final List< String > keys = new ArrayList<>();
+		for ( char c = 'A'; c <= 'Z'; ++c )
+			keys.add( "" + c );
+		for ( int i = 1; i <= 12; ++i )
+			keys.add( "F" + i );
+
+		final List< InputTrigger > triggers = new ArrayList<>();
+		for ( int m = 0; triggers.size() < n; ++m )
+		{
+			final StringBuilder modifiers = new StringBuilder();
+			for ( int b = 0; b < MODIFIERS.length; ++b )
+				if ( ( m & ( 1 << b ) ) != 0 )
+					modifiers.append( MODIFIERS[ b ] ).append( " " );
+			for ( final String key : keys )
+			{
+				if ( triggers.size() == n )
+					break;
+				triggers.add( InputTrigger.getFromString( modifiers + key ) );
+			}
+		}
+		return triggers;
+	}
+}
@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * Configurable key and mouse event handling
+ * %%
+ * Copyright (C) 2019 Tobias Pietzsch
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.ui.behaviour.javafx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.input.KeyCode;
+import org.junit.Test;
+import org.scijava.ui.behaviour.ClickBehaviour;
+import org.scijava.ui.behaviour.InputTrigger;
+
+public class TriggerIndexTest
+{
+	private static KeyBits keys( final KeyCode... keyCodes )
+	{
+		final KeyBits keys = new KeyBits();
+		for ( final KeyCode keyCode : keyCodes )
+			keys.add( JfxKeyCodes.toBit( keyCode ) );
+		return keys;
+	}
+
+	private static String[] triggers( final Binding< ClickBehaviour >[] bindings )
+	{
+		final String[] triggers = new String[ bindings.length ];
+		for ( int i = 0; i < bindings.length; ++i )
+			triggers[ i ] = bindings[ i ].buttons().toString();
+		return triggers;
+	}
+
+	@Test
+	public void testOrderAcrossBuckets()
+	{
+		final TriggerIndex< ClickBehaviour > index = new TriggerIndex<>();
+		for ( final String trigger : new String[] { "A | all", "ctrl A", "B", "ctrl A | shift", "A B", "A" } )
+			index.add( InputTrigger.getFromString( trigger ), ( x, y ) -> {} );
+
+		assertArrayEquals( new String[] { "A | all", "ctrl A", "ctrl A | shift" },
+				triggers( index.get( InputTrigger.CTRL_DOWN_MASK, InputTrigger.CTRL_DOWN_MASK, keys( KeyCode.A ) ) ) );
+		assertArrayEquals( new String[] { "A | all", "A" },
+				triggers( index.get( 0, 0, keys( KeyCode.A ) ) ) );
+		assertArrayEquals( new String[] { "A B" },
+				triggers( index.get( 0, 0, keys( KeyCode.A, KeyCode.B ) ) ) );
+
+		// remembered
+		final KeyBits a = keys( KeyCode.A );
+		assertSame( index.get( 0, 0, a ), index.get( 0, 0, a ) );
+
+		// key sets that no trigger uses match nothing
+		assertEquals( 0, index.get( 0, 0, keys( KeyCode.C ) ).length );
+	}
+
+	@Test
+	public void testManyMasks()
+	{
+		final TriggerIndex< ClickBehaviour > index = new TriggerIndex<>();
+		final List< InputTrigger > triggers = SyntheticTriggers.triggers( 32 * 38 );
+		for ( final InputTrigger trigger : triggers )
+			index.add( trigger, ( x, y ) -> {} );
+
+		// more masks per key set than are remembered, twice
+		final List< InputTrigger > lookups = new ArrayList<>( triggers );
+		lookups.addAll( triggers );
+		for ( final InputTrigger trigger : lookups )
+		{
+			final KeyBits keys = new KeyBits();
+			keys.addAll( trigger.getPressedKeys() );
+			final Binding< ClickBehaviour >[] matches = index.get( trigger.getMask(), trigger.getMask(), keys );
+			assertEquals( 1, matches.length );
+			assertSame( trigger, matches[ 0 ].buttons() );
+		}
+	}
+}